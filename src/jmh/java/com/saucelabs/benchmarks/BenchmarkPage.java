@@ -0,0 +1,38 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.pages.BasePage;
+import org.openqa.selenium.WebElement;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 公开BasePage受保护的查找方法，供基准测试调用
+ */
+public class BenchmarkPage extends BasePage {
+    private static final Map<String, String> LOGIN_FORM = new LinkedHashMap<>();
+
+    static {
+        LOGIN_FORM.put("username", "test-Username");
+        LOGIN_FORM.put("password", "test-Password");
+        LOGIN_FORM.put("login", "test-LOGIN");
+    }
+
+    public WebElement byAccessibilityId(String accessibilityId) {
+        return findElementByAccessibilityId(accessibilityId, SHORT_TIMEOUT);
+    }
+
+    public WebElement byXPath(String xpath) {
+        return findElementByXPath(xpath, SHORT_TIMEOUT);
+    }
+
+    public Map<String, Optional<WebElement>> loginForm() {
+        invalidateSnapshot();
+        return findElementsByAccessibilityIds(LOGIN_FORM);
+    }
+
+    public boolean loginFormVisible() {
+        return waitForSnapshot(s -> s.areAllVisible("test-Username", "test-Password", "test-LOGIN"), SHORT_TIMEOUT);
+    }
+}
@@ -0,0 +1,48 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.core.DeviceLease;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 读取配置和构造capabilities的开销，不需要服务器
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ConfigurationBenchmark {
+    private DeviceLease lease;
+
+    @Setup
+    public void setUp() {
+        System.setProperty("platform", "android");
+        lease = Configuration.getDeviceLeases().get(0);
+    }
+
+    @Benchmark
+    public Object getCapabilities() {
+        return Configuration.getCapabilities();
+    }
+
+    @Benchmark
+    public Object getCapabilitiesForLease() {
+        return Configuration.getCapabilities(lease);
+    }
+
+    @Benchmark
+    public void typedGetters(Blackhole blackhole) {
+        blackhole.consume(Configuration.isAndroid());
+        blackhole.consume(Configuration.getWaitPollingInitialMillis());
+        blackhole.consume(Configuration.getWaitPollingMultiplier());
+        blackhole.consume(Configuration.isSessionReuseEnabled());
+    }
+}
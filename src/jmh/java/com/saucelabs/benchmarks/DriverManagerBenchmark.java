@@ -0,0 +1,23 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.core.DriverManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 创建并关闭一个会话的客户端开销：租用设备、构造capabilities、握手、设置隐式等待、删除会话
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DriverManagerBenchmark {
+
+    @Benchmark
+    public void initializeAndQuitDriver(EndpointState endpoint) {
+        DriverManager.initializeDriver();
+        DriverManager.quitDriver();
+    }
+}
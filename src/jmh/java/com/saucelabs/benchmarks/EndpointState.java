@@ -0,0 +1,37 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.stub.StubAppiumServer;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * 启动Appium替身服务器并让框架连接到它，会话从登录界面开始。
+ * Configuration在类加载时读取系统属性，所以必须在第一次访问框架类之前设置；
+ * JMH为每组参数单独fork一个JVM，不同的延迟参数互不影响。
+ */
+@State(Scope.Thread)
+public class EndpointState {
+    @Param({"0", "5"})
+    public long latencyMillis;
+
+    private StubAppiumServer server;
+
+    @Setup(Level.Trial)
+    public void startEndpoint() throws Exception {
+        server = new StubAppiumServer(0, latencyMillis, 0);
+        System.setProperty("platform", "android");
+        System.setProperty("appium.android.url", server.getUrl());
+        System.setProperty("session.reuse", "false");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopEndpoint() {
+        DriverManager.quitDriver();
+        server.stop();
+    }
+}
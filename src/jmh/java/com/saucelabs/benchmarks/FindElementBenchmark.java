@@ -0,0 +1,49 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.core.DriverManager;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BasePage查找路径的开销：单个accessibility ID、XPath、批量查找和快照等待
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FindElementBenchmark {
+    private BenchmarkPage page;
+
+    @Setup(Level.Trial)
+    public void setUp(EndpointState endpoint) {
+        DriverManager.initializeDriver();
+        page = new BenchmarkPage();
+    }
+
+    @Benchmark
+    public Object findByAccessibilityId() {
+        return page.byAccessibilityId("test-Username");
+    }
+
+    @Benchmark
+    public Object findByXPath() {
+        return page.byXPath("//android.view.ViewGroup[@content-desc='test-LOGIN']");
+    }
+
+    @Benchmark
+    public Object findLoginFormBatch() {
+        return page.loginForm();
+    }
+
+    @Benchmark
+    public boolean waitForLoginFormSnapshot() {
+        return page.loginFormVisible();
+    }
+}
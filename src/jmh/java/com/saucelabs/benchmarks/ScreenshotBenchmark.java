@@ -0,0 +1,52 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.utils.ScreenshotUtils;
+import com.saucelabs.framework.utils.ScreenshotWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 截图持久化的开销：截图并存入内容寻址存储（重复截图只计算哈希），以及异步写入新文件的提交和落盘
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ScreenshotBenchmark {
+    private static final Path OUTPUT = Paths.get("target", "jmh", "screenshots");
+
+    private byte[] png;
+    private long sequence;
+
+    @Setup(Level.Trial)
+    public void setUp(EndpointState endpoint) {
+        png = ScreenshotUtils.takeScreenshotAsBytes();
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() throws Exception {
+        // 迭代结束时等待写入完成，避免队列积压计入下一轮
+        ScreenshotWriter.submit(OUTPUT.resolve("flush.png"), png).get();
+    }
+
+    @Benchmark
+    public Object takeScreenshot() {
+        return ScreenshotUtils.takeScreenshot("benchmark");
+    }
+
+    @Benchmark
+    public Object writeScreenshot() throws Exception {
+        return ScreenshotWriter.submit(OUTPUT.resolve("shot-" + (sequence++ % 64) + ".png"), png).get();
+    }
+}
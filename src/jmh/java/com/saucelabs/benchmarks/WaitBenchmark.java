@@ -0,0 +1,55 @@
+package com.saucelabs.benchmarks;
+
+import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.utils.WaitEngine;
+import com.saucelabs.framework.utils.WaitUtils;
+import io.appium.java_client.MobileBy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebElement;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 等待的开销：条件立即满足时的WaitUtils调用，以及条件在第N次轮询才满足时WaitEngine的退避轮询
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class WaitBenchmark {
+    private static final By USERNAME = MobileBy.AccessibilityId("test-Username");
+
+    @Param({"1", "4"})
+    public int pollsUntilTrue;
+
+    private WebElement element;
+
+    @Setup(Level.Trial)
+    public void setUp(EndpointState endpoint) {
+        element = DriverManager.getDriver().findElement(USERNAME);
+    }
+
+    @Benchmark
+    public void waitForPresence() {
+        WaitUtils.waitForPresence(USERNAME, 5);
+    }
+
+    @Benchmark
+    public void waitForClickability() {
+        WaitUtils.waitForClickability(element, 5);
+    }
+
+    @Benchmark
+    public Object pollUntilTrue() {
+        int[] polls = new int[1];
+        return WaitEngine.until("benchmark", d -> ++polls[0] >= pollsUntilTrue, 5);
+    }
+}
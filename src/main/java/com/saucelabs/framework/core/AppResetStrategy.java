@@ -0,0 +1,39 @@
+package com.saucelabs.framework.core;
+
+/**
+ * 复用会话时，场景之间恢复应用状态的方式，按代价从低到高排列
+ */
+public enum AppResetStrategy {
+    /** 不做任何重置，保持当前屏幕 */
+    NONE("none"),
+    /** 通过terminate/activate重新启动应用 */
+    RELAUNCH("relaunch"),
+    /** 清除应用数据后重新启动 */
+    CLEAR_DATA("clear"),
+    /** 卸载并重新安装应用 */
+    REINSTALL("reinstall");
+
+    private final String value;
+
+    AppResetStrategy(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 根据配置值解析重置策略
+     * @param value 配置值，例如 "relaunch"
+     * @return 对应的重置策略
+     */
+    public static AppResetStrategy fromValue(String value) {
+        for (AppResetStrategy strategy : values()) {
+            if (strategy.value.equalsIgnoreCase(value.trim())) {
+                return strategy;
+            }
+        }
+        throw new RuntimeException("Unsupported session reset strategy: " + value);
+    }
+}
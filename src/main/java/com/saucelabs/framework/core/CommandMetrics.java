@@ -0,0 +1,99 @@
+package com.saucelabs.framework.core;
+
+import com.saucelabs.framework.utils.LatencyHistogram;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 按名称汇总耗时的直方图：当前场景一份（每个线程独立），整个测试套件一份。
+ * 套件级汇总在JVM退出时写入 target/command-metrics.json。
+ */
+public class CommandMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(CommandMetrics.class);
+    private static final Path SUITE_REPORT = Paths.get("target", "command-metrics.json");
+
+    private static final Map<String, LatencyHistogram> suite = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Map<String, LatencyHistogram>> scenario =
+            ThreadLocal.withInitial(LinkedHashMap::new);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(CommandMetrics::writeSuiteReport, "command-metrics-report"));
+    }
+
+    private CommandMetrics() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 记录一次耗时
+     * @param name 名称，例如 "findElement[accessibility id]" 或 "wait:visibility"
+     * @param nanos 耗时（纳秒）
+     */
+    public static void record(String name, long nanos) {
+        scenario.get().computeIfAbsent(name, k -> new LatencyHistogram()).recordNanos(nanos);
+        suite.computeIfAbsent(name, k -> new LatencyHistogram()).recordNanos(nanos);
+    }
+
+    /**
+     * 开始统计当前线程的新场景
+     */
+    public static void startScenario() {
+        scenario.get().clear();
+    }
+
+    /**
+     * 获取当前线程场景的耗时摘要
+     * @return 按名称排序的摘要（次数、累计、p50/p95/p99、最大值）
+     */
+    public static Map<String, Map<String, Object>> getScenarioSummary() {
+        return summarize(scenario.get());
+    }
+
+    /**
+     * 获取整个测试套件的耗时摘要
+     * @return 按名称排序的摘要
+     */
+    public static Map<String, Map<String, Object>> getSuiteSummary() {
+        return summarize(suite);
+    }
+
+    /**
+     * 将摘要格式化为JSON
+     * @param summary 摘要
+     * @return JSON文本
+     */
+    public static String toJson(Map<String, Map<String, Object>> summary) {
+        return new Json().toJson(summary);
+    }
+
+    private static Map<String, Map<String, Object>> summarize(Map<String, LatencyHistogram> histograms) {
+        Map<String, Map<String, Object>> summary = new TreeMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : histograms.entrySet()) {
+            summary.put(entry.getKey(), entry.getValue().summary());
+        }
+        return summary;
+    }
+
+    private static void writeSuiteReport() {
+        if (suite.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(SUITE_REPORT.getParent());
+            Files.write(SUITE_REPORT, toJson(getSuiteSummary()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Failed to write {}", SUITE_REPORT, e);
+        }
+    }
+}
@@ -3,25 +3,34 @@ package com.saucelabs.framework.core;
 import io.appium.java_client.remote.MobileCapabilityType;
 import org.openqa.selenium.remote.DesiredCapabilities;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
+/**
+ * 框架配置的静态入口。
+ * 配置在类加载时由{@link ConfigurationSnapshot}一次性构建并校验，之后的读取只是查表；
+ * capabilities按平台构建一次，并按设备租约缓存。
+ */
 public class Configuration {
-    private static final Properties properties = new Properties();
-    private static final String ANDROID = "android";
-    private static final String IOS = "ios";
-
-    static {
-        try (InputStream input = Configuration.class.getClassLoader().getResourceAsStream("config.properties")) {
-            if (input != null) {
-                properties.load(input);
-            } else {
-                throw new RuntimeException("Unable to find config.properties");
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to load config.properties", e);
-        }
+    private static final ConfigurationSnapshot snapshot = ConfigurationSnapshot.load();
+    private static final DesiredCapabilities baseCapabilities = buildCapabilities();
+    private static final Map<String, DesiredCapabilities> leaseCapabilities = new ConcurrentHashMap<>();
+    private static volatile Supplier<String> stubServerUrl;
+
+    private Configuration() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 获取完整的配置快照
+     * @return 配置快照
+     */
+    public static ConfigurationSnapshot getSnapshot() {
+        return snapshot;
     }
 
     /**
@@ -29,12 +38,7 @@ public class Configuration {
      * @return 平台: "android" 或 "ios"
      */
     public static String getPlatform() {
-        // 优先使用系统属性，允许通过命令行参数覆盖
-        String platformEnv = System.getProperty("platform");
-        if (platformEnv != null && !platformEnv.isEmpty()) {
-            return platformEnv.toLowerCase();
-        }
-        return properties.getProperty("platform", ANDROID).toLowerCase();
+        return snapshot.getPlatform();
     }
 
     /**
@@ -42,7 +46,7 @@ public class Configuration {
      * @return 如果当前平台是Android则返回true
      */
     public static boolean isAndroid() {
-        return getPlatform().equals(ANDROID);
+        return snapshot.isAndroid();
     }
 
     /**
@@ -50,7 +54,7 @@ public class Configuration {
      * @return 如果当前平台是iOS则返回true
      */
     public static boolean isIOS() {
-        return getPlatform().equals(IOS);
+        return snapshot.isIOS();
     }
 
     /**
@@ -58,14 +62,22 @@ public class Configuration {
      * @return Appium服务器URL
      */
     public static String getAppiumServerUrl() {
-        String platform = getPlatform();
-        if (platform.equals(ANDROID)) {
-            return properties.getProperty("appium.android.url", "http://127.0.0.1:4723");
-        } else if (platform.equals(IOS)) {
-            return properties.getProperty("appium.ios.url", "http://127.0.0.1:4724");
-        } else {
-            throw new RuntimeException("Unsupported platform: " + platform);
+        if (isStubServerEnabled()) {
+            Supplier<String> url = stubServerUrl;
+            if (url == null) {
+                throw new RuntimeException("stub.enabled is set but no stub server has been registered");
+            }
+            return url.get();
         }
+        return snapshot.getString("appium." + getPlatform() + ".url");
+    }
+
+    /**
+     * 注册进程内替身服务器的URL，启用 stub.enabled 时{@link #getAppiumServerUrl()}返回它
+     * @param url URL的提供者，首次需要服务器URL时才调用，可以在其中延迟启动服务器
+     */
+    public static void registerStubServer(Supplier<String> url) {
+        stubServerUrl = url;
     }
 
     /**
@@ -73,21 +85,170 @@ public class Configuration {
      * @return 设备能力配置
      */
     public static DesiredCapabilities getCapabilities() {
+        return new DesiredCapabilities(baseCapabilities);
+    }
+
+    /**
+     * 获取指定设备租约的能力配置，设备和端口使用租约中分配的值，每个租约只构建一次
+     * @param lease 设备租约
+     * @return 设备能力配置
+     */
+    public static DesiredCapabilities getCapabilities(DeviceLease lease) {
+        // 返回副本，调用方修改capabilities不会影响缓存
+        return new DesiredCapabilities(leaseCapabilities.computeIfAbsent(lease.getKey(),
+                key -> buildCapabilities(lease)));
+    }
+
+    private static DesiredCapabilities buildCapabilities(DeviceLease lease) {
+        DesiredCapabilities capabilities = new DesiredCapabilities(baseCapabilities);
+        if (lease.getDeviceName() != null) {
+            capabilities.setCapability(MobileCapabilityType.DEVICE_NAME, lease.getDeviceName());
+        }
+        if (lease.getUdid() != null) {
+            capabilities.setCapability(MobileCapabilityType.UDID, lease.getUdid());
+        }
+        if (lease.getSystemPort() != null) {
+            capabilities.setCapability("systemPort", lease.getSystemPort());
+        }
+        if (lease.getWdaLocalPort() != null) {
+            capabilities.setCapability("wdaLocalPort", lease.getWdaLocalPort());
+        }
+        if (lease.getMjpegServerPort() != null) {
+            capabilities.setCapability("mjpegServerPort", lease.getMjpegServerPort());
+        }
+        return capabilities;
+    }
+
+    /**
+     * 根据配置生成可供租用的设备列表。
+     * 配置了android.devices/ios.devices时，每台设备分配独立的端口，
+     * 并在appium.android.urls/appium.ios.urls中轮流分配服务器；否则只有配置中的单台设备。
+     * @return 设备租约列表
+     */
+    public static List<DeviceLease> getDeviceLeases() {
+        String platform = getPlatform();
+        List<DeviceLease> leases = new ArrayList<>();
+        String deviceList = getString(platform + ".devices");
+
+        if (deviceList == null) {
+            // 单设备模式，保持原有配置
+            if (isAndroid()) {
+                leases.add(new DeviceLease(getString("android.device.name"), null, getAppiumServerUrl(),
+                        snapshot.getInteger("android.systemPort"), null, null));
+            } else {
+                leases.add(new DeviceLease(getString("ios.device.name"), getString("ios.device.udid"),
+                        getAppiumServerUrl(), null, snapshot.getInteger("ios.wdaLocalPort"), null));
+            }
+            return Collections.unmodifiableList(leases);
+        }
+
+        String configuredUrls = getString("appium." + platform + ".urls");
+        String[] urls = isStubServerEnabled() || configuredUrls == null ? new String[] {getAppiumServerUrl()}
+                : configuredUrls.split(",");
+        String[] devices = deviceList.split(",");
+        for (int i = 0; i < devices.length; i++) {
+            String udid = devices[i].trim();
+            String url = urls[i % urls.length].trim();
+            if (isAndroid()) {
+                leases.add(new DeviceLease(udid, udid, url,
+                        getInt("android.systemPort.base") + i,
+                        null,
+                        getInt("android.mjpegServerPort.base") + i));
+            } else {
+                leases.add(new DeviceLease(getString("ios.device.name"), udid, url,
+                        null,
+                        getInt("ios.wdaLocalPort.base") + i,
+                        getInt("ios.mjpegServerPort.base") + i));
+            }
+        }
+        return Collections.unmodifiableList(leases);
+    }
+
+    /**
+     * 获取等待空闲设备的最长时间
+     * @return 超时时间（秒）
+     */
+    public static long getDeviceLeaseTimeoutSeconds() {
+        return getInt("device.lease.timeout.seconds");
+    }
+
+    /**
+     * 获取每台设备创建会话的最多尝试次数
+     * @return 尝试次数
+     */
+    public static int getSessionCreateAttempts() {
+        return getInt("session.create.attempts");
+    }
+
+    /**
+     * 获取创建会话失败后第一次重试前的等待时间
+     * @return 等待时间（毫秒）
+     */
+    public static long getSessionCreateBackoffInitialMillis() {
+        return getInt("session.create.backoff.initial.millis");
+    }
+
+    /**
+     * 获取创建会话重试之间的最长等待时间
+     * @return 等待时间（毫秒）
+     */
+    public static long getSessionCreateBackoffMaxMillis() {
+        return getInt("session.create.backoff.max.millis");
+    }
+
+    /**
+     * 获取创建会话每次重试后等待时间的增长倍数
+     * @return 增长倍数
+     */
+    public static double getSessionCreateBackoffMultiplier() {
+        return getDouble("session.create.backoff.multiplier");
+    }
+
+    /**
+     * 创建会话前是否先请求服务器的 /status
+     * @return 启用探测时返回true
+     */
+    public static boolean isServerStatusProbeEnabled() {
+        return getBoolean("server.status.probe");
+    }
+
+    /**
+     * 获取 /status 探测的连接和读超时时间
+     * @return 超时时间（毫秒）
+     */
+    public static long getServerStatusTimeoutMillis() {
+        return getInt("server.status.timeout.millis");
+    }
+
+    /**
+     * 获取打开服务器熔断器所需的连续失败次数
+     * @return 连续失败次数
+     */
+    public static int getServerBreakerFailureThreshold() {
+        return getInt("server.breaker.failureThreshold");
+    }
+
+    /**
+     * 获取熔断器打开后拒绝该服务器的时间，之后放行一次试探
+     * @return 时间（秒）
+     */
+    public static long getServerBreakerOpenSeconds() {
+        return getInt("server.breaker.openSeconds");
+    }
+
+    private static DesiredCapabilities buildCapabilities() {
         DesiredCapabilities capabilities = new DesiredCapabilities();
 
         // 通用配置
-        capabilities.setCapability("newCommandTimeout", getPropertyAsInt("appium.newCommandTimeout", 60));
-        capabilities.setCapability("noReset", getPropertyAsBoolean("appium.noReset", false));
-        capabilities.setCapability("fullReset", getPropertyAsBoolean("appium.fullReset", false));
-        
+        capabilities.setCapability("newCommandTimeout", getInt("appium.newCommandTimeout"));
+        capabilities.setCapability("noReset", getBoolean("appium.noReset"));
+        capabilities.setCapability("fullReset", getBoolean("appium.fullReset"));
+
         if (isAndroid()) {
             configureAndroidCapabilities(capabilities);
-        } else if (isIOS()) {
-            configureIOSCapabilities(capabilities);
         } else {
-            throw new RuntimeException("Unsupported platform: " + getPlatform());
+            configureIOSCapabilities(capabilities);
         }
-
         return capabilities;
     }
 
@@ -97,32 +258,32 @@ public class Configuration {
      */
     private static void configureAndroidCapabilities(DesiredCapabilities capabilities) {
         capabilities.setCapability(MobileCapabilityType.PLATFORM_NAME, "Android");
-        capabilities.setCapability(MobileCapabilityType.DEVICE_NAME, properties.getProperty("android.device.name"));
+        capabilities.setCapability(MobileCapabilityType.DEVICE_NAME, getString("android.device.name"));
         capabilities.setCapability(MobileCapabilityType.AUTOMATION_NAME, "UiAutomator2");
         
         // Appium 2.x 特定配置
-        capabilities.setCapability("appium:skipServerInstallation", getPropertyAsBoolean("android.skipServerInstallation", false));
-        capabilities.setCapability("appium:skipDeviceInitialization", getPropertyAsBoolean("android.skipDeviceInitialization", false));
+        capabilities.setCapability("appium:skipServerInstallation", getBoolean("android.skipServerInstallation"));
+        capabilities.setCapability("appium:skipDeviceInitialization", getBoolean("android.skipDeviceInitialization"));
         capabilities.setCapability("appium:ignoreHiddenApiPolicyError", true);
         
         // 如果指定了app路径，则安装应用
-        String appPath = properties.getProperty("android.app.path");
-        if (appPath != null && !appPath.isEmpty()) {
+        String appPath = getString("android.app.path");
+        if (appPath != null) {
             capabilities.setCapability(MobileCapabilityType.APP, appPath);
         } else {
             // 否则使用已安装的应用
-            capabilities.setCapability("appPackage", properties.getProperty("android.app.package"));
-            capabilities.setCapability("appActivity", properties.getProperty("android.app.activity"));
+            capabilities.setCapability("appPackage", getString("android.app.package"));
+            capabilities.setCapability("appActivity", getString("android.app.activity"));
         }
         
         // 其他Android特定配置
-        capabilities.setCapability("autoGrantPermissions", getPropertyAsBoolean("android.autoGrantPermissions", true));
-        capabilities.setCapability("unicodeKeyboard", getPropertyAsBoolean("android.unicodeKeyboard", false));
-        capabilities.setCapability("resetKeyboard", getPropertyAsBoolean("android.resetKeyboard", false));
+        capabilities.setCapability("autoGrantPermissions", getBoolean("android.autoGrantPermissions"));
+        capabilities.setCapability("unicodeKeyboard", getBoolean("android.unicodeKeyboard"));
+        capabilities.setCapability("resetKeyboard", getBoolean("android.resetKeyboard"));
         
         // 添加可选的自定义Android配置
-        if (properties.containsKey("android.systemPort")) {
-            capabilities.setCapability("systemPort", getPropertyAsInt("android.systemPort", 8200));
+        if (snapshot.getInteger("android.systemPort") != null) {
+            capabilities.setCapability("systemPort", snapshot.getInteger("android.systemPort"));
         }
     }
 
@@ -132,72 +293,337 @@ public class Configuration {
      */
     private static void configureIOSCapabilities(DesiredCapabilities capabilities) {
         capabilities.setCapability(MobileCapabilityType.PLATFORM_NAME, "iOS");
-        capabilities.setCapability(MobileCapabilityType.DEVICE_NAME, properties.getProperty("ios.device.name"));
-        capabilities.setCapability(MobileCapabilityType.UDID, properties.getProperty("ios.device.udid"));
-        capabilities.setCapability(MobileCapabilityType.PLATFORM_VERSION, properties.getProperty("ios.platform.version"));
+        capabilities.setCapability(MobileCapabilityType.DEVICE_NAME, getString("ios.device.name"));
+        capabilities.setCapability(MobileCapabilityType.UDID, getString("ios.device.udid"));
+        capabilities.setCapability(MobileCapabilityType.PLATFORM_VERSION, getString("ios.platform.version"));
         capabilities.setCapability(MobileCapabilityType.AUTOMATION_NAME, "XCUITest");
         
         // Appium 2.x 特定配置
-        capabilities.setCapability("appium:skipServerInstallation", getPropertyAsBoolean("ios.skipServerInstallation", false));
-        capabilities.setCapability("appium:skipDeviceInitialization", getPropertyAsBoolean("ios.skipDeviceInitialization", false));
+        capabilities.setCapability("appium:skipServerInstallation", getBoolean("ios.skipServerInstallation"));
+        capabilities.setCapability("appium:skipDeviceInitialization", getBoolean("ios.skipDeviceInitialization"));
         capabilities.setCapability("appium:ignoreHiddenApiPolicyError", true);
         
         // 如果指定了app路径，则安装应用
-        String appPath = properties.getProperty("ios.app.path");
-        String bundleId = properties.getProperty("ios.bundle.id");
+        String appPath = getString("ios.app.path");
+        String bundleId = getString("ios.bundle.id");
         
-        if (appPath != null && !appPath.isEmpty()) {
+        if (appPath != null) {
             capabilities.setCapability(MobileCapabilityType.APP, appPath);
-        } else if (bundleId != null && !bundleId.isEmpty()) {
+        } else if (bundleId != null) {
             // 使用已安装的应用
             capabilities.setCapability("bundleId", bundleId);
         }
         
         // 其他iOS特定配置
-        capabilities.setCapability("autoAcceptAlerts", getPropertyAsBoolean("ios.autoAcceptAlerts", true));
-        capabilities.setCapability("useNewWDA", getPropertyAsBoolean("ios.useNewWDA", false));
-        capabilities.setCapability("usePrebuiltWDA", getPropertyAsBoolean("ios.usePrebuiltWDA", false));
-        capabilities.setCapability("showXcodeLog", getPropertyAsBoolean("ios.showXcodeLog", true));
+        capabilities.setCapability("autoAcceptAlerts", getBoolean("ios.autoAcceptAlerts"));
+        capabilities.setCapability("useNewWDA", getBoolean("ios.useNewWDA"));
+        capabilities.setCapability("usePrebuiltWDA", getBoolean("ios.usePrebuiltWDA"));
+        capabilities.setCapability("showXcodeLog", getBoolean("ios.showXcodeLog"));
         
         // 添加可选的自定义iOS配置
-        if (properties.containsKey("ios.webDriverAgentUrl")) {
-            capabilities.setCapability("webDriverAgentUrl", properties.getProperty("ios.webDriverAgentUrl"));
+        if (getString("ios.webDriverAgentUrl") != null) {
+            capabilities.setCapability("webDriverAgentUrl", getString("ios.webDriverAgentUrl"));
         }
         
-        if (properties.containsKey("ios.wdaLocalPort")) {
-            capabilities.setCapability("wdaLocalPort", getPropertyAsInt("ios.wdaLocalPort", 8100));
+        if (snapshot.getInteger("ios.wdaLocalPort") != null) {
+            capabilities.setCapability("wdaLocalPort", snapshot.getInteger("ios.wdaLocalPort"));
         }
     }
 
     /**
-     * 将属性值解析为整数
-     * @param key 属性键
-     * @param defaultValue 默认值
-     * @return 属性值的整数表示，如果无法解析则返回默认值
+     * 是否在场景之间复用Appium会话
+     * @return 如果启用会话池则返回true
      */
-    private static int getPropertyAsInt(String key, int defaultValue) {
-        String value = properties.getProperty(key);
-        if (value == null || value.isEmpty()) {
-            return defaultValue;
-        }
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            return defaultValue;
-        }
+    public static boolean isSessionReuseEnabled() {
+        return getBoolean("session.reuse");
     }
 
     /**
-     * 将属性值解析为布尔值
-     * @param key 属性键
-     * @param defaultValue 默认值
-     * @return 属性值的布尔表示，如果无法解析则返回默认值
+     * 获取会话复用时场景之间的应用重置策略
+     * @return 重置策略
      */
-    private static boolean getPropertyAsBoolean(String key, boolean defaultValue) {
-        String value = properties.getProperty(key);
-        if (value == null || value.isEmpty()) {
-            return defaultValue;
-        }
-        return Boolean.parseBoolean(value);
+    public static AppResetStrategy getSessionResetStrategy() {
+        return snapshot.get("session.reset", AppResetStrategy.class);
+    }
+
+    /**
+     * 获取单个会话最多可被复用的次数
+     * @return 最大复用次数，0表示不限制
+     */
+    public static int getSessionMaxUses() {
+        return getInt("session.maxUses");
+    }
+
+    /**
+     * 是否在场景执行期间为下一个场景预热会话
+     * @return 启用预热时返回true
+     */
+    public static boolean isSessionPrewarmEnabled() {
+        return getBoolean("session.prewarm");
+    }
+
+    /**
+     * 获取同时存在的预热会话的最大数量
+     * @return 最大数量
+     */
+    public static int getSessionPrewarmMax() {
+        return getInt("session.prewarm.max");
+    }
+
+    /**
+     * 获取预热会话未被接管时的存活时间，应小于appium.newCommandTimeout
+     * @return 存活时间（秒）
+     */
+    public static long getSessionPrewarmTtlSeconds() {
+        return getInt("session.prewarm.ttl.seconds");
+    }
+
+    /**
+     * 获取到达前置应用状态时依次尝试的途径，由fixtures包解析
+     * @return 逗号分隔的途径列表，例如 "deep-link,data-restore,ui"
+     */
+    public static String getFixtureRoutes() {
+        return getString("fixture.routes");
+    }
+
+    /**
+     * 获取前置应用状态的深度链接模板，其中 {参数名} 为占位符
+     * @param name 状态名称，例如 "logged-in"
+     * @return 深度链接模板，未配置时返回null
+     */
+    public static String getFixtureDeepLink(String name) {
+        return snapshot.getRaw("fixture.deeplink." + name);
+    }
+
+    /**
+     * 获取应用数据在设备上的路径，用于缓存和恢复前置应用状态
+     * @return 设备上的路径，未配置时返回null，此时不使用数据恢复途径
+     */
+    public static String getFixtureSnapshotPath() {
+        return getString("fixture.snapshot.path");
+    }
+
+    /**
+     * 获取"已登录"前置状态使用的密码
+     * @return 密码
+     */
+    public static String getFixtureLoggedInPassword() {
+        return getString("fixture.logged-in.password");
+    }
+
+    /**
+     * 获取共享步骤前缀的检查点规划文件
+     * @return 规划文件路径，未配置时返回null，此时不使用前缀检查点
+     */
+    public static String getPrefixCheckpointPlan() {
+        return getString("prefix.checkpoints");
+    }
+
+    /**
+     * 是否把页面对象中的XPath编译为UiSelector/class chain，参见XPathCompiler
+     * @return 编译时返回true
+     */
+    public static boolean isXPathCompilationEnabled() {
+        return getBoolean("locator.xpath.compile");
+    }
+
+    /**
+     * 获取被测应用的标识：Android为包名，iOS为bundleId
+     * @return 应用标识，未配置时返回null
+     */
+    public static String getAppId() {
+        return isAndroid() ? getString("android.app.package") : getString("ios.bundle.id");
+    }
+
+    /**
+     * 获取被测应用安装包路径
+     * @return 应用路径，未配置时返回null
+     */
+    public static String getAppPath() {
+        return isAndroid() ? getString("android.app.path") : getString("ios.app.path");
+    }
+
+    /**
+     * 获取等待引擎的初始轮询间隔
+     * @return 初始轮询间隔（毫秒）
+     */
+    public static long getWaitPollingInitialMillis() {
+        return getInt("wait.polling.initial.millis");
+    }
+
+    /**
+     * 获取等待引擎的最大轮询间隔
+     * @return 最大轮询间隔（毫秒）
+     */
+    public static long getWaitPollingMaxMillis() {
+        return getInt("wait.polling.max.millis");
+    }
+
+    /**
+     * 获取等待引擎每次轮询后间隔的增长倍数
+     * @return 增长倍数
+     */
+    public static double getWaitPollingMultiplier() {
+        return getDouble("wait.polling.multiplier");
+    }
+
+    /**
+     * 获取截图写入队列的容量
+     * @return 队列容量
+     */
+    public static int getScreenshotQueueCapacity() {
+        return getInt("screenshot.queue.capacity");
+    }
+
+    /**
+     * 获取截图写入队列已满时的处理方式
+     * @return "block" 阻塞提交线程，或 "drop" 丢弃截图
+     */
+    public static String getScreenshotQueuePolicy() {
+        return getString("screenshot.queue.policy");
+    }
+
+    /**
+     * 获取JVM退出时等待截图写完的最长时间
+     * @return 超时时间（秒）
+     */
+    public static long getScreenshotFlushTimeoutSeconds() {
+        return getInt("screenshot.flush.timeout.seconds");
+    }
+
+    /**
+     * 获取感知哈希去重的阈值：与最近截图的dHash汉明距离不超过此值时视为重复
+     * @return 阈值，负数表示只按内容完全相同去重
+     */
+    public static int getScreenshotDedupThreshold() {
+        return getInt("screenshot.dedup.threshold");
+    }
+
+    /**
+     * 获取报告中截图的最大宽度
+     * @return 最大宽度（像素），0表示不缩小
+     */
+    public static int getScreenshotReportMaxWidth() {
+        return getInt("screenshot.report.maxWidth");
+    }
+
+    /**
+     * 获取报告中截图的编码格式
+     * @return "png" 或 "jpeg"
+     */
+    public static String getScreenshotReportFormat() {
+        return getString("screenshot.report.format");
+    }
+
+    /**
+     * 获取报告中JPEG截图的压缩质量
+     * @return 0到1之间的压缩质量
+     */
+    public static float getScreenshotReportQuality() {
+        return (float) getDouble("screenshot.report.quality");
+    }
+
+    /**
+     * 是否把截图嵌入报告；否则只在报告中记录截图文件的引用
+     * @return 嵌入截图时返回true
+     */
+    public static boolean isScreenshotReportEmbedded() {
+        return getBoolean("screenshot.report.embed");
+    }
+
+    /**
+     * 获取与Appium服务器建立连接的超时时间
+     * @return 超时时间（秒）
+     */
+    public static long getHttpConnectTimeoutSeconds() {
+        return getInt("http.timeout.connect.seconds");
+    }
+
+    /**
+     * 获取创建和删除会话请求的读超时时间
+     * @return 超时时间（秒）
+     */
+    public static long getHttpSessionTimeoutSeconds() {
+        return getInt("http.timeout.session.seconds");
+    }
+
+    /**
+     * 获取普通命令请求的读超时时间
+     * @return 超时时间（秒）
+     */
+    public static long getHttpCommandTimeoutSeconds() {
+        return getInt("http.timeout.command.seconds");
+    }
+
+    /**
+     * 获取每个Appium服务器连接池中保留的空闲连接数
+     * @return 最大空闲连接数
+     */
+    public static int getHttpPoolMaxIdleConnections() {
+        return getInt("http.pool.maxIdle");
+    }
+
+    /**
+     * 获取空闲连接保持存活的时间
+     * @return 保持时间（秒）
+     */
+    public static long getHttpKeepAliveSeconds() {
+        return getInt("http.pool.keepAlive.seconds");
+    }
+
+    /**
+     * 是否请求gzip压缩的响应
+     * @return 启用压缩时返回true
+     */
+    public static boolean isHttpGzipEnabled() {
+        return getBoolean("http.gzip");
+    }
+
+    /**
+     * 是否使用进程内的Appium替身服务器，需要先通过{@link #registerStubServer(Supplier)}注册
+     * @return 启用替身服务器时返回true
+     */
+    public static boolean isStubServerEnabled() {
+        return getBoolean("stub.enabled");
+    }
+
+    /**
+     * 获取替身服务器的端口
+     * @return 端口，0表示随机端口
+     */
+    public static int getStubPort() {
+        return getInt("stub.port");
+    }
+
+    /**
+     * 获取替身服务器为每个请求注入的延迟
+     * @return 延迟（毫秒）
+     */
+    public static long getStubLatencyMillis() {
+        return getInt("stub.latency.millis");
+    }
+
+    /**
+     * 获取替身服务器命令随机失败的概率
+     * @return 0到1之间的概率
+     */
+    public static double getStubFailureRate() {
+        return getDouble("stub.failure.rate");
+    }
+
+    private static String getString(String key) {
+        return snapshot.getString(key);
+    }
+
+    private static int getInt(String key) {
+        return snapshot.getInteger(key);
+    }
+
+    private static double getDouble(String key) {
+        return snapshot.getDouble(key);
+    }
+
+    private static boolean getBoolean(String key) {
+        return snapshot.getBoolean(key);
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,416 @@
+package com.saucelabs.framework.core;
+
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 启动时构建一次的不可变配置。
+ * 按以下顺序叠加，后者覆盖前者：代码中的默认值 &lt; config.properties &lt; config-&lt;config.profile&gt;.properties
+ * &lt; 环境变量（TEST_前缀，例如 TEST_SESSION_MAX_USES 对应 session.maxUses）&lt; 系统属性。
+ * 所有已知配置项在构建时按类型解析，任何非法值都会立即失败，而不是悄悄回退到默认值。
+ */
+public final class ConfigurationSnapshot {
+    static final String ENVIRONMENT_PREFIX = "TEST_";
+
+    private static final Map<String, Setting> SCHEMA = new LinkedHashMap<>();
+    /** 按名称展开、无法逐项列在默认配置中的配置项前缀，例如 fixture.deeplink.&lt;名称&gt; */
+    private static final List<String> OPEN_PREFIXES = Collections.singletonList("fixture.deeplink.");
+
+    static {
+        choice("platform", "android", "android", "ios");
+        string("config.profile", null);
+
+        // Appium
+        string("appium.android.url", "http://127.0.0.1:4723");
+        string("appium.ios.url", "http://127.0.0.1:4724");
+        string("appium.android.urls", null);
+        string("appium.ios.urls", null);
+        integer("appium.newCommandTimeout", 60, 0);
+        bool("appium.noReset", false);
+        bool("appium.fullReset", false);
+
+        // Android
+        string("android.device.name", null);
+        string("android.app.path", null);
+        string("android.app.package", null);
+        string("android.app.activity", null);
+        bool("android.skipServerInstallation", false);
+        bool("android.skipDeviceInitialization", false);
+        bool("android.autoGrantPermissions", true);
+        bool("android.unicodeKeyboard", false);
+        bool("android.resetKeyboard", false);
+        integer("android.systemPort", null, 1);
+        string("android.devices", null);
+        integer("android.systemPort.base", 8200, 1);
+        integer("android.mjpegServerPort.base", 7810, 1);
+
+        // iOS
+        string("ios.device.name", null);
+        string("ios.device.udid", null);
+        string("ios.platform.version", null);
+        string("ios.app.path", null);
+        string("ios.bundle.id", null);
+        bool("ios.skipServerInstallation", false);
+        bool("ios.skipDeviceInitialization", false);
+        bool("ios.autoAcceptAlerts", true);
+        bool("ios.useNewWDA", false);
+        bool("ios.usePrebuiltWDA", false);
+        bool("ios.showXcodeLog", true);
+        string("ios.webDriverAgentUrl", null);
+        integer("ios.wdaLocalPort", null, 1);
+        string("ios.devices", null);
+        integer("ios.wdaLocalPort.base", 8100, 1);
+        integer("ios.mjpegServerPort.base", 9100, 1);
+
+        integer("device.lease.timeout.seconds", 600, 0);
+
+        // Session Creation
+        integer("session.create.attempts", 3, 1);
+        integer("session.create.backoff.initial.millis", 1000, 0);
+        integer("session.create.backoff.max.millis", 10000, 0);
+        decimal("session.create.backoff.multiplier", 2.0, 1.0, Double.MAX_VALUE);
+        bool("server.status.probe", true);
+        integer("server.status.timeout.millis", 5000, 1);
+        integer("server.breaker.failureThreshold", 3, 1);
+        integer("server.breaker.openSeconds", 30, 0);
+
+        // Session Pool
+        bool("session.reuse", false);
+        define("session.reset", "relaunch", AppResetStrategy::fromValue);
+        integer("session.maxUses", 0, 0);
+        bool("session.prewarm", false);
+        integer("session.prewarm.max", 1, 1);
+        integer("session.prewarm.ttl.seconds", 45, 1);
+
+        // App-State Fixtures
+        string("fixture.routes", "deep-link,data-restore,ui");
+        string("fixture.snapshot.path", null);
+        string("fixture.logged-in.password", "secret_sauce");
+        string("prefix.checkpoints", null);
+
+        // Locators
+        bool("locator.xpath.compile", true);
+
+        // Wait Engine
+        integer("wait.polling.initial.millis", 100, 1);
+        integer("wait.polling.max.millis", 1000, 1);
+        decimal("wait.polling.multiplier", 1.5, 1.0, Double.MAX_VALUE);
+
+        // Screenshots
+        integer("screenshot.queue.capacity", 64, 1);
+        choice("screenshot.queue.policy", "block", "block", "drop");
+        integer("screenshot.flush.timeout.seconds", 30, 0);
+        integer("screenshot.dedup.threshold", -1, -1);
+        integer("screenshot.report.maxWidth", 0, 0);
+        choice("screenshot.report.format", "png", "png", "jpeg");
+        decimal("screenshot.report.quality", 0.7, 0.0, 1.0);
+        bool("screenshot.report.embed", false);
+
+        // HTTP Client
+        integer("http.timeout.connect.seconds", 10, 0);
+        integer("http.timeout.session.seconds", 600, 0);
+        integer("http.timeout.command.seconds", 120, 0);
+        integer("http.pool.maxIdle", 5, 0);
+        integer("http.pool.keepAlive.seconds", 300, 0);
+        bool("http.gzip", true);
+
+        // Stub Server
+        bool("stub.enabled", false);
+        integer("stub.port", 0, 0);
+        integer("stub.latency.millis", 0, 0);
+        decimal("stub.failure.rate", 0.0, 0.0, 1.0);
+    }
+
+    private final Map<String, String> raw;
+    private final Map<String, String> sources;
+    private final Map<String, Object> values;
+    private final boolean android;
+
+    private ConfigurationSnapshot(Map<String, String> raw, Map<String, String> sources) {
+        this.raw = Collections.unmodifiableMap(raw);
+        this.sources = Collections.unmodifiableMap(sources);
+
+        Map<String, Object> parsed = new HashMap<>();
+        List<String> errors = new ArrayList<>();
+        for (Setting setting : SCHEMA.values()) {
+            String value = raw.get(setting.key);
+            try {
+                parsed.put(setting.key, value == null ? setting.defaultValue : setting.parser.apply(value));
+            } catch (RuntimeException e) {
+                errors.add("'" + setting.key + "' = '" + value + "' (from " + sources.get(setting.key) + "): "
+                        + e.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new RuntimeException("Invalid configuration:\n  " + String.join("\n  ", errors));
+        }
+        this.values = Collections.unmodifiableMap(parsed);
+        this.android = "android".equals(values.get("platform"));
+    }
+
+    /**
+     * 从类路径上的配置文件、环境变量和系统属性构建配置
+     * @return 配置快照
+     */
+    public static ConfigurationSnapshot load() {
+        return load(System.getenv(), System.getProperties());
+    }
+
+    static ConfigurationSnapshot load(Map<String, String> environment, Properties systemProperties) {
+        Map<String, String> raw = new HashMap<>();
+        Map<String, String> sources = new HashMap<>();
+
+        Properties base = readResource("config.properties");
+        overlay(raw, sources, base, "config.properties");
+
+        // 配置文件的选择本身也可以被环境变量和系统属性覆盖
+        String profile = firstNonEmpty(systemProperties.getProperty("config.profile"),
+                environment.get(environmentName("config.profile")), base.getProperty("config.profile"));
+        if (profile != null) {
+            String resource = "config-" + profile + ".properties";
+            overlay(raw, sources, readResource(resource), resource);
+        }
+
+        Set<String> known = new LinkedHashSet<>(SCHEMA.keySet());
+        known.addAll(raw.keySet());
+        for (String key : systemProperties.stringPropertyNames()) {
+            for (String prefix : OPEN_PREFIXES) {
+                if (key.startsWith(prefix)) {
+                    known.add(key);
+                }
+            }
+        }
+
+        Properties fromEnvironment = new Properties();
+        for (String key : known) {
+            String value = environment.get(environmentName(key));
+            if (value != null) {
+                fromEnvironment.setProperty(key, value);
+            }
+        }
+        overlay(raw, sources, fromEnvironment, "environment");
+
+        // 只接受已知的配置项，java.*、user.* 等JVM属性不会混进来
+        Properties fromSystem = new Properties();
+        for (String key : known) {
+            String value = systemProperties.getProperty(key);
+            if (value != null) {
+                fromSystem.setProperty(key, value);
+            }
+        }
+        overlay(raw, sources, fromSystem, "system properties");
+
+        return new ConfigurationSnapshot(raw, sources);
+    }
+
+    /**
+     * 配置项对应的环境变量名，例如 session.maxUses 对应 TEST_SESSION_MAX_USES
+     * @param key 配置项
+     * @return 环境变量名
+     */
+    static String environmentName(String key) {
+        return ENVIRONMENT_PREFIX + key.replaceAll("([a-z0-9])([A-Z])", "$1_$2")
+                .replace('.', '_').toUpperCase(Locale.ROOT);
+    }
+
+    public String getPlatform() {
+        return (String) values.get("platform");
+    }
+
+    public boolean isAndroid() {
+        return android;
+    }
+
+    public boolean isIOS() {
+        return !android;
+    }
+
+    /**
+     * 获取字符串配置项
+     * @param key 配置项
+     * @return 配置值，未配置且没有默认值时返回null
+     */
+    public String getString(String key) {
+        return (String) typed(key);
+    }
+
+    /**
+     * 获取整数配置项
+     * @param key 配置项
+     * @return 配置值，未配置且没有默认值时返回null
+     */
+    public Integer getInteger(String key) {
+        return (Integer) typed(key);
+    }
+
+    public double getDouble(String key) {
+        return (Double) typed(key);
+    }
+
+    public boolean getBoolean(String key) {
+        return (Boolean) typed(key);
+    }
+
+    /**
+     * 获取解析后的配置值，例如 session.reset 对应的{@link AppResetStrategy}
+     * @param key 配置项
+     * @param type 值的类型
+     * @return 配置值
+     */
+    public <T> T get(String key, Class<T> type) {
+        return type.cast(typed(key));
+    }
+
+    /**
+     * 获取未在默认配置中定义的原始配置值
+     * @param key 配置项
+     * @return 原始字符串，未配置时返回null
+     */
+    public String getRaw(String key) {
+        return raw.get(key);
+    }
+
+    /**
+     * 获取所有被显式配置过的配置项，包括未在默认配置中定义的项
+     * @return 配置项
+     */
+    public Set<String> getKeys() {
+        return raw.keySet();
+    }
+
+    /**
+     * 获取配置值的来源，用于排查配置被哪一层覆盖
+     * @param key 配置项
+     * @return 来源，例如 "config.properties" 或 "system properties"；使用默认值时返回 "default"
+     */
+    public String getSource(String key) {
+        return sources.getOrDefault(key, "default");
+    }
+
+    private Object typed(String key) {
+        if (!SCHEMA.containsKey(key)) {
+            throw new IllegalArgumentException("Unknown configuration key: " + key);
+        }
+        return values.get(key);
+    }
+
+    private static void overlay(Map<String, String> raw, Map<String, String> sources, Properties layer, String source) {
+        for (String key : layer.stringPropertyNames()) {
+            String value = layer.getProperty(key).trim();
+            // 空值等同于未配置，保留下层的值
+            if (!value.isEmpty()) {
+                raw.put(key, value);
+                sources.put(key, source);
+            }
+        }
+    }
+
+    private static Properties readResource(String resource) {
+        Properties properties = new Properties();
+        try (InputStream input = ConfigurationSnapshot.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input != null) {
+                properties.load(input);
+            } else {
+                throw new RuntimeException("Unable to find " + resource);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load " + resource, e);
+        }
+        return properties;
+    }
+
+    private static String firstNonEmpty(String... values) {
+        for (String value : values) {
+            if (value != null && !value.trim().isEmpty()) {
+                return value.trim();
+            }
+        }
+        return null;
+    }
+
+    private static void define(String key, Object defaultValue, Function<String, Object> parser) {
+        SCHEMA.put(key, new Setting(key, defaultValue, parser));
+    }
+
+    private static void string(String key, String defaultValue) {
+        define(key, defaultValue, value -> value);
+    }
+
+    private static void choice(String key, String defaultValue, String... choices) {
+        List<String> allowed = Arrays.asList(choices);
+        define(key, defaultValue, value -> {
+            String normalized = value.toLowerCase(Locale.ROOT);
+            if (!allowed.contains(normalized)) {
+                throw new IllegalArgumentException("expected one of " + allowed);
+            }
+            return normalized;
+        });
+    }
+
+    private static void bool(String key, boolean defaultValue) {
+        define(key, defaultValue, value -> {
+            if ("true".equalsIgnoreCase(value)) {
+                return Boolean.TRUE;
+            }
+            if ("false".equalsIgnoreCase(value)) {
+                return Boolean.FALSE;
+            }
+            throw new IllegalArgumentException("expected true or false");
+        });
+    }
+
+    private static void integer(String key, Integer defaultValue, int min) {
+        define(key, defaultValue, value -> {
+            int parsed;
+            try {
+                parsed = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("expected an integer");
+            }
+            if (parsed < min) {
+                throw new IllegalArgumentException("expected an integer >= " + min);
+            }
+            return parsed;
+        });
+    }
+
+    private static void decimal(String key, double defaultValue, double min, double max) {
+        define(key, defaultValue, value -> {
+            double parsed;
+            try {
+                parsed = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("expected a number");
+            }
+            if (parsed < min || parsed > max) {
+                throw new IllegalArgumentException("expected a number between " + min + " and " + max);
+            }
+            return parsed;
+        });
+    }
+
+    private static class Setting {
+        private final String key;
+        private final Object defaultValue;
+        private final Function<String, Object> parser;
+
+        private Setting(String key, Object defaultValue, Function<String, Object> parser) {
+            this.key = key;
+            this.defaultValue = defaultValue;
+            this.parser = parser;
+        }
+    }
+}
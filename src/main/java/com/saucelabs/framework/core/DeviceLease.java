@@ -0,0 +1,72 @@
+package com.saucelabs.framework.core;
+
+/**
+ * 分配给单个工作线程的设备及其独占端口和Appium服务器
+ */
+public class DeviceLease {
+    private final String deviceName;
+    private final String udid;
+    private final String serverUrl;
+    private final Integer systemPort;
+    private final Integer wdaLocalPort;
+    private final Integer mjpegServerPort;
+
+    DeviceLease(String deviceName, String udid, String serverUrl,
+                Integer systemPort, Integer wdaLocalPort, Integer mjpegServerPort) {
+        this.deviceName = deviceName;
+        this.udid = udid;
+        this.serverUrl = serverUrl;
+        this.systemPort = systemPort;
+        this.wdaLocalPort = wdaLocalPort;
+        this.mjpegServerPort = mjpegServerPort;
+    }
+
+    public String getDeviceName() {
+        return deviceName;
+    }
+
+    /**
+     * @return 设备UDID，单设备模式下可能为null
+     */
+    public String getUdid() {
+        return udid;
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    /**
+     * @return UiAutomator2的systemPort，未分配时为null
+     */
+    public Integer getSystemPort() {
+        return systemPort;
+    }
+
+    /**
+     * @return WebDriverAgent的本地端口，未分配时为null
+     */
+    public Integer getWdaLocalPort() {
+        return wdaLocalPort;
+    }
+
+    /**
+     * @return MJPEG截屏服务端口，未分配时为null
+     */
+    public Integer getMjpegServerPort() {
+        return mjpegServerPort;
+    }
+
+    /**
+     * 用于区分会话池中不同设备会话的key
+     * @return 服务器与设备组成的key
+     */
+    public String getKey() {
+        return serverUrl + "#" + (udid != null ? udid : deviceName);
+    }
+
+    @Override
+    public String toString() {
+        return "DeviceLease{" + getKey() + "}";
+    }
+}
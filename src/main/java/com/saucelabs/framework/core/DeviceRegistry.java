@@ -0,0 +1,113 @@
+package com.saucelabs.framework.core;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 将设备、端口和Appium服务器租给并行运行的工作线程。
+ * 所有设备都被占用时，lease()会按先来先得的顺序阻塞等待。
+ * 服务器熔断器打开时跳过其上的设备；所有服务器都熔断时立即失败，参见{@link ServerHealth}。
+ */
+public class DeviceRegistry {
+    private static final Logger logger = LoggerFactory.getLogger(DeviceRegistry.class);
+
+    private static final long POLL_SLICE_MILLIS = 250;
+
+    private static volatile BlockingQueue<DeviceLease> available;
+    private static volatile Set<String> serverUrls;
+
+    private DeviceRegistry() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 租用一台空闲设备，必要时等待其他线程归还
+     * @return 设备租约
+     */
+    public static DeviceLease lease() {
+        long timeoutSeconds = Configuration.getDeviceLeaseTimeoutSeconds();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        BlockingQueue<DeviceLease> queue = getAvailable();
+        try {
+            while (true) {
+                if (ServerHealth.allUnavailable(serverUrls)) {
+                    throw new RuntimeException("Circuit breakers are open for all Appium servers " + serverUrls);
+                }
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new RuntimeException("No device became available within " + timeoutSeconds + " seconds");
+                }
+                // 分段等待，以便在等待期间发现所有服务器都已熔断
+                DeviceLease lease = queue.poll(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(POLL_SLICE_MILLIS)),
+                        TimeUnit.NANOSECONDS);
+                if (lease == null) {
+                    continue;
+                }
+                if (ServerHealth.isAvailable(lease.getServerUrl())) {
+                    logger.info("Leased {} to thread {}", lease, Thread.currentThread().getName());
+                    return lease;
+                }
+                // 服务器已熔断，把设备放回队尾，等待健康服务器上的设备
+                queue.offer(lease);
+                Thread.sleep(POLL_SLICE_MILLIS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for a device", e);
+        }
+    }
+
+    /**
+     * 不等待地租用一台空闲设备，跳过熔断服务器上的设备
+     * @return 设备租约，没有空闲设备时返回null
+     */
+    public static DeviceLease tryLease() {
+        BlockingQueue<DeviceLease> queue = getAvailable();
+        DeviceLease lease = queue.poll();
+        if (lease == null) {
+            return null;
+        }
+        if (!ServerHealth.isAvailable(lease.getServerUrl())) {
+            queue.offer(lease);
+            return null;
+        }
+        logger.info("Leased {} to thread {}", lease, Thread.currentThread().getName());
+        return lease;
+    }
+
+    /**
+     * 归还设备租约
+     * @param lease 要归还的租约
+     */
+    public static void release(DeviceLease lease) {
+        if (lease != null && getAvailable().offer(lease)) {
+            logger.info("Released {}", lease);
+        }
+    }
+
+    private static BlockingQueue<DeviceLease> getAvailable() {
+        if (available == null) {
+            synchronized (DeviceRegistry.class) {
+                if (available == null) {
+                    List<DeviceLease> leases = Configuration.getDeviceLeases();
+                    Set<String> urls = new LinkedHashSet<>();
+                    for (DeviceLease lease : leases) {
+                        urls.add(lease.getServerUrl());
+                    }
+                    serverUrls = Collections.unmodifiableSet(urls);
+                    BlockingQueue<DeviceLease> queue = new ArrayBlockingQueue<>(leases.size(), true, leases);
+                    available = queue;
+                }
+            }
+        }
+        return available;
+    }
+}
@@ -8,10 +8,22 @@ import org.openqa.selenium.remote.DesiredCapabilities;
 
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 
 public class DriverManager {
     private static final ThreadLocal<AppiumDriver<WebElement>> driver = new ThreadLocal<>();
+    private static final ThreadLocal<DeviceLease> deviceLease = new ThreadLocal<>();
+    private static final ThreadLocal<String> sharedScope = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> sessionContinued = ThreadLocal.withInitial(() -> Boolean.FALSE);
+    // 场景之间保留的共享会话，JVM退出时仍未归还的会话由关闭钩子退出
+    private static final Set<AppiumDriver<WebElement>> keptDrivers = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DriverManager::quitKeptDrivers, "kept-driver-shutdown"));
+    }
 
     private DriverManager() {
         // Private constructor to prevent instantiation
@@ -25,8 +37,191 @@ public class DriverManager {
     }
 
     public static void initializeDriver() {
-        DesiredCapabilities capabilities = Configuration.getCapabilities();
-        String appiumServerUrl = Configuration.getAppiumServerUrl();
+        if (adoptPrewarmedSession()) {
+            return;
+        }
+        DeviceLease lease = leaseDevice();
+        try {
+            driver.set(createDriver(lease));
+        } catch (RuntimeException e) {
+            releaseDevice();
+            throw e;
+        }
+    }
+
+    /**
+     * 开始一个场景。scope不为null时，如果当前线程保留着同一scope上一个场景的会话，则直接继续使用，
+     * 只由场景自己声明的轻量重置恢复界面；否则归还保留的会话并按acquireDriver获取新的会话
+     * @param scope 共享会话的范围，例如特性文件的URI；null表示不共享
+     */
+    public static void beginScenario(String scope) {
+        AppiumDriver<WebElement> kept = driver.get();
+        if (kept != null) {
+            keptDrivers.remove(kept);
+        }
+        if (scope != null && scope.equals(sharedScope.get()) && kept != null) {
+            sessionContinued.set(Boolean.TRUE);
+            return;
+        }
+        sessionContinued.set(Boolean.FALSE);
+        if (kept != null) {
+            releaseDriver();
+        }
+        if (scope == null) {
+            sharedScope.remove();
+        } else {
+            sharedScope.set(scope);
+        }
+        acquireDriver();
+    }
+
+    /**
+     * 结束一个场景。共享范围内的场景通过时保留会话给下一个场景；
+     * 场景失败或不共享时按releaseDriver归还会话，下一个场景会得到完整重置的会话
+     * @param failed 场景是否失败
+     */
+    public static void endScenario(boolean failed) {
+        AppiumDriver<WebElement> current = driver.get();
+        if (sharedScope.get() != null && !failed && current != null) {
+            keptDrivers.add(current);
+            return;
+        }
+        sharedScope.remove();
+        releaseDriver();
+    }
+
+    /**
+     * 当前场景是否继续使用了上一个场景保留的共享会话
+     * @return 继续使用时返回true，此时场景需要自行做轻量的界面重置
+     */
+    public static boolean isSessionContinued() {
+        return sessionContinued.get();
+    }
+
+    /**
+     * 按指定策略重置当前会话中的应用，例如在轻量重置无法回到起始界面时重新启动应用
+     * @param resetStrategy 重置策略
+     */
+    public static void resetApp(AppResetStrategy resetStrategy) {
+        SessionPool.resetApp(getDriver(), resetStrategy);
+    }
+
+    /**
+     * 获取当前会话中被测应用的标识：优先使用配置，否则取会话capabilities中的包名或bundleId
+     * @return 应用标识，无法确定时返回null
+     */
+    public static String getAppId() {
+        return SessionPool.resolveAppId(getDriver());
+    }
+
+    /**
+     * 获取当前线程租用的设备
+     * @return 设备租约，未租用时为null
+     */
+    public static DeviceLease getDeviceLease() {
+        return deviceLease.get();
+    }
+
+    /**
+     * 从会话池借出driver；未启用会话复用时与initializeDriver相同
+     */
+    public static void acquireDriver() {
+        if (!Configuration.isSessionReuseEnabled()) {
+            initializeDriver();
+            return;
+        }
+        long start = System.nanoTime();
+        if (adoptPrewarmedSession()) {
+            CommandMetrics.record("session:acquire", System.nanoTime() - start);
+            return;
+        }
+        DeviceLease lease = leaseDevice();
+        try {
+            driver.set(SessionPool.acquire(lease.getKey(), Configuration.getSessionResetStrategy(),
+                    () -> createDriver(lease)));
+        } catch (RuntimeException e) {
+            releaseDevice();
+            throw e;
+        } finally {
+            CommandMetrics.record("session:acquire", System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * 将当前线程的driver归还到会话池；未启用会话复用时与quitDriver相同
+     */
+    public static void releaseDriver() {
+        if (!Configuration.isSessionReuseEnabled()) {
+            quitDriver();
+            return;
+        }
+        if (driver.get() != null) {
+            try {
+                SessionPool.release(driver.get());
+            } finally {
+                driver.remove();
+                releaseDevice();
+            }
+        }
+    }
+
+    /**
+     * 在后台为下一个场景预热会话，需要有一台空闲设备；未启用预热时不做任何事。
+     * 启用会话复用时预热的是从会话池借出并重置好的会话，未被接管时放回会话池
+     */
+    public static void prewarmSession() {
+        if (!Configuration.isSessionPrewarmEnabled()) {
+            return;
+        }
+        if (Configuration.isSessionReuseEnabled()) {
+            SessionPrewarmer.prewarm(lease -> SessionPool.acquire(lease.getKey(),
+                    Configuration.getSessionResetStrategy(), () -> createDriver(lease)), SessionPool::release);
+        } else {
+            SessionPrewarmer.prewarm(DriverManager::createDriver, AppiumDriver::quit);
+        }
+    }
+
+    private static void quitKeptDrivers() {
+        for (AppiumDriver<WebElement> kept : keptDrivers) {
+            try {
+                kept.quit();
+            } catch (Exception e) {
+                // 忽略关闭会话时的异常
+            }
+        }
+    }
+
+    private static boolean adoptPrewarmedSession() {
+        if (!Configuration.isSessionPrewarmEnabled() || deviceLease.get() != null) {
+            return false;
+        }
+        SessionPrewarmer.PrewarmedSession prewarmed = SessionPrewarmer.take();
+        if (prewarmed == null) {
+            return false;
+        }
+        deviceLease.set(prewarmed.getLease());
+        driver.set(prewarmed.getDriver());
+        return true;
+    }
+
+    private static DeviceLease leaseDevice() {
+        if (deviceLease.get() == null) {
+            deviceLease.set(DeviceRegistry.lease());
+        }
+        return deviceLease.get();
+    }
+
+    private static void releaseDevice() {
+        DeviceLease lease = deviceLease.get();
+        if (lease != null) {
+            deviceLease.remove();
+            DeviceRegistry.release(lease);
+        }
+    }
+
+    private static AppiumDriver<WebElement> createDriver(DeviceLease lease) {
+        DesiredCapabilities capabilities = Configuration.getCapabilities(lease);
+        String appiumServerUrl = lease.getServerUrl();
         URL serverUrl;
         
         try {
@@ -36,57 +231,91 @@ public class DriverManager {
         }
         
         // 对于Appium 2.x，URL中不需要/wd/hub
-        // 添加重试机制以应对连接问题
-        int maxRetries = 3;
-        int retryCount = 0;
+        // 先探测服务器状态，失败后按指数退避加随机抖动重试；服务器熔断时立即失败
+        int maxAttempts = Configuration.getSessionCreateAttempts();
+        long backoffMillis = Configuration.getSessionCreateBackoffInitialMillis();
         Exception lastException = null;
-        
-        while (retryCount < maxRetries) {
+
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            if (!ServerHealth.tryAcquire(appiumServerUrl)) {
+                throw new RuntimeException("Circuit breaker for Appium server " + appiumServerUrl
+                        + " is open or already running a trial session, not creating a session", lastException);
+            }
+            long start = System.nanoTime();
             try {
+                if (Configuration.isServerStatusProbeEnabled() && !ServerHealth.probe(appiumServerUrl)) {
+                    throw new RuntimeException("Appium server " + appiumServerUrl + " failed its /status check");
+                }
+                AppiumDriver<WebElement> newDriver;
+                // 每个命令都经过计时的执行器，耗时汇总到CommandMetrics
                 if (Configuration.isAndroid()) {
-                    driver.set(new AndroidDriver<WebElement>(serverUrl, capabilities));
+                    newDriver = new AndroidDriver<WebElement>(new InstrumentedCommandExecutor(serverUrl), capabilities);
                 } else if (Configuration.isIOS()) {
-                    driver.set(new IOSDriver<WebElement>(serverUrl, capabilities));
+                    newDriver = new IOSDriver<WebElement>(new InstrumentedCommandExecutor(serverUrl), capabilities);
                 } else {
                     throw new RuntimeException("Unsupported platform: " + Configuration.getPlatform());
                 }
-                
-                configureDriver();
-                break; // 成功创建driver，退出循环
+
+                try {
+                    configureDriver(newDriver);
+                } catch (RuntimeException e) {
+                    // 会话已在服务器上创建，重试前先关闭，避免占住设备
+                    try {
+                        newDriver.quit();
+                    } catch (RuntimeException quitException) {
+                        e.addSuppressed(quitException);
+                    }
+                    throw e;
+                }
+                ServerHealth.recordSuccess(appiumServerUrl);
+                return newDriver;
             } catch (Exception e) {
                 lastException = e;
-                retryCount++;
-                System.out.println("Failed to initialize driver, attempt " + retryCount + 
-                                   " of " + maxRetries + ": " + e.getMessage());
-                // 等待一段时间后重试
+                ServerHealth.recordFailure(appiumServerUrl);
+                System.out.println("Failed to initialize driver, attempt " + attempt +
+                                   " of " + maxAttempts + ": " + e.getMessage());
+            } finally {
+                CommandMetrics.record("session:create", System.nanoTime() - start);
+            }
+
+            if (attempt < maxAttempts) {
+                ServerHealth.recordRetry(appiumServerUrl);
+                // 随机抖动避免多个工作线程同时重试同一台服务器
+                long delay = backoffMillis / 2 + ThreadLocalRandom.current().nextLong(backoffMillis / 2 + 1);
                 try {
-                    Thread.sleep(1000);
+                    Thread.sleep(delay);
                 } catch (InterruptedException ie) {
                     Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while retrying driver initialization", lastException);
                 }
+                backoffMillis = Math.min(Configuration.getSessionCreateBackoffMaxMillis(),
+                        (long) (backoffMillis * Configuration.getSessionCreateBackoffMultiplier()));
             }
         }
-        
-        if (driver.get() == null && lastException != null) {
-            throw new RuntimeException("Failed to initialize driver after " + 
-                                      maxRetries + " attempts", lastException);
-        }
+
+        throw new RuntimeException("Failed to initialize driver after " +
+                                  maxAttempts + " attempts", lastException);
     }
 
-    private static void configureDriver() {
-        // 使用Java 8兼容的方式设置等待
-        getDriver().manage().timeouts().implicitlyWait(10, TimeUnit.SECONDS);
+    private static void configureDriver(AppiumDriver<WebElement> newDriver) {
+        // 隐式等待固定为0，所有等待由WaitEngine的显式轮询完成，避免两种等待叠加
+        newDriver.manage().timeouts().implicitlyWait(0, TimeUnit.SECONDS);
     }
 
     public static void quitDriver() {
         if (driver.get() != null) {
             try {
-                driver.get().quit();
+                if (Configuration.isSessionReuseEnabled()) {
+                    SessionPool.invalidate(driver.get());
+                } else {
+                    driver.get().quit();
+                }
             } catch (Exception e) {
                 // 忽略关闭会话时的异常
                 System.out.println("Warning: Exception while quitting driver: " + e.getMessage());
             } finally {
                 driver.remove();
+                releaseDevice();
             }
         }
     }
@@ -0,0 +1,38 @@
+package com.saucelabs.framework.core;
+
+import io.appium.java_client.MobileCommand;
+import io.appium.java_client.remote.AppiumCommandExecutor;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.Response;
+
+import java.net.URL;
+
+/**
+ * 为每个WebDriver命令计时的命令执行器。
+ * 按命令名称记录到{@link CommandMetrics}，查找元素的命令附带定位策略，例如 "findElements[accessibility id]"。
+ * 非只读命令同时记录到{@link UiMutations}，使该会话的页面快照失效。
+ */
+public class InstrumentedCommandExecutor extends AppiumCommandExecutor {
+
+    public InstrumentedCommandExecutor(URL serverUrl) {
+        super(MobileCommand.commandRepository, serverUrl, TunedHttpClientFactory.getInstance());
+    }
+
+    @Override
+    public Response execute(Command command) throws WebDriverException {
+        long start = System.nanoTime();
+        try {
+            return super.execute(command);
+        } finally {
+            CommandMetrics.record(metricName(command), System.nanoTime() - start);
+            // 失败的命令也可能已经改变了界面
+            UiMutations.executed(command);
+        }
+    }
+
+    private static String metricName(Command command) {
+        Object using = command.getParameters() == null ? null : command.getParameters().get("using");
+        return using == null ? command.getName() : command.getName() + "[" + using + "]";
+    }
+}
@@ -0,0 +1,259 @@
+package com.saucelabs.framework.core;
+
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个Appium服务器的健康状态和熔断器。
+ * 创建会话前先请求服务器的 /status；连续失败达到阈值后熔断器打开，
+ * 打开期间直接拒绝该服务器上的会话创建，冷却时间过后只放行一个调用方试探（半开），
+ * 试探进行中其他调用方仍视该服务器不可用，试探成功则关闭，失败则重新打开。
+ * 统计信息在JVM退出时写入 target/server-health.json。
+ */
+public class ServerHealth {
+    private static final Logger logger = LoggerFactory.getLogger(ServerHealth.class);
+    private static final Path REPORT = Paths.get("target", "server-health.json");
+
+    private static final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ServerHealth::writeReport, "server-health-report"));
+    }
+
+    private ServerHealth() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 服务器当前是否接受新会话：熔断器关闭，或冷却时间已过且没有正在进行的试探。
+     * 只用于判断，不占用试探名额；真正创建会话前调用{@link #tryAcquire(String)}
+     * @param serverUrl Appium服务器URL
+     * @return 可以尝试创建会话时返回true
+     */
+    public static boolean isAvailable(String serverUrl) {
+        return breaker(serverUrl).isAvailable();
+    }
+
+    /**
+     * 申请在服务器上创建一次会话。熔断器半开时只有第一个调用方获准试探，
+     * 之后必须调用{@link #recordSuccess(String)}或{@link #recordFailure(String)}结束试探
+     * @param serverUrl Appium服务器URL
+     * @return 获准创建会话时返回true
+     */
+    public static boolean tryAcquire(String serverUrl) {
+        return breaker(serverUrl).tryAcquire();
+    }
+
+    /**
+     * 所有服务器的熔断器是否都处于打开状态
+     * @param serverUrls 服务器URL
+     * @return 全部不可用时返回true
+     */
+    public static boolean allUnavailable(Collection<String> serverUrls) {
+        for (String serverUrl : serverUrls) {
+            if (isAvailable(serverUrl)) {
+                return false;
+            }
+        }
+        return !serverUrls.isEmpty();
+    }
+
+    /**
+     * 请求服务器的 /status，服务器明确返回 ready=false 或请求失败时视为不健康
+     * @param serverUrl Appium服务器URL
+     * @return 服务器健康时返回true
+     */
+    public static boolean probe(String serverUrl) {
+        breaker(serverUrl).recordProbe();
+        HttpURLConnection connection = null;
+        try {
+            // 探测请求不经过会话的连接池，使用独立的短超时
+            connection = (HttpURLConnection) new URL(stripTrailingSlash(serverUrl) + "/status").openConnection();
+            int timeout = (int) Configuration.getServerStatusTimeoutMillis();
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            int status = connection.getResponseCode();
+            if (status != 200) {
+                logger.warn("Appium server {} /status returned HTTP {}", serverUrl, status);
+                return false;
+            }
+            Object value;
+            try (InputStream input = connection.getInputStream();
+                 Reader reader = new InputStreamReader(input, StandardCharsets.UTF_8)) {
+                Map<?, ?> body = new Json().newInput(reader).read(Map.class);
+                value = body.get("value");
+            }
+            if (value instanceof Map && Boolean.FALSE.equals(((Map<?, ?>) value).get("ready"))) {
+                logger.warn("Appium server {} is not ready: {}", serverUrl, value);
+                return false;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Appium server {} /status failed: {}", serverUrl, e.toString());
+            return false;
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * 记录一次成功的会话创建，关闭熔断器
+     * @param serverUrl Appium服务器URL
+     */
+    public static void recordSuccess(String serverUrl) {
+        breaker(serverUrl).recordSuccess();
+    }
+
+    /**
+     * 记录一次失败的会话创建（包括 /status 探测失败），连续失败达到阈值时打开熔断器
+     * @param serverUrl Appium服务器URL
+     */
+    public static void recordFailure(String serverUrl) {
+        breaker(serverUrl).recordFailure();
+    }
+
+    /**
+     * 记录一次会话创建的重试
+     * @param serverUrl Appium服务器URL
+     */
+    public static void recordRetry(String serverUrl) {
+        breaker(serverUrl).recordRetry();
+    }
+
+    /**
+     * 获取每个服务器的熔断器状态和重试统计
+     * @return 按服务器URL排序的统计
+     */
+    public static Map<String, Map<String, Object>> getStatistics() {
+        Map<String, Map<String, Object>> statistics = new TreeMap<>();
+        for (Map.Entry<String, Breaker> entry : breakers.entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().statistics());
+        }
+        return statistics;
+    }
+
+    private static Breaker breaker(String serverUrl) {
+        return breakers.computeIfAbsent(serverUrl, Breaker::new);
+    }
+
+    private static String stripTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    private static void writeReport() {
+        if (breakers.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(REPORT.getParent());
+            Files.write(REPORT, new Json().toJson(getStatistics()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Failed to write {}", REPORT, e);
+        }
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static class Breaker {
+        private final String serverUrl;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAtNanos;
+        private boolean trialInFlight;
+        private long successes;
+        private long failures;
+        private long opens;
+        private long probes;
+        private long retries;
+
+        private Breaker(String serverUrl) {
+            this.serverUrl = serverUrl;
+        }
+
+        synchronized boolean isAvailable() {
+            if (state == State.OPEN && System.nanoTime() - openedAtNanos
+                    >= TimeUnit.SECONDS.toNanos(Configuration.getServerBreakerOpenSeconds())) {
+                state = State.HALF_OPEN;
+                logger.info("Circuit for {} is half-open, allowing one trial session", serverUrl);
+            }
+            return state == State.CLOSED || (state == State.HALF_OPEN && !trialInFlight);
+        }
+
+        synchronized boolean tryAcquire() {
+            if (!isAvailable()) {
+                return false;
+            }
+            if (state == State.HALF_OPEN) {
+                trialInFlight = true;
+                logger.info("Admitting a trial session on {}", serverUrl);
+            }
+            return true;
+        }
+
+        synchronized void recordSuccess() {
+            successes++;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+            if (state != State.CLOSED) {
+                logger.info("Circuit for {} closed", serverUrl);
+            }
+            state = State.CLOSED;
+        }
+
+        synchronized void recordProbe() {
+            probes++;
+        }
+
+        synchronized void recordRetry() {
+            retries++;
+        }
+
+        synchronized void recordFailure() {
+            failures++;
+            consecutiveFailures++;
+            trialInFlight = false;
+            if (state == State.HALF_OPEN
+                    || (state == State.CLOSED && consecutiveFailures >= Configuration.getServerBreakerFailureThreshold())) {
+                state = State.OPEN;
+                openedAtNanos = System.nanoTime();
+                opens++;
+                logger.warn("Circuit for {} opened after {} consecutive failures", serverUrl, consecutiveFailures);
+            }
+        }
+
+        synchronized Map<String, Object> statistics() {
+            Map<String, Object> statistics = new LinkedHashMap<>();
+            statistics.put("state", state.name());
+            statistics.put("trialInFlight", trialInFlight);
+            statistics.put("consecutiveFailures", consecutiveFailures);
+            statistics.put("successes", successes);
+            statistics.put("failures", failures);
+            statistics.put("retries", retries);
+            statistics.put("probes", probes);
+            statistics.put("opens", opens);
+            return statistics;
+        }
+    }
+}
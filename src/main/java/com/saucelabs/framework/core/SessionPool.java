@@ -0,0 +1,212 @@
+package com.saucelabs.framework.core;
+
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 在场景之间保持Appium会话存活的会话池。
+ * 会话按key（服务器与设备）归还和借出，借出时按配置的重置策略恢复应用状态，
+ * 只有在会话不健康或重置失败时才重新创建。
+ */
+public class SessionPool {
+    private static final Logger logger = LoggerFactory.getLogger(SessionPool.class);
+
+    private static final Map<String, Deque<PooledSession>> idleSessions = new HashMap<>();
+    private static final Map<AppiumDriver<WebElement>, PooledSession> activeSessions =
+            Collections.synchronizedMap(new IdentityHashMap<>());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SessionPool::shutdown, "session-pool-shutdown"));
+    }
+
+    private SessionPool() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 借出一个会话：优先复用池中健康的会话，否则通过factory新建
+     * @param key 会话key，同一key下的会话可以互相替换
+     * @param resetStrategy 复用会话前的应用重置策略
+     * @param factory 新建会话的方法
+     * @return 可直接使用的driver
+     */
+    public static AppiumDriver<WebElement> acquire(String key, AppResetStrategy resetStrategy,
+                                                   Supplier<AppiumDriver<WebElement>> factory) {
+        PooledSession session;
+        while ((session = pollIdle(key)) != null) {
+            if (prepareForReuse(session, resetStrategy)) {
+                session.uses++;
+                activeSessions.put(session.driver, session);
+                logger.info("Reusing session {} (use #{})", session.driver.getSessionId(), session.uses);
+                return session.driver;
+            }
+            discard(session);
+        }
+
+        session = new PooledSession(key, factory.get());
+        session.uses = 1;
+        activeSessions.put(session.driver, session);
+        logger.info("Created new pooled session {}", session.driver.getSessionId());
+        return session.driver;
+    }
+
+    /**
+     * 归还会话，供后续场景复用
+     * @param driver 要归还的driver
+     */
+    public static void release(AppiumDriver<WebElement> driver) {
+        PooledSession session = activeSessions.remove(driver);
+        if (session == null) {
+            quietQuit(driver);
+            return;
+        }
+        int maxUses = Configuration.getSessionMaxUses();
+        if (maxUses > 0 && session.uses >= maxUses) {
+            logger.info("Session {} reached max uses ({}), quitting", driver.getSessionId(), maxUses);
+            discard(session);
+            return;
+        }
+        synchronized (idleSessions) {
+            idleSessions.computeIfAbsent(session.key, k -> new ArrayDeque<>()).push(session);
+        }
+    }
+
+    /**
+     * 丢弃会话而不放回池中，用于会话已知损坏的情况
+     * @param driver 要丢弃的driver
+     */
+    public static void invalidate(AppiumDriver<WebElement> driver) {
+        PooledSession session = activeSessions.remove(driver);
+        if (session != null) {
+            discard(session);
+        } else {
+            quietQuit(driver);
+        }
+    }
+
+    /**
+     * 关闭池中所有空闲会话
+     */
+    public static void shutdown() {
+        List<PooledSession> sessions = new ArrayList<>();
+        synchronized (idleSessions) {
+            for (Deque<PooledSession> deque : idleSessions.values()) {
+                sessions.addAll(deque);
+            }
+            idleSessions.clear();
+        }
+        for (PooledSession session : sessions) {
+            discard(session);
+        }
+    }
+
+    private static PooledSession pollIdle(String key) {
+        synchronized (idleSessions) {
+            Deque<PooledSession> deque = idleSessions.get(key);
+            return deque == null ? null : deque.poll();
+        }
+    }
+
+    /**
+     * 检查会话健康状况并重置应用状态
+     * @return 会话可以复用时返回true
+     */
+    private static boolean prepareForReuse(PooledSession session, AppResetStrategy resetStrategy) {
+        AppiumDriver<WebElement> driver = session.driver;
+        try {
+            // 轻量的会话级命令，会话已失效时会抛出异常
+            driver.getContext();
+            resetApp(driver, resetStrategy);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Pooled session {} is unhealthy, recreating: {}", driver.getSessionId(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 按重置策略恢复应用状态
+     * @param driver 会话
+     * @param resetStrategy 重置策略
+     */
+    static void resetApp(AppiumDriver<WebElement> driver, AppResetStrategy resetStrategy) {
+        if (resetStrategy == AppResetStrategy.NONE) {
+            return;
+        }
+        String appId = resolveAppId(driver);
+        if (appId == null) {
+            throw new RuntimeException("Cannot reset app: no app package/bundleId configured");
+        }
+
+        AppResetStrategy effective = resetStrategy;
+        if (effective == AppResetStrategy.CLEAR_DATA && !Configuration.isAndroid()) {
+            // XCUITest不支持清除应用数据，退化为重新安装或重新启动
+            effective = Configuration.getAppPath() != null ? AppResetStrategy.REINSTALL : AppResetStrategy.RELAUNCH;
+        }
+        if (effective == AppResetStrategy.REINSTALL && Configuration.getAppPath() == null) {
+            effective = Configuration.isAndroid() ? AppResetStrategy.CLEAR_DATA : AppResetStrategy.RELAUNCH;
+        }
+
+        switch (effective) {
+            case RELAUNCH:
+                driver.terminateApp(appId);
+                break;
+            case CLEAR_DATA:
+                driver.terminateApp(appId);
+                driver.executeScript("mobile: clearApp", Collections.singletonMap("appId", appId));
+                break;
+            case REINSTALL:
+                driver.terminateApp(appId);
+                driver.removeApp(appId);
+                driver.installApp(Configuration.getAppPath());
+                break;
+            default:
+                break;
+        }
+        driver.activateApp(appId);
+    }
+
+    static String resolveAppId(AppiumDriver<WebElement> driver) {
+        String appId = Configuration.getAppId();
+        if (appId != null) {
+            return appId;
+        }
+        Object fromCaps = driver.getCapabilities().getCapability(Configuration.isAndroid() ? "appPackage" : "bundleId");
+        return fromCaps == null ? null : fromCaps.toString();
+    }
+
+    private static void discard(PooledSession session) {
+        quietQuit(session.driver);
+    }
+
+    private static void quietQuit(AppiumDriver<WebElement> driver) {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            logger.warn("Exception while quitting pooled session: {}", e.getMessage());
+        }
+    }
+
+    private static class PooledSession {
+        private final String key;
+        private final AppiumDriver<WebElement> driver;
+        private int uses;
+
+        private PooledSession(String key, AppiumDriver<WebElement> driver) {
+            this.key = key;
+            this.driver = driver;
+        }
+    }
+}
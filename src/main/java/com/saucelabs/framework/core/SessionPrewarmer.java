@@ -0,0 +1,201 @@
+package com.saucelabs.framework.core;
+
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 在当前场景执行期间，于后台线程为下一个场景提前创建会话。
+ * 预热会话占用一台空闲设备，下一个场景开始时直接接管会话和设备租约；
+ * 超过存活时间仍未被接管的会话会被丢弃并归还设备；JVM退出时短暂等待仍在创建中的会话，创建完成即退出。
+ */
+class SessionPrewarmer {
+    private static final Logger logger = LoggerFactory.getLogger(SessionPrewarmer.class);
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    private static final Deque<PrewarmedSession> sessions = new ArrayDeque<>();
+    private static final ExecutorService creator = Executors.newCachedThreadPool(daemonThreads("session-prewarm"));
+    private static final ScheduledExecutorService expiry =
+            Executors.newSingleThreadScheduledExecutor(daemonThreads("session-prewarm-expiry"));
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(SessionPrewarmer::shutdown, "session-prewarm-shutdown"));
+    }
+
+    private SessionPrewarmer() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 如果有空闲设备且预热会话未达上限，在后台为其创建会话
+     * @param factory 为设备租约创建可直接使用的driver
+     * @param disposer 丢弃未被接管的driver，例如退出会话或放回会话池
+     */
+    static void prewarm(Function<DeviceLease, AppiumDriver<WebElement>> factory,
+                        Consumer<AppiumDriver<WebElement>> disposer) {
+        PrewarmedSession session;
+        synchronized (sessions) {
+            if (sessions.size() >= Configuration.getSessionPrewarmMax()) {
+                return;
+            }
+            DeviceLease lease = DeviceRegistry.tryLease();
+            if (lease == null) {
+                return;
+            }
+            session = new PrewarmedSession(lease, disposer);
+            sessions.add(session);
+        }
+        logger.info("Pre-warming a session on {}", session.lease);
+        CompletableFuture.supplyAsync(() -> factory.apply(session.lease), creator).whenComplete((driver, error) -> {
+            if (error != null) {
+                logger.warn("Failed to pre-warm a session on {}: {}", session.lease, error.getMessage());
+                remove(session);
+                DeviceRegistry.release(session.lease);
+                session.driver.completeExceptionally(error);
+            } else {
+                session.driver.complete(driver);
+                expiry.schedule(() -> expire(session), Configuration.getSessionPrewarmTtlSeconds(), TimeUnit.SECONDS);
+            }
+        });
+    }
+
+    /**
+     * 接管一个预热会话；会话仍在创建中时等待其完成
+     * @return 预热会话，没有可用的预热会话时返回null
+     */
+    static PrewarmedSession take() {
+        PrewarmedSession session;
+        while ((session = claimNext()) != null) {
+            long start = System.nanoTime();
+            try {
+                session.driver.get();
+                logger.info("Handing over pre-warmed session on {}", session.lease);
+                return session;
+            } catch (ExecutionException e) {
+                // 创建失败时设备已经归还，尝试下一个
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interrupted while waiting for a pre-warmed session", e);
+            } finally {
+                CommandMetrics.record("session:prewarmed", System.nanoTime() - start);
+            }
+        }
+        return null;
+    }
+
+    private static PrewarmedSession claimNext() {
+        synchronized (sessions) {
+            PrewarmedSession session;
+            while ((session = sessions.poll()) != null) {
+                if (session.claimed.compareAndSet(false, true)) {
+                    return session;
+                }
+            }
+            return null;
+        }
+    }
+
+    private static void remove(PrewarmedSession session) {
+        synchronized (sessions) {
+            sessions.remove(session);
+        }
+    }
+
+    private static void expire(PrewarmedSession session) {
+        if (session.claimed.compareAndSet(false, true)) {
+            logger.info("Discarding unused pre-warmed session on {}", session.lease);
+            remove(session);
+            discard(session);
+        }
+    }
+
+    private static void shutdown() {
+        List<CompletableFuture<Void>> discarded = new ArrayList<>();
+        PrewarmedSession session;
+        while ((session = claimNext()) != null) {
+            PrewarmedSession unused = session;
+            // 仍在创建中的会话在创建完成时退出，创建失败时设备已经归还
+            discarded.add(unused.driver.handle((driver, error) -> {
+                if (error == null) {
+                    discard(unused);
+                }
+                return null;
+            }));
+        }
+        if (discarded.isEmpty()) {
+            return;
+        }
+        try {
+            CompletableFuture.allOf(discarded.toArray(new CompletableFuture<?>[0]))
+                    .get(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            long pending = discarded.stream().filter(future -> !future.isDone()).count();
+            logger.warn("{} pre-warmed session(s) still being created after {} seconds, leaving them behind",
+                    pending, SHUTDOWN_WAIT_SECONDS);
+        } catch (ExecutionException e) {
+            logger.warn("Exception while discarding pre-warmed sessions: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void discard(PrewarmedSession session) {
+        try {
+            session.disposer.accept(session.driver.getNow(null));
+        } catch (Exception e) {
+            logger.warn("Exception while discarding pre-warmed session: {}", e.getMessage());
+        } finally {
+            DeviceRegistry.release(session.lease);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    /**
+     * 预热的会话及其占用的设备租约
+     */
+    static class PrewarmedSession {
+        private final DeviceLease lease;
+        private final Consumer<AppiumDriver<WebElement>> disposer;
+        private final CompletableFuture<AppiumDriver<WebElement>> driver = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        private PrewarmedSession(DeviceLease lease, Consumer<AppiumDriver<WebElement>> disposer) {
+            this.lease = lease;
+            this.disposer = disposer;
+        }
+
+        DeviceLease getLease() {
+            return lease;
+        }
+
+        AppiumDriver<WebElement> getDriver() {
+            return driver.getNow(null);
+        }
+    }
+}
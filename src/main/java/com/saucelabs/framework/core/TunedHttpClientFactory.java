@@ -0,0 +1,104 @@
+package com.saucelabs.framework.core;
+
+import okhttp3.ConnectionPool;
+import org.openqa.selenium.remote.http.HttpClient;
+import org.openqa.selenium.remote.http.HttpMethod;
+import org.openqa.selenium.remote.http.HttpRequest;
+import org.openqa.selenium.remote.http.HttpResponse;
+import org.openqa.selenium.remote.internal.OkHttpClient;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 与Appium服务器通信的HTTP客户端工厂，所有参数来自config.properties。
+ * 每个Appium服务器共享一个保持长连接的连接池；创建/删除会话与普通命令使用不同的读超时；
+ * 启用压缩时由OkHttp透明地请求并解压gzip响应（页面源码、截图等大响应受益最大）。
+ */
+public class TunedHttpClientFactory implements HttpClient.Factory {
+    private static final TunedHttpClientFactory INSTANCE = new TunedHttpClientFactory();
+
+    private final Map<String, ConnectionPool> pools = new ConcurrentHashMap<>();
+
+    private TunedHttpClientFactory() {
+    }
+
+    public static TunedHttpClientFactory getInstance() {
+        return INSTANCE;
+    }
+
+    @Override
+    public HttpClient.Builder builder() {
+        return new HttpClient.Builder() {
+            @Override
+            public HttpClient createClient(URL url) {
+                return new RoutingHttpClient(
+                        new OkHttpClient(newOkHttpClient(url, Configuration.getHttpSessionTimeoutSeconds()), url),
+                        new OkHttpClient(newOkHttpClient(url, Configuration.getHttpCommandTimeoutSeconds()), url));
+            }
+        };
+    }
+
+    @Override
+    public void cleanupIdleClients() {
+        for (ConnectionPool pool : pools.values()) {
+            pool.evictAll();
+        }
+    }
+
+    private okhttp3.OkHttpClient newOkHttpClient(URL url, long readTimeoutSeconds) {
+        okhttp3.OkHttpClient.Builder builder = new okhttp3.OkHttpClient.Builder()
+                .connectionPool(poolFor(url))
+                .retryOnConnectionFailure(true)
+                .connectTimeout(Configuration.getHttpConnectTimeoutSeconds(), TimeUnit.SECONDS)
+                .readTimeout(readTimeoutSeconds, TimeUnit.SECONDS)
+                .writeTimeout(readTimeoutSeconds, TimeUnit.SECONDS);
+        if (!Configuration.isHttpGzipEnabled()) {
+            // 显式指定identity后OkHttp不再自动请求gzip
+            builder.addInterceptor(chain -> chain.proceed(
+                    chain.request().newBuilder().header("Accept-Encoding", "identity").build()));
+        }
+        return builder.build();
+    }
+
+    private ConnectionPool poolFor(URL url) {
+        String server = url.getProtocol() + "://" + url.getHost() + ":" + url.getPort();
+        return pools.computeIfAbsent(server, key -> new ConnectionPool(
+                Configuration.getHttpPoolMaxIdleConnections(),
+                Configuration.getHttpKeepAliveSeconds(), TimeUnit.SECONDS));
+    }
+
+    /**
+     * 创建/删除会话使用长超时的客户端，其余命令使用普通超时的客户端
+     */
+    private static class RoutingHttpClient implements HttpClient {
+        private final HttpClient sessionClient;
+        private final HttpClient commandClient;
+
+        private RoutingHttpClient(HttpClient sessionClient, HttpClient commandClient) {
+            this.sessionClient = sessionClient;
+            this.commandClient = commandClient;
+        }
+
+        @Override
+        public HttpResponse execute(HttpRequest request) throws IOException {
+            return isSessionLifecycle(request) ? sessionClient.execute(request) : commandClient.execute(request);
+        }
+
+        private static boolean isSessionLifecycle(HttpRequest request) {
+            String uri = request.getUri();
+            if (request.getMethod() == HttpMethod.POST) {
+                return uri.endsWith("/session");
+            }
+            if (request.getMethod() == HttpMethod.DELETE) {
+                // DELETE /session/{sessionId}
+                int index = uri.lastIndexOf("/session/");
+                return index >= 0 && uri.indexOf('/', index + "/session/".length()) < 0;
+            }
+            return false;
+        }
+    }
+}
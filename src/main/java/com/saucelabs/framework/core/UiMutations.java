@@ -0,0 +1,103 @@
+package com.saucelabs.framework.core;
+
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按会话统计可能修改界面的命令次数。
+ * {@link InstrumentedCommandExecutor}在每个非只读命令执行后递增所属会话的计数，
+ * 页面快照等本地缓存记录获取时的计数，计数变化即失效，不依赖调用方记得手动失效。
+ * 无法确认只读的命令（包括未列出的executeScript脚本）一律视为修改界面。
+ * 另有一个只统计可能改变界面结构的命令的计数：向元素输入或清除文本不会替换界面上的元素，
+ * 元素句柄缓存据此失效，输入表单时不必重新查找。
+ */
+public final class UiMutations {
+    private static final Set<String> READ_COMMANDS = new HashSet<>(Arrays.asList(
+            DriverCommand.GET_PAGE_SOURCE, DriverCommand.FIND_ELEMENT, DriverCommand.FIND_ELEMENTS,
+            DriverCommand.FIND_CHILD_ELEMENT, DriverCommand.FIND_CHILD_ELEMENTS,
+            DriverCommand.GET_ELEMENT_TEXT, DriverCommand.GET_ELEMENT_TAG_NAME, DriverCommand.GET_ELEMENT_ATTRIBUTE,
+            DriverCommand.GET_ELEMENT_PROPERTY, DriverCommand.GET_ELEMENT_VALUE_OF_CSS_PROPERTY,
+            DriverCommand.IS_ELEMENT_DISPLAYED, DriverCommand.IS_ELEMENT_ENABLED, DriverCommand.IS_ELEMENT_SELECTED,
+            DriverCommand.GET_ELEMENT_LOCATION, DriverCommand.GET_ELEMENT_SIZE, DriverCommand.GET_ELEMENT_RECT,
+            DriverCommand.GET_ELEMENT_LOCATION_ONCE_SCROLLED_INTO_VIEW,
+            DriverCommand.SCREENSHOT, DriverCommand.ELEMENT_SCREENSHOT, DriverCommand.GET_CAPABILITIES,
+            DriverCommand.STATUS, DriverCommand.GET_CURRENT_URL, DriverCommand.GET_TITLE,
+            DriverCommand.GET_CURRENT_WINDOW_HANDLE, DriverCommand.GET_WINDOW_HANDLES,
+            DriverCommand.GET_CURRENT_CONTEXT_HANDLE, DriverCommand.GET_CONTEXT_HANDLES,
+            DriverCommand.GET_SCREEN_ORIENTATION, DriverCommand.GET_LOG, DriverCommand.GET_AVAILABLE_LOG_TYPES,
+            DriverCommand.GET_CURRENT_WINDOW_SIZE,
+            "getCurrentActivity", "getCurrentPackage", "isKeyboardShown", "getSettings", "getDeviceTime",
+            "getNetworkConnection", "getSystemBars", "getDisplayDensity", "isAppInstalled", "queryAppState",
+            "isLocked", "getClipboard"));
+    private static final Set<String> READ_SCRIPTS = new HashSet<>(Arrays.asList(
+            "mobile: pullFile", "mobile: pullFolder", "mobile: getDeviceTime", "mobile: deviceInfo",
+            "mobile: batteryInfo", "mobile: activeAppInfo", "mobile: queryAppState", "mobile: getContexts"));
+
+    private static final Set<String> TEXT_ENTRY_COMMANDS = new HashSet<>(Arrays.asList(
+            DriverCommand.SEND_KEYS_TO_ELEMENT, DriverCommand.CLEAR_ELEMENT, "setValue", "replaceValue"));
+
+    private static final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private static final Map<String, AtomicLong> layoutGenerations = new ConcurrentHashMap<>();
+
+    private UiMutations() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 获取会话当前的修改计数
+     * @param sessionId 会话ID
+     * @return 计数，会话还没有修改界面的命令时为0
+     */
+    public static long generation(String sessionId) {
+        AtomicLong generation = generations.get(sessionId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    /**
+     * 获取会话中可能改变界面结构的命令的计数，不含向元素输入或清除文本
+     * @param sessionId 会话ID
+     * @return 计数，会话还没有这类命令时为0
+     */
+    public static long layoutGeneration(String sessionId) {
+        AtomicLong generation = layoutGenerations.get(sessionId);
+        return generation == null ? 0 : generation.get();
+    }
+
+    /**
+     * 记录一个已执行的命令，非只读命令使会话的计数递增
+     * @param command 命令
+     */
+    static void executed(Command command) {
+        if (command.getSessionId() == null || isRead(command)) {
+            return;
+        }
+        String sessionId = command.getSessionId().toString();
+        if (DriverCommand.QUIT.equals(command.getName())) {
+            generations.remove(sessionId);
+            layoutGenerations.remove(sessionId);
+            return;
+        }
+        generations.computeIfAbsent(sessionId, id -> new AtomicLong()).incrementAndGet();
+        if (!TEXT_ENTRY_COMMANDS.contains(command.getName())) {
+            layoutGenerations.computeIfAbsent(sessionId, id -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    static boolean isRead(Command command) {
+        if (READ_COMMANDS.contains(command.getName())) {
+            return true;
+        }
+        if (DriverCommand.EXECUTE_SCRIPT.equals(command.getName()) && command.getParameters() != null) {
+            Object script = command.getParameters().get("script");
+            return script != null && READ_SCRIPTS.contains(script.toString().trim());
+        }
+        return false;
+    }
+}
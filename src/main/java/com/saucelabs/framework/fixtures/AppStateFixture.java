@@ -0,0 +1,84 @@
+package com.saucelabs.framework.fixtures;
+
+import com.saucelabs.framework.core.Configuration;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 场景的前置应用状态，例如"以某个用户登录"。
+ * 子类声明如何确认已到达该状态，以及如何通过界面到达；深度链接来自配置 fixture.deeplink.&lt;名称&gt;，
+ * 其中的 {参数名} 会被替换为URL编码后的参数值。到达状态的途径由{@link AppStateFixtures}选择。
+ */
+public abstract class AppStateFixture {
+    private final String name;
+    private final Map<String, String> parameters;
+
+    /**
+     * @param name 状态名称，例如 "logged-in"
+     * @param parameters 状态参数，例如用户名
+     */
+    protected AppStateFixture(String name, Map<String, String> parameters) {
+        this.name = name;
+        this.parameters = Collections.unmodifiableMap(new LinkedHashMap<>(parameters));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Map<String, String> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * 状态的唯一标识，用于缓存应用数据快照
+     * @return 例如 "logged-in{username=standard_user}"
+     */
+    public String getKey() {
+        return name + parameters;
+    }
+
+    /**
+     * 获取到达该状态的深度链接
+     * @return 深度链接，未配置时返回null
+     */
+    public String getDeepLink() {
+        String template = Configuration.getFixtureDeepLink(name);
+        if (template == null) {
+            return null;
+        }
+        String url = template;
+        for (Map.Entry<String, String> parameter : parameters.entrySet()) {
+            url = url.replace("{" + parameter.getKey() + "}", encode(parameter.getValue()));
+        }
+        return url;
+    }
+
+    /**
+     * 应用当前是否处于该状态。每种途径之后都会调用，应在短时间内给出结果，未到达时不要等待完整超时
+     * @return 已到达时返回true
+     */
+    public abstract boolean isReached();
+
+    /**
+     * 通过界面操作到达该状态
+     */
+    public abstract void reachViaUi();
+
+    @Override
+    public String toString() {
+        return getKey();
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
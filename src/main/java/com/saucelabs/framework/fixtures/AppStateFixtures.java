@@ -0,0 +1,208 @@
+package com.saucelabs.framework.fixtures;
+
+import com.saucelabs.framework.core.CommandMetrics;
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.core.DriverManager;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 用最快的途径让应用到达前置状态，跳过场景中与被测行为无关的界面步骤。
+ * 按 fixture.routes 依次尝试：深度链接 → 恢复缓存的应用数据 → 界面操作；每种途径执行后都用
+ * {@link AppStateFixture#isReached()}确认，未到达时继续尝试下一种。
+ * 通过界面到达后，如果配置了 fixture.snapshot.path，则拉取该目录的应用数据缓存在内存中，供后续场景恢复。
+ * 每次到达的耗时按 "fixture:&lt;名称&gt;[&lt;途径&gt;]" 记录到{@link CommandMetrics}。
+ */
+public final class AppStateFixtures {
+    private static final Logger logger = LoggerFactory.getLogger(AppStateFixtures.class);
+
+    private static final Map<String, byte[]> snapshots = new ConcurrentHashMap<>();
+
+    private AppStateFixtures() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 让当前会话中的应用到达指定状态
+     * @param fixture 前置应用状态
+     * @return 实际使用的途径
+     */
+    public static FixtureRoute reach(AppStateFixture fixture) {
+        List<FixtureRoute> routes = getRoutes();
+        for (FixtureRoute route : routes) {
+            if (!isApplicable(route, fixture)) {
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean reached;
+            try {
+                reached = attempt(route, fixture);
+            } catch (RuntimeException e) {
+                logger.warn("Fixture {} via {} failed: {}", fixture, route.getValue(), e.getMessage());
+                reached = false;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (reached) {
+                CommandMetrics.record("fixture:" + fixture.getName() + "[" + route.getValue() + "]", elapsed);
+                logger.info("Reached fixture {} via {} in {} ms", fixture, route.getValue(),
+                        TimeUnit.NANOSECONDS.toMillis(elapsed));
+                return route;
+            }
+            CommandMetrics.record("fixture:" + fixture.getName() + "[" + route.getValue() + "-miss]", elapsed);
+        }
+        throw new RuntimeException("Could not reach fixture " + fixture + " via any of " + routes);
+    }
+
+    /**
+     * 解析配置的 fixture.routes
+     * @return 按尝试顺序排列的途径
+     */
+    static List<FixtureRoute> getRoutes() {
+        String value = Configuration.getFixtureRoutes();
+        try {
+            return FixtureRoute.parseList(value);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Invalid configuration 'fixture.routes' = '" + value + "': " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 清除缓存的应用数据快照，例如应用版本变化后
+     */
+    public static void clearSnapshots() {
+        snapshots.clear();
+    }
+
+    private static boolean isApplicable(FixtureRoute route, AppStateFixture fixture) {
+        switch (route) {
+            case DEEP_LINK:
+                return fixture.getDeepLink() != null;
+            case DATA_RESTORE:
+                return Configuration.getFixtureSnapshotPath() != null && snapshots.containsKey(fixture.getKey());
+            default:
+                return true;
+        }
+    }
+
+    private static boolean attempt(FixtureRoute route, AppStateFixture fixture) {
+        switch (route) {
+            case DEEP_LINK:
+                return viaDeepLink(fixture);
+            case DATA_RESTORE:
+                return viaDataRestore(fixture);
+            case UI:
+                fixture.reachViaUi();
+                if (!fixture.isReached()) {
+                    return false;
+                }
+                captureSnapshot(fixture);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean viaDeepLink(AppStateFixture fixture) {
+        Map<String, Object> args = new HashMap<>();
+        args.put("url", fixture.getDeepLink());
+        String appId = DriverManager.getAppId();
+        if (appId != null) {
+            args.put(Configuration.isAndroid() ? "package" : "bundleId", appId);
+        }
+        DriverManager.getDriver().executeScript("mobile: deepLink", args);
+        return fixture.isReached();
+    }
+
+    private static boolean viaDataRestore(AppStateFixture fixture) {
+        if (!restoreAppData(snapshots.get(fixture.getKey()))) {
+            return false;
+        }
+        return fixture.isReached();
+    }
+
+    /**
+     * 结束应用，把应用数据快照中的文件推回 fixture.snapshot.path 后重新启动应用
+     * @param snapshot {@link #pullAppData()}得到的zip数据
+     * @return 无法确定应用标识时返回false
+     */
+    static boolean restoreAppData(byte[] snapshot) {
+        String remotePath = Configuration.getFixtureSnapshotPath();
+        String appId = DriverManager.getAppId();
+        if (appId == null) {
+            return false;
+        }
+        AppiumDriver<WebElement> driver = DriverManager.getDriver();
+        driver.terminateApp(appId);
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(snapshot))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory()) {
+                    continue;
+                }
+                Map<String, Object> args = new HashMap<>();
+                args.put("remotePath", remotePath + "/" + entry.getName());
+                args.put("payload", Base64.getEncoder().encodeToString(readEntry(zip)));
+                driver.executeScript("mobile: pushFile", args);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to unpack app data snapshot", e);
+        }
+        driver.activateApp(appId);
+        return true;
+    }
+
+    /**
+     * 拉取 fixture.snapshot.path 下的应用数据
+     * @return zip数据，未配置路径时返回null
+     */
+    static byte[] pullAppData() {
+        String remotePath = Configuration.getFixtureSnapshotPath();
+        if (remotePath == null) {
+            return null;
+        }
+        Object pulled = DriverManager.getDriver().executeScript("mobile: pullFolder",
+                Collections.singletonMap("remotePath", remotePath));
+        return pulled instanceof String ? Base64.getMimeDecoder().decode((String) pulled) : null;
+    }
+
+    private static void captureSnapshot(AppStateFixture fixture) {
+        if (Configuration.getFixtureSnapshotPath() == null || snapshots.containsKey(fixture.getKey())) {
+            return;
+        }
+        try {
+            byte[] pulled = pullAppData();
+            if (pulled != null) {
+                snapshots.put(fixture.getKey(), pulled);
+                logger.info("Cached app data snapshot for fixture {}", fixture);
+            }
+        } catch (RuntimeException e) {
+            // 快照只是加速手段，拉取失败不影响本次场景
+            logger.warn("Could not capture app data snapshot for fixture {}: {}", fixture, e.getMessage());
+        }
+    }
+
+    private static byte[] readEntry(ZipInputStream zip) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = zip.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
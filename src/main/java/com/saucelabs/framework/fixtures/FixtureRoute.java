@@ -0,0 +1,62 @@
+package com.saucelabs.framework.fixtures;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 到达应用状态的途径，按代价从低到高排列
+ */
+public enum FixtureRoute {
+    /** 通过深度链接直接打开目标界面 */
+    DEEP_LINK("deep-link"),
+    /** 把之前缓存的应用数据推回设备后重新启动应用 */
+    DATA_RESTORE("data-restore"),
+    /** 通过界面操作完成前置步骤 */
+    UI("ui");
+
+    private final String value;
+
+    FixtureRoute(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * 根据配置值解析途径
+     * @param value 配置值，例如 "deep-link"
+     * @return 对应的途径
+     */
+    public static FixtureRoute fromValue(String value) {
+        for (FixtureRoute route : values()) {
+            if (route.value.equalsIgnoreCase(value.trim())) {
+                return route;
+            }
+        }
+        throw new RuntimeException("Unsupported fixture route: " + value);
+    }
+
+    /**
+     * 解析逗号分隔的途径列表，例如 "deep-link,data-restore,ui"
+     * @param value 配置值
+     * @return 按配置顺序排列的途径
+     */
+    public static List<FixtureRoute> parseList(String value) {
+        List<FixtureRoute> routes = new ArrayList<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                FixtureRoute route = fromValue(item);
+                if (!routes.contains(route)) {
+                    routes.add(route);
+                }
+            }
+        }
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("at least one fixture route is required");
+        }
+        return Collections.unmodifiableList(routes);
+    }
+}
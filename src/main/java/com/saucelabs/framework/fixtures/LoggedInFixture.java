@@ -0,0 +1,82 @@
+package com.saucelabs.framework.fixtures;
+
+import com.saucelabs.framework.core.AppResetStrategy;
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.pages.PageFactory;
+import com.saucelabs.framework.pages.ScreenSignature;
+import com.saucelabs.framework.pages.android.LoginPageAndroid;
+import com.saucelabs.framework.pages.android.ProductsPageAndroid;
+import com.saucelabs.framework.pages.ios.LoginPageIOS;
+import com.saucelabs.framework.pages.ios.ProductsPageIOS;
+import com.saucelabs.framework.utils.WaitEngine;
+import org.openqa.selenium.TimeoutException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * "以某个用户登录并停在商品页"的前置状态。
+ * 深度链接模板配置为 fixture.deeplink.logged-in，可使用 {username} 和 {password} 占位符。
+ */
+public class LoggedInFixture extends AppStateFixture {
+    private static final int SETTLE_TIMEOUT_SECONDS = 3;
+
+    private final String username;
+    private final String password;
+
+    /**
+     * @param username 用户名
+     * @param password 密码
+     */
+    public LoggedInFixture(String username, String password) {
+        super("logged-in", parameters(username, password));
+        this.username = username;
+        this.password = password;
+    }
+
+    @Override
+    public String getKey() {
+        // 密码不参与标识，避免写入日志和指标
+        return getName() + "{username=" + username + "}";
+    }
+
+    @Override
+    public boolean isReached() {
+        // 商品页和登录页同时等待，先出现的决定结果：深度链接或数据恢复没有生效时应用停在登录页，
+        // 立即换下一种途径，而不是等满商品页的完整超时
+        ScreenSignature screen;
+        try {
+            screen = WaitEngine.until("fixture", d -> PageFactory.getScreenRecognizer().recognize(),
+                    SETTLE_TIMEOUT_SECONDS);
+        } catch (TimeoutException e) {
+            return false;
+        }
+        return screen == ProductsPageAndroid.SIGNATURE || screen == ProductsPageIOS.SIGNATURE;
+    }
+
+    @Override
+    public void reachViaUi() {
+        if (Configuration.isAndroid()) {
+            LoginPageAndroid loginPage = (LoginPageAndroid) PageFactory.getLoginPage();
+            if (!loginPage.clearForm()) {
+                DriverManager.resetApp(AppResetStrategy.RELAUNCH);
+            }
+            // 等到登录结果出现，之后的isReached只需短时间判断
+            loginPage.login(username, password).awaitLoginOutcome();
+        } else {
+            LoginPageIOS loginPage = (LoginPageIOS) PageFactory.getLoginPage();
+            if (!loginPage.clearForm()) {
+                DriverManager.resetApp(AppResetStrategy.RELAUNCH);
+            }
+            loginPage.login(username, password).awaitLoginOutcome();
+        }
+    }
+
+    private static Map<String, String> parameters(String username, String password) {
+        Map<String, String> parameters = new LinkedHashMap<>();
+        parameters.put("username", username);
+        parameters.put("password", password);
+        return parameters;
+    }
+}
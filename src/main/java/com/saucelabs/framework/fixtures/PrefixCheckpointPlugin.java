@@ -0,0 +1,48 @@
+package com.saucelabs.framework.fixtures;
+
+import io.cucumber.plugin.ConcurrentEventListener;
+import io.cucumber.plugin.event.EventPublisher;
+import io.cucumber.plugin.event.PickleStepTestStep;
+import io.cucumber.plugin.event.Status;
+import io.cucumber.plugin.event.TestCaseFinished;
+import io.cucumber.plugin.event.TestCaseStarted;
+import io.cucumber.plugin.event.TestStep;
+import io.cucumber.plugin.event.TestStepFinished;
+import io.cucumber.plugin.event.TestStepStarted;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把场景和步骤的执行进度告诉{@link PrefixCheckpoints}。
+ * 事件在执行场景的线程上同步分发，因此进度可以按线程保存。未启用前缀检查点时不订阅任何事件。
+ */
+public class PrefixCheckpointPlugin implements ConcurrentEventListener {
+
+    @Override
+    public void setEventPublisher(EventPublisher publisher) {
+        if (!PrefixCheckpoints.isEnabled()) {
+            return;
+        }
+        publisher.registerHandlerFor(TestCaseStarted.class, event -> {
+            List<String> steps = new ArrayList<>();
+            for (TestStep step : event.getTestCase().getTestSteps()) {
+                if (step instanceof PickleStepTestStep) {
+                    steps.add(PrefixCheckpoints.stepKey(((PickleStepTestStep) step).getStep()));
+                }
+            }
+            PrefixCheckpoints.startScenario(steps);
+        });
+        publisher.registerHandlerFor(TestStepStarted.class, event -> {
+            if (event.getTestStep() instanceof PickleStepTestStep) {
+                PrefixCheckpoints.stepStarted();
+            }
+        });
+        publisher.registerHandlerFor(TestStepFinished.class, event -> {
+            if (event.getTestStep() instanceof PickleStepTestStep) {
+                PrefixCheckpoints.stepFinished(event.getResult().getStatus() == Status.PASSED);
+            }
+        });
+        publisher.registerHandlerFor(TestCaseFinished.class, event -> PrefixCheckpoints.endScenario());
+    }
+}
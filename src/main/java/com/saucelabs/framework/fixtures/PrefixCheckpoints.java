@@ -0,0 +1,236 @@
+package com.saucelabs.framework.fixtures;
+
+import com.saucelabs.framework.core.CommandMetrics;
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.pages.PageSnapshot;
+import io.cucumber.plugin.event.DataTableArgument;
+import io.cucumber.plugin.event.DocStringArgument;
+import io.cucumber.plugin.event.Step;
+import io.cucumber.plugin.event.StepArgument;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 共享步骤前缀的检查点。
+ * 规划文件（prefix.checkpoints，由ScenarioTrie生成）列出多个场景共有、随后分叉的步骤前缀。
+ * 第一个执行完某个前缀的场景在该处拉取应用数据并记录界面签名；之后以同一前缀开头的场景在第一步时恢复最长的可用检查点，
+ * 恢复后的界面签名与记录一致时，前缀中的步骤直接视为通过，只从分叉处开始执行；不一致时说明应用不支持恢复该状态，
+ * 检查点被丢弃，场景照常从头执行。应用数据的拉取和恢复与{@link AppStateFixtures}相同，需要配置 fixture.snapshot.path。
+ * 步骤定义在开头调用{@link #isRestored()}，返回true时只恢复页面对象等本地状态，不操作界面。
+ */
+public final class PrefixCheckpoints {
+    private static final Logger logger = LoggerFactory.getLogger(PrefixCheckpoints.class);
+
+    private static final Map<List<String>, Checkpoint> captured = new ConcurrentHashMap<>();
+    private static final Set<List<String>> unsupported = ConcurrentHashMap.newKeySet();
+    private static final ThreadLocal<Progress> progress = new ThreadLocal<>();
+    private static volatile Set<List<String>> planned;
+
+    private PrefixCheckpoints() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 是否启用前缀检查点：需要规划文件和设备上的应用数据路径
+     * @return 启用时返回true
+     */
+    public static boolean isEnabled() {
+        return Configuration.getPrefixCheckpointPlan() != null && Configuration.getFixtureSnapshotPath() != null;
+    }
+
+    /**
+     * 当前步骤是否已由恢复的检查点完成。场景第一步调用时尝试恢复检查点
+     * @return 已完成时返回true，步骤定义应跳过界面操作
+     */
+    public static boolean isRestored() {
+        Progress current = progress.get();
+        if (current == null) {
+            return false;
+        }
+        if (!current.restoreAttempted && current.index == 0) {
+            current.restoreAttempted = true;
+            restore(current);
+        }
+        return current.index < current.restoredThrough;
+    }
+
+    /**
+     * 步骤在检查点规划中的标识：步骤文本加上文档字符串或数据表
+     * @param step 步骤
+     * @return 标识
+     */
+    public static String stepKey(Step step) {
+        StepArgument argument = step.getArgument();
+        if (argument instanceof DocStringArgument) {
+            return step.getText() + "\n\"\"\"\n" + ((DocStringArgument) argument).getContent();
+        }
+        if (argument instanceof DataTableArgument) {
+            return step.getText() + "\n" + ((DataTableArgument) argument).cells().stream()
+                    .map(row -> "| " + String.join(" | ", row) + " |")
+                    .collect(Collectors.joining("\n"));
+        }
+        return step.getText();
+    }
+
+    static void startScenario(List<String> steps) {
+        progress.set(new Progress(steps));
+    }
+
+    static void stepStarted() {
+        Progress current = progress.get();
+        if (current != null) {
+            current.index++;
+        }
+    }
+
+    static void stepFinished(boolean passed) {
+        Progress current = progress.get();
+        if (current == null || current.failed) {
+            return;
+        }
+        if (!passed) {
+            current.failed = true;
+            return;
+        }
+        int depth = current.index + 1;
+        if (depth <= current.restoredThrough || depth >= current.steps.size()) {
+            return;
+        }
+        List<String> prefix = current.steps.subList(0, depth);
+        if (plan().contains(prefix) && !captured.containsKey(prefix) && !unsupported.contains(prefix)) {
+            capture(new ArrayList<>(prefix));
+        }
+    }
+
+    static void endScenario() {
+        progress.remove();
+    }
+
+    private static void restore(Progress current) {
+        // 不恢复完整的场景，至少保留最后一步，使每个场景都有自己执行的断言
+        for (int depth = current.steps.size() - 1; depth > 0; depth--) {
+            List<String> prefix = current.steps.subList(0, depth);
+            Checkpoint checkpoint = captured.get(prefix);
+            if (checkpoint == null) {
+                continue;
+            }
+            long start = System.nanoTime();
+            boolean restored;
+            try {
+                restored = AppStateFixtures.restoreAppData(checkpoint.appData)
+                        && checkpoint.signature.equals(screenSignature());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to restore checkpoint after {} steps: {}", depth, e.getMessage());
+                restored = false;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (restored) {
+                CommandMetrics.record("checkpoint:restore", elapsed);
+                logger.info("Restored checkpoint, skipping {} shared steps", depth);
+                current.restoredThrough = depth;
+                return;
+            }
+            CommandMetrics.record("checkpoint:restore-miss", elapsed);
+            logger.info("App state after {} shared steps cannot be restored from app data, replaying instead", depth);
+            captured.remove(prefix);
+            unsupported.add(new ArrayList<>(prefix));
+            return;
+        }
+    }
+
+    private static void capture(List<String> prefix) {
+        long start = System.nanoTime();
+        try {
+            byte[] appData = AppStateFixtures.pullAppData();
+            if (appData != null) {
+                captured.put(prefix, new Checkpoint(appData, screenSignature()));
+                CommandMetrics.record("checkpoint:capture", System.nanoTime() - start);
+                logger.info("Captured checkpoint after {} shared steps", prefix.size());
+            }
+        } catch (RuntimeException e) {
+            // 检查点只是加速手段，拉取失败时之后的场景照常执行
+            logger.warn("Could not capture checkpoint after {} steps: {}", prefix.size(), e.getMessage());
+            unsupported.add(prefix);
+        }
+    }
+
+    /**
+     * 界面签名：所有可见且带accessibility ID的元素及其文本，与元素位置和顺序无关
+     */
+    private static String screenSignature() {
+        PageSnapshot snapshot = PageSnapshot.parse(String.valueOf(DriverManager.getDriver().getSessionId()),
+                DriverManager.getDriver().getPageSource());
+        List<String> visible = new ArrayList<>();
+        for (PageSnapshot.Node node : snapshot.getNodes()) {
+            if (node.isVisible() && node.getAccessibilityId() != null && !node.getAccessibilityId().isEmpty()) {
+                visible.add(node.getAccessibilityId() + "=" + (node.getText() == null ? "" : node.getText()));
+            }
+        }
+        Collections.sort(visible);
+        return String.join("\n", visible);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<List<String>> plan() {
+        Set<List<String>> loaded = planned;
+        if (loaded == null) {
+            synchronized (PrefixCheckpoints.class) {
+                loaded = planned;
+                if (loaded == null) {
+                    String file = Configuration.getPrefixCheckpointPlan();
+                    Map<String, Object> plan;
+                    try {
+                        plan = new Json().toType(new String(Files.readAllBytes(Paths.get(file)),
+                                StandardCharsets.UTF_8), Map.class);
+                    } catch (IOException e) {
+                        throw new RuntimeException("Failed to read prefix checkpoint plan " + file, e);
+                    }
+                    loaded = new HashSet<>();
+                    for (Object checkpoint : (List<Object>) plan.get("checkpoints")) {
+                        loaded.add(new ArrayList<>((List<String>) ((Map<String, Object>) checkpoint).get("steps")));
+                    }
+                    logger.info("Loaded {} prefix checkpoints from {}", loaded.size(), file);
+                    planned = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private static class Checkpoint {
+        private final byte[] appData;
+        private final String signature;
+
+        private Checkpoint(byte[] appData, String signature) {
+            this.appData = appData;
+            this.signature = signature;
+        }
+    }
+
+    private static class Progress {
+        private final List<String> steps;
+        private int index = -1;
+        private int restoredThrough;
+        private boolean restoreAttempted;
+        private boolean failed;
+
+        private Progress(List<String> steps) {
+            this.steps = steps;
+        }
+    }
+}
@@ -1,23 +1,43 @@
 package com.saucelabs.framework.pages;
 
+import com.saucelabs.framework.core.Configuration;
 import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.core.UiMutations;
+import com.saucelabs.framework.utils.WaitEngine;
 import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileBy;
 import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.StaleElementReferenceException;
-import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
 
 public abstract class BasePage {
     protected AppiumDriver<WebElement> driver;
-    protected WebDriverWait wait;
     protected static final int DEFAULT_TIMEOUT = 15;
     protected static final int SHORT_TIMEOUT = 5;
+    private static final String ACCESSIBILITY_ID = "accessibility id:";
+
+    private static final ThreadLocal<CachedSnapshot> currentSnapshot = new ThreadLocal<>();
+
+    private final ElementCache elementCache;
 
     public BasePage() {
         this.driver = DriverManager.getDriver();
-        this.wait = new WebDriverWait(driver, DEFAULT_TIMEOUT);
+        this.elementCache = new ElementCache(driver);
         
         // 我们不再使用PageFactory和AppiumFieldDecorator
         // 改为在子类中直接使用driver.findElement()
@@ -33,20 +53,17 @@ public abstract class BasePage {
     }
 
     /**
-     * 根据accessibility ID查找元素，使用自定义超时时间
+     * 根据accessibility ID查找元素，使用自定义超时时间。
+     * 按代价顺序尝试accessibility ID、ID、UiAutomator/class chain和XPath，
+     * 并记住每个定位器成功的策略，参见{@link LocatorResolver}。
+     * 找到的元素缓存在页面实例中，句柄过时后自动重新定位，参见{@link ElementCache}
      * @param accessibilityId accessibility ID
      * @param timeoutInSeconds 超时时间（秒）
      * @return 找到的WebElement
      */
     protected WebElement findElementByAccessibilityId(String accessibilityId, int timeoutInSeconds) {
-        WebDriverWait customWait = new WebDriverWait(driver, timeoutInSeconds);
-        try {
-            return customWait.until(ExpectedConditions.presenceOfElementLocated(
-                    By.xpath("//*[@content-desc='" + accessibilityId + "' or @name='" + accessibilityId + "']")));
-        } catch (TimeoutException e) {
-            // 可能是元素定位问题，尝试直接使用Appium的查找方法
-            return driver.findElementByAccessibilityId(accessibilityId);
-        }
+        return elementCache.get(ACCESSIBILITY_ID + accessibilityId,
+                () -> LocatorResolver.resolve(driver, accessibilityId, timeoutInSeconds));
     }
     
     /**
@@ -59,14 +76,177 @@ public abstract class BasePage {
     }
 
     /**
-     * 根据XPath查找元素，使用自定义超时时间
+     * 根据XPath查找元素，使用自定义超时时间。
+     * 常用的XPath子集会编译为UiSelector或class chain，无法编译时仍按XPath查找，参见{@link XPathCompiler}
      * @param xpath XPath表达式
      * @param timeoutInSeconds 超时时间（秒）
      * @return 找到的WebElement
      */
     protected WebElement findElementByXPath(String xpath, int timeoutInSeconds) {
-        WebDriverWait customWait = new WebDriverWait(driver, timeoutInSeconds);
-        return customWait.until(ExpectedConditions.presenceOfElementLocated(By.xpath(xpath)));
+        return elementCache.get("xpath:" + xpath, () -> XPathCompiler.find(driver, xpath, timeoutInSeconds));
+    }
+
+    /**
+     * 获取XPath对应的定位器，用于isDisplayedNow/waitForAbsence等立即判断。
+     * 可编译的XPath使用UiSelector或class chain，参见{@link XPathCompiler#by(String)}
+     * @param xpath XPath表达式
+     * @return 定位器
+     */
+    protected By compiledBy(String xpath) {
+        return XPathCompiler.by(xpath);
+    }
+
+    /**
+     * 批量查找多个命名的accessibility ID：一次原生联合查询（UiSelector正则或class chain的IN）取回所有元素，
+     * 再按同一修改计数内的页面快照中的文档顺序在客户端拆分回各个名称，不对单个元素发请求。
+     * 快照仍然有效时总共只需一次请求
+     * @param locators 名称到accessibility ID的映射
+     * @return 名称到元素的映射，未找到的元素为Optional.empty()
+     */
+    protected Map<String, Optional<WebElement>> findElementsByAccessibilityIds(Map<String, String> locators) {
+        Set<String> ids = new LinkedHashSet<>(locators.values());
+        Map<String, WebElement> elementsById = resolveUnion(ids);
+
+        // 批量查找总是询问服务器（调用方用它判断元素是否存在），找到的元素写入缓存供之后的单个查找复用
+        Map<String, Optional<WebElement>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, String> locator : locators.entrySet()) {
+            String id = locator.getValue();
+            WebElement element = elementsById.get(id);
+            result.put(locator.getKey(), element == null ? Optional.empty() : Optional.of(elementCache.put(
+                    ACCESSIBILITY_ID + id, element, () -> LocatorResolver.resolve(driver, id, DEFAULT_TIMEOUT))));
+        }
+        return result;
+    }
+
+    /**
+     * 批量查找多个命名的accessibility ID，等待直到全部存在或超时。
+     * 轮询时只获取页面源码判断是否都已出现，之后在同一个快照上只做一次联合查询
+     * @param locators 名称到accessibility ID的映射
+     * @param timeoutInSeconds 超时时间（秒）
+     * @return 名称到元素的映射，超时后仍未找到的元素为Optional.empty()
+     */
+    protected Map<String, Optional<WebElement>> findElementsByAccessibilityIds(Map<String, String> locators,
+                                                                              int timeoutInSeconds) {
+        // 超时后返回已经出现的部分
+        waitForSnapshot(snapshot -> allExist(snapshot, locators.values()), timeoutInSeconds);
+        return findElementsByAccessibilityIds(locators);
+    }
+
+    /**
+     * 从批量查找结果中取出必需的元素
+     * @param found 批量查找结果
+     * @param name 元素名称
+     * @return 元素
+     */
+    protected static WebElement required(Map<String, Optional<WebElement>> found, String name) {
+        Optional<WebElement> element = found.get(name);
+        if (element == null || !element.isPresent()) {
+            throw new NoSuchElementException("Element '" + name + "' was not found");
+        }
+        return element.get();
+    }
+
+    private Map<String, WebElement> resolveUnion(Set<String> ids) {
+        String sessionId = String.valueOf(driver.getSessionId());
+        long generation = UiMutations.generation(sessionId);
+        boolean android = Configuration.isAndroid();
+        // 联合查询按文档顺序返回元素，快照给出同样顺序中每个匹配元素的ID
+        List<String> expected = new ArrayList<>();
+        for (PageSnapshot.Node node : snapshot().getNodes()) {
+            String id = android ? node.getContentDesc() : node.getName();
+            if (id != null && ids.contains(id)) {
+                expected.add(id);
+            }
+        }
+
+        Map<String, WebElement> elementsById = new HashMap<>();
+        By union = accessibilityIdUnion(ids, android);
+        if (union != null) {
+            List<WebElement> found = driver.findElements(union);
+            if (found.size() == expected.size() && UiMutations.generation(sessionId) == generation) {
+                for (int i = 0; i < found.size(); i++) {
+                    elementsById.putIfAbsent(expected.get(i), found.get(i));
+                }
+                return elementsById;
+            }
+            // 应用在快照之后自行改变了界面，数量对不上时不能按位置对应
+            invalidateSnapshot();
+        }
+        for (String id : ids) {
+            List<WebElement> found = driver.findElements(LocatorStrategy.ACCESSIBILITY_ID.toBy(id));
+            if (!found.isEmpty()) {
+                elementsById.put(id, found.get(0));
+            }
+        }
+        return elementsById;
+    }
+
+    /**
+     * 匹配任一accessibility ID的原生定位器：Android为descriptionMatches正则，iOS为class chain的IN条件
+     * @param ids accessibility ID
+     * @param android 是否为Android
+     * @return 定位器，ID无法写入class chain（包含反引号）时返回null
+     */
+    static By accessibilityIdUnion(Collection<String> ids, boolean android) {
+        StringBuilder alternatives = new StringBuilder();
+        for (String id : ids) {
+            if (alternatives.length() > 0) {
+                alternatives.append(android ? "|" : ", ");
+            }
+            if (android) {
+                for (char c : id.toCharArray()) {
+                    if (!Character.isLetterOrDigit(c)) {
+                        alternatives.append('\\');
+                    }
+                    alternatives.append(c);
+                }
+            } else if (id.indexOf('`') >= 0) {
+                return null;
+            } else {
+                alternatives.append(javaString(id));
+            }
+        }
+        if (android) {
+            return MobileBy.AndroidUIAutomator(
+                    "new UiSelector().descriptionMatches(" + javaString("^(?:" + alternatives + ")$") + ")");
+        }
+        return MobileBy.iOSClassChain("**/*[`name IN {" + alternatives + "}`]");
+    }
+
+    private static String javaString(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    /**
+     * 把字符串转换为XPath字符串字面量，同时包含单引号和双引号时使用concat()
+     * @param value 字符串
+     * @return XPath字面量
+     */
+    static String xpathLiteral(String value) {
+        if (value.indexOf('\'') < 0) {
+            return "'" + value + "'";
+        }
+        if (value.indexOf('"') < 0) {
+            return "\"" + value + "\"";
+        }
+        StringBuilder literal = new StringBuilder("concat(");
+        String[] parts = value.split("'", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i > 0) {
+                literal.append(", \"'\", ");
+            }
+            literal.append('\'').append(parts[i]).append('\'');
+        }
+        return literal.append(')').toString();
+    }
+
+    private static boolean allExist(PageSnapshot snapshot, Collection<String> accessibilityIds) {
+        for (String accessibilityId : accessibilityIds) {
+            if (!snapshot.exists(accessibilityId)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -74,7 +254,7 @@ public abstract class BasePage {
      * @param element The element to click
      */
     protected void click(WebElement element) {
-        wait.until(ExpectedConditions.elementToBeClickable(element)).click();
+        WaitEngine.until("clickable", ExpectedConditions.elementToBeClickable(element), DEFAULT_TIMEOUT).click();
     }
 
     /**
@@ -83,7 +263,7 @@ public abstract class BasePage {
      * @param text The text to send
      */
     protected void sendKeys(WebElement element, String text) {
-        wait.until(ExpectedConditions.visibilityOf(element)).sendKeys(text);
+        WaitEngine.until("visibility", ExpectedConditions.visibilityOf(element), DEFAULT_TIMEOUT).sendKeys(text);
     }
 
     /**
@@ -101,8 +281,7 @@ public abstract class BasePage {
      */
     protected void waitForVisibility(WebElement element, int timeoutInSeconds) {
         try {
-            WebDriverWait customWait = new WebDriverWait(driver, timeoutInSeconds);
-            customWait.until(ExpectedConditions.visibilityOf(element));
+            WaitEngine.until("visibility", ExpectedConditions.visibilityOf(element), timeoutInSeconds);
         } catch (StaleElementReferenceException e) {
             // 元素已过时，尝试重新查找（通常发生在页面刷新或重新加载后）
             System.out.println("StaleElementReferenceException occurred. Element is no longer attached to DOM.");
@@ -123,8 +302,7 @@ public abstract class BasePage {
      * @param timeoutInSeconds 超时时间（秒）
      */
     protected void waitForClickability(WebElement element, int timeoutInSeconds) {
-        WebDriverWait customWait = new WebDriverWait(driver, timeoutInSeconds);
-        customWait.until(ExpectedConditions.elementToBeClickable(element));
+        WaitEngine.until("clickable", ExpectedConditions.elementToBeClickable(element), timeoutInSeconds);
     }
 
     /**
@@ -163,7 +341,7 @@ public abstract class BasePage {
      * @return The text of the element
      */
     protected String getText(WebElement element) {
-        return wait.until(ExpectedConditions.visibilityOf(element)).getText();
+        return WaitEngine.until("visibility", ExpectedConditions.visibilityOf(element), DEFAULT_TIMEOUT).getText();
     }
 
     /**
@@ -173,17 +351,177 @@ public abstract class BasePage {
      */
     protected boolean isElementDisplayed(WebElement element) {
         try {
-            return element.isDisplayed();
+            // 缓存的元素过时后会重新定位并等待，判断是否显示时过时的句柄直接视为不显示
+            WebElement handle = element instanceof WrapsElement ? ((WrapsElement) element).getWrappedElement() : element;
+            return handle.isDisplayed();
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * 立即判断元素是否存在，不等待。
+     * 总是发一次findElements反映当前界面，不使用缓存的快照：应用自身的异步变化不会使快照失效
+     * （隐式等待固定为0，元素不存在时服务器立即返回空列表）
+     * @param accessibilityId accessibility ID
+     * @return 存在时返回true
+     */
+    protected boolean isPresent(String accessibilityId) {
+        return isPresent(LocatorStrategy.ACCESSIBILITY_ID.toBy(accessibilityId));
+    }
+
+    /**
+     * 立即判断元素是否存在，只发一次findElements，不等待
+     * @param locator 定位器
+     * @return 存在时返回true
+     */
+    protected boolean isPresent(By locator) {
+        return !driver.findElements(locator).isEmpty();
+    }
+
+    /**
+     * 立即判断是否有匹配的元素正在显示，不等待
+     * @param locator 定位器
+     * @return 有可见的匹配元素时返回true
+     */
+    protected boolean isDisplayedNow(By locator) {
+        for (WebElement element : driver.findElements(locator)) {
+            if (isElementDisplayed(element)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 等待元素在毫秒级期限内消失（或本来就不存在），每次轮询只发一次findElements
+     * @param accessibilityId accessibility ID
+     * @param timeoutInMillis 期限（毫秒）
+     * @return 期限内不存在时返回true
+     */
+    protected boolean waitForAbsence(String accessibilityId, long timeoutInMillis) {
+        return waitForAbsence(LocatorStrategy.ACCESSIBILITY_ID.toBy(accessibilityId), timeoutInMillis);
+    }
+
+    /**
+     * 等待元素在毫秒级期限内消失（或本来就不存在），每次轮询只发一次findElements
+     * @param locator 定位器
+     * @param timeoutInMillis 期限（毫秒）
+     * @return 期限内不存在时返回true
+     */
+    protected boolean waitForAbsence(By locator, long timeoutInMillis) {
+        if (!isPresent(locator)) {
+            return true;
+        }
+        try {
+            WaitEngine.untilMillis("absence", d -> d.findElements(locator).isEmpty(), timeoutInMillis);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
     /**
      * Wait for element to disappear
      * @param by The locator of the element to wait for
      */
     protected void waitForElementToDisappear(By by) {
-        wait.until(ExpectedConditions.invisibilityOfElementLocated(by));
+        WaitEngine.until("invisibility", ExpectedConditions.invisibilityOfElementLocated(by), DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * 获取当前页面的快照：一次getPageSource()调用后在本地回答查询。
+     * 快照在同一会话内缓存，直到有修改界面的操作使其失效
+     * @return 页面快照
+     */
+    protected PageSnapshot snapshot() {
+        PageSnapshot snapshot = currentSnapshot();
+        if (snapshot == null) {
+            String sessionId = String.valueOf(driver.getSessionId());
+            // 先读取计数再获取页面源码，获取期间发生的修改会使这份快照失效
+            long generation = UiMutations.generation(sessionId);
+            snapshot = PageSnapshot.parse(sessionId, driver.getPageSource());
+            currentSnapshot.set(new CachedSnapshot(snapshot, generation));
+        }
+        return snapshot;
+    }
+
+    /**
+     * 获取当前线程仍然有效的页面快照，不请求服务器
+     * @return 快照，没有、属于其他会话或之后执行过修改界面的命令时返回null
+     */
+    private PageSnapshot currentSnapshot() {
+        CachedSnapshot cached = currentSnapshot.get();
+        if (cached == null) {
+            return null;
+        }
+        String sessionId = String.valueOf(driver.getSessionId());
+        if (!cached.snapshot.getSessionId().equals(sessionId)
+                || cached.generation != UiMutations.generation(sessionId)) {
+            currentSnapshot.remove();
+            return null;
+        }
+        return cached.snapshot;
+    }
+
+    /**
+     * 等待页面快照满足条件，每次轮询重新获取一次页面源码
+     * @param condition 快照上的条件
+     * @param timeoutInSeconds 超时时间（秒）
+     * @return 条件在超时前满足则返回true
+     */
+    protected boolean waitForSnapshot(Predicate<PageSnapshot> condition, int timeoutInSeconds) {
+        try {
+            return WaitEngine.until("snapshot", d -> {
+                invalidateSnapshot();
+                return condition.test(snapshot());
+            }, timeoutInSeconds);
+        } catch (TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 等待多个互斥的结果中最先出现的一个，例如登录后是商品页还是错误消息。
+     * 每次轮询只获取一次页面源码，所有条件在同一个快照上按顺序判断，
+     * 因此分支流程只需等待应用实际花费的时间，而不是猜错一个分支时的完整超时
+     * @param outcomes 结果到快照条件的映射，同一快照上多个条件成立时取迭代顺序中的第一个
+     * @param timeoutInSeconds 超时时间（秒）
+     * @return 最先出现的结果
+     * @throws TimeoutException 超时前没有任何结果出现
+     */
+    protected <K> K waitForFirst(Map<K, Predicate<PageSnapshot>> outcomes, int timeoutInSeconds) {
+        try {
+            return WaitEngine.until("race", d -> {
+                invalidateSnapshot();
+                PageSnapshot current = snapshot();
+                for (Map.Entry<K, Predicate<PageSnapshot>> outcome : outcomes.entrySet()) {
+                    if (outcome.getValue().test(current)) {
+                        return outcome.getKey();
+                    }
+                }
+                return null;
+            }, timeoutInSeconds);
+        } catch (TimeoutException e) {
+            throw new TimeoutException("None of " + outcomes.keySet() + " appeared within " + timeoutInSeconds + " s", e);
+        }
+    }
+
+    /**
+     * 使当前线程的页面快照失效，用于轮询时强制重新获取页面源码。
+     * 通过driver执行的修改界面的命令会自动使快照失效，参见{@link UiMutations}
+     */
+    protected static void invalidateSnapshot() {
+        currentSnapshot.remove();
+    }
+
+    private static class CachedSnapshot {
+        private final PageSnapshot snapshot;
+        private final long generation;
+
+        private CachedSnapshot(PageSnapshot snapshot, long generation) {
+            this.snapshot = snapshot;
+            this.generation = generation;
+        }
     }
-} 
\ No newline at end of file
+}
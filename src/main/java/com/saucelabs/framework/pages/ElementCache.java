@@ -0,0 +1,280 @@
+package com.saucelabs.framework.pages;
+
+import com.saucelabs.framework.core.UiMutations;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.interactions.Coordinates;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 页面对象实例内的元素句柄缓存。
+ * 同一定位器第二次查找时直接返回已找到的句柄，不再请求服务器；句柄由{@link CachedElement}包装，
+ * 界面跳转等导致句柄过时（StaleElementReferenceException）时用原来的查找方式重新定位并重试该操作。
+ * 会话变化或执行过可能改变界面结构的命令（点击、跳转、重启应用等，参见{@link UiMutations#layoutGeneration}）后
+ * 整个缓存失效：新界面上相同ID的元素不一定使旧句柄过时，不能继续使用旧句柄。
+ * 命中率等统计在JVM退出时写入 target/element-cache.json。
+ */
+public class ElementCache {
+    private static final Logger logger = LoggerFactory.getLogger(ElementCache.class);
+    private static final Path REPORT = Paths.get("target", "element-cache.json");
+
+    private static final AtomicLong hits = new AtomicLong();
+    private static final AtomicLong misses = new AtomicLong();
+    private static final AtomicLong seeded = new AtomicLong();
+    private static final AtomicLong revalidations = new AtomicLong();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ElementCache::writeReport, "element-cache-report"));
+    }
+
+    private final AppiumDriver<WebElement> driver;
+    private final Map<String, CachedElement> elements = new HashMap<>();
+    private String sessionId;
+    private long layoutGeneration;
+
+    /**
+     * @param driver 页面对象使用的driver
+     */
+    ElementCache(AppiumDriver<WebElement> driver) {
+        this.driver = driver;
+    }
+
+    /**
+     * 获取缓存的元素，未缓存时查找并缓存
+     * @param key 定位器，例如 "accessibility id:test-Username"
+     * @param finder 查找方式，句柄过时后也用它重新定位
+     * @return 包装后的元素
+     */
+    WebElement get(String key, Supplier<WebElement> finder) {
+        checkValid();
+        CachedElement cached = elements.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+        misses.incrementAndGet();
+        cached = new CachedElement(key, finder, finder.get());
+        elements.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * 缓存其他方式（例如批量查找）得到的元素
+     * @param key 定位器
+     * @param element 已找到的元素
+     * @param finder 句柄过时后重新定位的方式
+     * @return 包装后的元素
+     */
+    WebElement put(String key, WebElement element, Supplier<WebElement> finder) {
+        checkValid();
+        CachedElement cached = elements.get(key);
+        if (cached != null) {
+            cached.handle = unwrap(element);
+            return cached;
+        }
+        seeded.incrementAndGet();
+        cached = new CachedElement(key, finder, unwrap(element));
+        elements.put(key, cached);
+        return cached;
+    }
+
+    /**
+     * 获取缓存统计信息
+     * @return 命中、未命中、批量查找写入和过时后重新定位的次数，以及命中率
+     */
+    public static Map<String, Object> getStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        long hitCount = hits.get();
+        long lookups = hitCount + misses.get();
+        statistics.put("hits", hitCount);
+        statistics.put("misses", misses.get());
+        statistics.put("seeded", seeded.get());
+        statistics.put("revalidations", revalidations.get());
+        statistics.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        return statistics;
+    }
+
+    private void checkValid() {
+        String current = String.valueOf(driver.getSessionId());
+        long generation = UiMutations.layoutGeneration(current);
+        if (!current.equals(sessionId) || generation != layoutGeneration) {
+            elements.clear();
+            sessionId = current;
+            layoutGeneration = generation;
+        }
+    }
+
+    private static WebElement unwrap(WebElement element) {
+        return element instanceof CachedElement ? ((CachedElement) element).handle : element;
+    }
+
+    private static void writeReport() {
+        if (hits.get() + misses.get() + seeded.get() == 0) {
+            return;
+        }
+        try {
+            Files.createDirectories(REPORT.getParent());
+            Files.write(REPORT, new Json().toJson(getStatistics()).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Failed to write {}", REPORT, e);
+        }
+    }
+
+    /**
+     * 缓存中的元素：所有操作委托给当前句柄，句柄过时时重新定位一次后重试
+     */
+    private static class CachedElement implements WebElement, WrapsElement, Locatable {
+        private final String key;
+        private final Supplier<WebElement> finder;
+        private WebElement handle;
+
+        private CachedElement(String key, Supplier<WebElement> finder, WebElement handle) {
+            this.key = key;
+            this.finder = finder;
+            this.handle = unwrap(handle);
+        }
+
+        private <T> T call(Function<WebElement, T> action) {
+            try {
+                return action.apply(handle);
+            } catch (StaleElementReferenceException e) {
+                revalidations.incrementAndGet();
+                logger.debug("Cached element {} is stale, locating it again", key);
+                handle = unwrap(finder.get());
+                return action.apply(handle);
+            }
+        }
+
+        private void run(Consumer<WebElement> action) {
+            call(element -> {
+                action.accept(element);
+                return null;
+            });
+        }
+
+        @Override
+        public WebElement getWrappedElement() {
+            return handle;
+        }
+
+        @Override
+        public void click() {
+            run(WebElement::click);
+        }
+
+        @Override
+        public void submit() {
+            run(WebElement::submit);
+        }
+
+        @Override
+        public void sendKeys(CharSequence... keysToSend) {
+            run(element -> element.sendKeys(keysToSend));
+        }
+
+        @Override
+        public void clear() {
+            run(WebElement::clear);
+        }
+
+        @Override
+        public String getTagName() {
+            return call(WebElement::getTagName);
+        }
+
+        @Override
+        public String getAttribute(String name) {
+            return call(element -> element.getAttribute(name));
+        }
+
+        @Override
+        public boolean isSelected() {
+            return call(WebElement::isSelected);
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return call(WebElement::isEnabled);
+        }
+
+        @Override
+        public String getText() {
+            return call(WebElement::getText);
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            return call(element -> element.findElements(by));
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            return call(element -> element.findElement(by));
+        }
+
+        @Override
+        public boolean isDisplayed() {
+            return call(WebElement::isDisplayed);
+        }
+
+        @Override
+        public Point getLocation() {
+            return call(WebElement::getLocation);
+        }
+
+        @Override
+        public Dimension getSize() {
+            return call(WebElement::getSize);
+        }
+
+        @Override
+        public Rectangle getRect() {
+            return call(WebElement::getRect);
+        }
+
+        @Override
+        public String getCssValue(String propertyName) {
+            return call(element -> element.getCssValue(propertyName));
+        }
+
+        @Override
+        public <X> X getScreenshotAs(OutputType<X> target) throws WebDriverException {
+            return call(element -> element.getScreenshotAs(target));
+        }
+
+        @Override
+        public Coordinates getCoordinates() {
+            return call(element -> ((Locatable) element).getCoordinates());
+        }
+
+        @Override
+        public String toString() {
+            return "Cached[" + key + "] " + handle;
+        }
+    }
+}
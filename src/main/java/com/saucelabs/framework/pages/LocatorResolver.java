@@ -0,0 +1,122 @@
+package com.saucelabs.framework.pages;
+
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.utils.WaitEngine;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebElement;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按代价顺序尝试各查找策略，并按定位器和平台记住成功的策略，
+ * 之后的查找在超时前只轮询记住的策略，超时后才把其余策略完整尝试一次。
+ */
+public class LocatorResolver {
+    private static final Map<String, LocatorStrategy> rememberedStrategies = new ConcurrentHashMap<>();
+    private static final Map<LocatorStrategy, AtomicLong> strategyHits = counters();
+    private static final Map<LocatorStrategy, AtomicLong> strategyMisses = counters();
+    private static final AtomicLong rememberedHits = new AtomicLong();
+    private static final AtomicLong rememberedMisses = new AtomicLong();
+
+    private LocatorResolver() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 查找accessibility ID对应的元素，由WaitEngine在超时前反复尝试。
+     * 已记住策略时每次轮询只发一次该策略的查找，等待尚未出现的元素不会反复付出XPath的代价
+     * @param driver 当前driver
+     * @param accessibilityId accessibility ID
+     * @param timeoutInSeconds 超时时间（秒）
+     * @return 找到的WebElement
+     */
+    public static WebElement resolve(AppiumDriver<WebElement> driver, String accessibilityId, int timeoutInSeconds) {
+        String key = Configuration.getPlatform() + ":" + accessibilityId;
+        LocatorStrategy remembered = rememberedStrategies.get(key);
+        if (remembered == null) {
+            return WaitEngine.until("locate", d -> cascade(driver, key, accessibilityId, null), timeoutInSeconds);
+        }
+        try {
+            WebElement element = WaitEngine.until("locate",
+                    d -> tryStrategy(driver, remembered, accessibilityId), timeoutInSeconds);
+            rememberedHits.incrementAndGet();
+            return element;
+        } catch (TimeoutException e) {
+            rememberedMisses.incrementAndGet();
+            // 记住的策略失效（例如应用更新了定位属性）时，其余策略只尝试一次
+            WebElement element = cascade(driver, key, accessibilityId, remembered);
+            if (element == null) {
+                throw e;
+            }
+            return element;
+        }
+    }
+
+    /**
+     * 按代价顺序把各策略各尝试一次，命中的策略被记住
+     * @param skipped 已经尝试过、本次跳过的策略，可以为null
+     * @return 找到的元素，未找到时返回null
+     */
+    private static WebElement cascade(AppiumDriver<WebElement> driver, String key, String accessibilityId,
+                                      LocatorStrategy skipped) {
+        for (LocatorStrategy strategy : LocatorStrategy.values()) {
+            if (strategy == skipped) {
+                continue;
+            }
+            WebElement element = tryStrategy(driver, strategy, accessibilityId);
+            if (element != null) {
+                rememberedStrategies.put(key, strategy);
+                return element;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 获取查找统计信息
+     * @return 各策略命中/未命中次数以及记忆策略的命中率
+     */
+    public static Map<String, Long> getStatistics() {
+        Map<String, Long> statistics = new LinkedHashMap<>();
+        for (LocatorStrategy strategy : LocatorStrategy.values()) {
+            statistics.put(strategy.name() + ".hits", strategyHits.get(strategy).get());
+            statistics.put(strategy.name() + ".misses", strategyMisses.get(strategy).get());
+        }
+        statistics.put("remembered.hits", rememberedHits.get());
+        statistics.put("remembered.misses", rememberedMisses.get());
+        statistics.put("remembered.locators", (long) rememberedStrategies.size());
+        return statistics;
+    }
+
+    private static WebElement tryStrategy(AppiumDriver<WebElement> driver, LocatorStrategy strategy, String accessibilityId) {
+        List<WebElement> elements;
+        try {
+            elements = driver.findElements(strategy.toBy(accessibilityId));
+        } catch (NoSuchElementException e) {
+            // 驱动不支持的策略（例如iOS上的ID）抛出InvalidSelectorException，它是NoSuchElementException的子类，视为未命中；
+            // 会话失效、服务器错误等其他异常直接抛出，不变成等满超时
+            elements = null;
+        }
+        if (elements == null || elements.isEmpty()) {
+            strategyMisses.get(strategy).incrementAndGet();
+            return null;
+        }
+        strategyHits.get(strategy).incrementAndGet();
+        return elements.get(0);
+    }
+
+    private static Map<LocatorStrategy, AtomicLong> counters() {
+        Map<LocatorStrategy, AtomicLong> counters = new EnumMap<>(LocatorStrategy.class);
+        for (LocatorStrategy strategy : LocatorStrategy.values()) {
+            counters.put(strategy, new AtomicLong());
+        }
+        return counters;
+    }
+}
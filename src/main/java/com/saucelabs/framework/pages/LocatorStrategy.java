@@ -0,0 +1,45 @@
+package com.saucelabs.framework.pages;
+
+import com.saucelabs.framework.core.Configuration;
+import io.appium.java_client.MobileBy;
+import org.openqa.selenium.By;
+
+/**
+ * 按accessibility ID定位元素时可用的查找策略，按服务器端查找代价从低到高排列
+ */
+public enum LocatorStrategy {
+    ACCESSIBILITY_ID {
+        @Override
+        By toBy(String accessibilityId) {
+            return MobileBy.AccessibilityId(accessibilityId);
+        }
+    },
+    ID {
+        @Override
+        By toBy(String accessibilityId) {
+            return By.id(accessibilityId);
+        }
+    },
+    NATIVE {
+        @Override
+        By toBy(String accessibilityId) {
+            if (Configuration.isAndroid()) {
+                return MobileBy.AndroidUIAutomator("new UiSelector().description(\"" + accessibilityId + "\")");
+            }
+            return MobileBy.iOSClassChain("**/*[`name == \"" + accessibilityId + "\"`]");
+        }
+    },
+    XPATH {
+        @Override
+        By toBy(String accessibilityId) {
+            return By.xpath("//*[@content-desc='" + accessibilityId + "' or @name='" + accessibilityId + "']");
+        }
+    };
+
+    /**
+     * 将accessibility ID转换为此策略的定位器
+     * @param accessibilityId accessibility ID
+     * @return 定位器
+     */
+    abstract By toBy(String accessibilityId);
+}
@@ -0,0 +1,11 @@
+package com.saucelabs.framework.pages;
+
+/**
+ * 点击登录按钮之后应用可能到达的界面
+ */
+public enum LoginOutcome {
+    /** 登录成功，显示商品页 */
+    PRODUCTS,
+    /** 登录失败，登录界面上显示错误消息 */
+    LOGIN_ERROR
+}
@@ -6,10 +6,16 @@ import com.saucelabs.framework.pages.android.ProductsPageAndroid;
 import com.saucelabs.framework.pages.ios.LoginPageIOS;
 import com.saucelabs.framework.pages.ios.ProductsPageIOS;
 
+import java.util.Arrays;
+
 /**
  * Factory class to get the appropriate page objects based on the platform.
  */
 public class PageFactory {
+    private static final ScreenRecognizer ANDROID_SCREENS = new ScreenRecognizer(Arrays.asList(
+            LoginPageAndroid.SIGNATURE, ProductsPageAndroid.SIGNATURE));
+    private static final ScreenRecognizer IOS_SCREENS = new ScreenRecognizer(Arrays.asList(
+            LoginPageIOS.SIGNATURE, ProductsPageIOS.SIGNATURE));
 
     /**
      * Get the login page for the current platform
@@ -38,4 +44,35 @@ public class PageFactory {
             throw new RuntimeException("Unsupported platform: " + Configuration.getPlatform());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Get the screen recognizer for the current platform, with every page signature registered
+     * @return The recognizer
+     */
+    public static ScreenRecognizer getScreenRecognizer() {
+        if (Configuration.isAndroid()) {
+            return ANDROID_SCREENS;
+        } else if (Configuration.isIOS()) {
+            return IOS_SCREENS;
+        } else {
+            throw new RuntimeException("Unsupported platform: " + Configuration.getPlatform());
+        }
+    }
+
+    /**
+     * Recognize the current screen from a single page source fetch
+     * @return The signature of the current screen, or null if no registered screen matches
+     */
+    public static ScreenSignature getCurrentScreen() {
+        return getScreenRecognizer().recognize();
+    }
+
+    /**
+     * Get the page object for whatever screen is currently displayed
+     * @return The page object, or null if no registered screen matches
+     */
+    public static BasePage getCurrentPage() {
+        ScreenSignature screen = getCurrentScreen();
+        return screen == null ? null : screen.createPage();
+    }
+}
@@ -0,0 +1,303 @@
+package com.saucelabs.framework.pages;
+
+import org.openqa.selenium.Rectangle;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一次getPageSource()得到的界面层级的内存索引。
+ * 使用流式解析器解析，按content-desc/name、resource-id和class建立索引，
+ * 在本地回答存在性、可见性、位置和文本查询，不再逐个元素请求Appium服务器。
+ */
+public class PageSnapshot {
+    private static final XMLInputFactory XML_INPUT_FACTORY = createInputFactory();
+
+    private final String sessionId;
+    private final List<Node> nodes;
+    private final Map<String, List<Node>> byAccessibilityId = new HashMap<>();
+    private final Map<String, List<Node>> byResourceId = new HashMap<>();
+    private final Map<String, List<Node>> byClassName = new HashMap<>();
+
+    private PageSnapshot(String sessionId, List<Node> nodes) {
+        this.sessionId = sessionId;
+        this.nodes = Collections.unmodifiableList(nodes);
+        for (Node node : nodes) {
+            index(byAccessibilityId, node.contentDesc, node);
+            if (node.name != null && !node.name.equals(node.contentDesc)) {
+                index(byAccessibilityId, node.name, node);
+            }
+            index(byResourceId, node.resourceId, node);
+            index(byClassName, node.className, node);
+        }
+    }
+
+    /**
+     * 解析页面源码
+     * @param sessionId 页面源码所属的会话
+     * @param pageSource Android或iOS的页面源码XML
+     * @return 快照
+     */
+    public static PageSnapshot parse(String sessionId, String pageSource) {
+        List<Node> nodes = new ArrayList<>();
+        Deque<Node> ancestors = new ArrayDeque<>();
+        try {
+            XMLStreamReader reader = XML_INPUT_FACTORY.createXMLStreamReader(new StringReader(pageSource));
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        Node node = new Node(nodes.size(), ancestors.peek(), reader);
+                        nodes.add(node);
+                        ancestors.push(node);
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        ancestors.pop();
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new RuntimeException("Failed to parse page source", e);
+        }
+        return new PageSnapshot(sessionId, nodes);
+    }
+
+    /**
+     * @return 快照所属的会话ID
+     */
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * @return 按文档顺序排列的所有节点
+     */
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 检查accessibility ID（Android的content-desc，iOS的name）对应的元素是否存在
+     * @param accessibilityId accessibility ID
+     * @return 存在则返回true
+     */
+    public boolean exists(String accessibilityId) {
+        return findByAccessibilityId(accessibilityId) != null;
+    }
+
+    /**
+     * 检查accessibility ID对应的元素是否可见
+     * @param accessibilityId accessibility ID
+     * @return 可见则返回true
+     */
+    public boolean isVisible(String accessibilityId) {
+        Node node = findByAccessibilityId(accessibilityId);
+        return node != null && node.isVisible();
+    }
+
+    /**
+     * 检查所有accessibility ID对应的元素是否都可见
+     * @param accessibilityIds accessibility ID列表
+     * @return 全部可见则返回true
+     */
+    public boolean areAllVisible(String... accessibilityIds) {
+        for (String accessibilityId : accessibilityIds) {
+            if (!isVisible(accessibilityId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 获取accessibility ID对应元素的位置和大小
+     * @param accessibilityId accessibility ID
+     * @return 位置和大小，元素不存在时返回null
+     */
+    public Rectangle getBounds(String accessibilityId) {
+        Node node = findByAccessibilityId(accessibilityId);
+        return node == null ? null : node.getBounds();
+    }
+
+    /**
+     * 获取accessibility ID对应元素的文本
+     * @param accessibilityId accessibility ID
+     * @return 文本，元素不存在时返回null
+     */
+    public String getText(String accessibilityId) {
+        Node node = findByAccessibilityId(accessibilityId);
+        return node == null ? null : node.getText();
+    }
+
+    /**
+     * @param accessibilityId accessibility ID
+     * @return 第一个匹配的节点，不存在时返回null
+     */
+    public Node findByAccessibilityId(String accessibilityId) {
+        return first(byAccessibilityId, accessibilityId);
+    }
+
+    /**
+     * @param resourceId Android的resource-id
+     * @return 第一个匹配的节点，不存在时返回null
+     */
+    public Node findByResourceId(String resourceId) {
+        return first(byResourceId, resourceId);
+    }
+
+    /**
+     * @param className 元素类名，例如 android.widget.TextView 或 XCUIElementTypeStaticText
+     * @return 所有匹配的节点
+     */
+    public List<Node> findAllByClassName(String className) {
+        List<Node> matches = byClassName.get(className);
+        return matches == null ? Collections.<Node>emptyList() : matches;
+    }
+
+    private static Node first(Map<String, List<Node>> index, String key) {
+        List<Node> matches = index.get(key);
+        return matches == null ? null : matches.get(0);
+    }
+
+    private static void index(Map<String, List<Node>> index, String key, Node node) {
+        if (key != null && !key.isEmpty()) {
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(node);
+        }
+    }
+
+    private static XMLInputFactory createInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        return factory;
+    }
+
+    /**
+     * 快照中的单个界面元素
+     */
+    public static class Node {
+        private final int index;
+        private final Node parent;
+        private final String className;
+        private final String contentDesc;
+        private final String name;
+        private final String resourceId;
+        private final String text;
+        private final boolean visible;
+        private final Rectangle bounds;
+
+        private Node(int index, Node parent, XMLStreamReader reader) {
+            this.index = index;
+            this.parent = parent;
+            String classAttribute = reader.getAttributeValue(null, "class");
+            String typeAttribute = reader.getAttributeValue(null, "type");
+            this.className = classAttribute != null ? classAttribute
+                    : typeAttribute != null ? typeAttribute : reader.getLocalName();
+            this.contentDesc = reader.getAttributeValue(null, "content-desc");
+            this.name = reader.getAttributeValue(null, "name");
+            this.resourceId = reader.getAttributeValue(null, "resource-id");
+
+            String textAttribute = reader.getAttributeValue(null, "text");
+            if (textAttribute == null) {
+                textAttribute = reader.getAttributeValue(null, "value");
+            }
+            if (textAttribute == null) {
+                textAttribute = reader.getAttributeValue(null, "label");
+            }
+            this.text = textAttribute;
+
+            String displayed = reader.getAttributeValue(null, "displayed");
+            if (displayed == null) {
+                displayed = reader.getAttributeValue(null, "visible");
+            }
+            this.visible = displayed == null || Boolean.parseBoolean(displayed);
+            this.bounds = parseBounds(reader);
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * @return 父节点，根节点返回null
+         */
+        public Node getParent() {
+            return parent;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getContentDesc() {
+            return contentDesc;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getResourceId() {
+            return resourceId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public boolean isVisible() {
+            return visible;
+        }
+
+        /**
+         * @return 位置和大小，页面源码中没有时返回null
+         */
+        public Rectangle getBounds() {
+            return bounds;
+        }
+
+        /**
+         * @return accessibility ID：Android的content-desc，iOS的name
+         */
+        public String getAccessibilityId() {
+            return contentDesc != null ? contentDesc : name;
+        }
+
+        private static Rectangle parseBounds(XMLStreamReader reader) {
+            String androidBounds = reader.getAttributeValue(null, "bounds");
+            try {
+                if (androidBounds != null) {
+                    // 格式: [left,top][right,bottom]
+                    String[] parts = androidBounds.replace("][", ",").replace("[", "").replace("]", "").split(",");
+                    int left = Integer.parseInt(parts[0]);
+                    int top = Integer.parseInt(parts[1]);
+                    int right = Integer.parseInt(parts[2]);
+                    int bottom = Integer.parseInt(parts[3]);
+                    return new Rectangle(left, top, bottom - top, right - left);
+                }
+                String x = reader.getAttributeValue(null, "x");
+                if (x != null) {
+                    return new Rectangle(Integer.parseInt(x),
+                            Integer.parseInt(reader.getAttributeValue(null, "y")),
+                            Integer.parseInt(reader.getAttributeValue(null, "height")),
+                            Integer.parseInt(reader.getAttributeValue(null, "width")));
+                }
+            } catch (RuntimeException e) {
+                // 位置信息格式异常时忽略
+            }
+            return null;
+        }
+    }
+}
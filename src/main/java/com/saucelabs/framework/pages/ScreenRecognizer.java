@@ -0,0 +1,96 @@
+package com.saucelabs.framework.pages;
+
+import com.saucelabs.framework.core.CommandMetrics;
+import com.saucelabs.framework.core.DriverManager;
+import io.appium.java_client.AppiumDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 根据一次getPageSource()识别当前界面。
+ * 构造时把所有签名编译成倒排索引（accessibility ID → 需要它可见的签名），识别时只遍历一次快照中的可见节点，
+ * 为每个签名累计命中的必需元素，全部命中且排除的元素都不存在的签名即为候选；多个候选时取必需元素最多、
+ * 即最具体的签名，相同时取注册顺序靠前的。识别耗时按 "recognize" 记录到{@link CommandMetrics}。
+ */
+public class ScreenRecognizer {
+    private final List<ScreenSignature> signatures;
+    private final Map<String, int[]> index = new HashMap<>();
+
+    /**
+     * @param signatures 要识别的界面签名
+     */
+    public ScreenRecognizer(List<ScreenSignature> signatures) {
+        this.signatures = Collections.unmodifiableList(new ArrayList<>(signatures));
+        Map<String, List<Integer>> building = new HashMap<>();
+        for (int i = 0; i < this.signatures.size(); i++) {
+            for (String accessibilityId : this.signatures.get(i).getVisible()) {
+                List<Integer> owners = building.computeIfAbsent(accessibilityId, k -> new ArrayList<>(1));
+                if (!owners.contains(i)) {
+                    owners.add(i);
+                }
+            }
+        }
+        for (Map.Entry<String, List<Integer>> entry : building.entrySet()) {
+            index.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+        }
+    }
+
+    /**
+     * @return 注册的签名
+     */
+    public List<ScreenSignature> getSignatures() {
+        return signatures;
+    }
+
+    /**
+     * 获取一次页面源码并识别当前界面
+     * @return 当前界面的签名，无法识别时返回null
+     */
+    public ScreenSignature recognize() {
+        long start = System.nanoTime();
+        AppiumDriver<WebElement> driver = DriverManager.getDriver();
+        ScreenSignature screen = recognize(PageSnapshot.parse(String.valueOf(driver.getSessionId()),
+                driver.getPageSource()));
+        CommandMetrics.record("recognize", System.nanoTime() - start);
+        return screen;
+    }
+
+    /**
+     * 在已有的快照上识别界面，不请求服务器
+     * @param snapshot 页面快照
+     * @return 当前界面的签名，无法识别时返回null
+     */
+    public ScreenSignature recognize(PageSnapshot snapshot) {
+        int[] hits = new int[signatures.size()];
+        // 同一accessibility ID在快照中出现多次时只计一次
+        Set<String> seen = new HashSet<>();
+        for (PageSnapshot.Node node : snapshot.getNodes()) {
+            String accessibilityId = node.getAccessibilityId();
+            if (accessibilityId == null || !node.isVisible() || !seen.add(accessibilityId)) {
+                continue;
+            }
+            int[] owners = index.get(accessibilityId);
+            if (owners != null) {
+                for (int owner : owners) {
+                    hits[owner]++;
+                }
+            }
+        }
+        ScreenSignature best = null;
+        for (int i = 0; i < signatures.size(); i++) {
+            ScreenSignature signature = signatures.get(i);
+            if (hits[i] == signature.getVisible().size() && signature.hasNoneOf(snapshot)
+                    && (best == null || hits[i] > best.getVisible().size())) {
+                best = signature;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,101 @@
+package com.saucelabs.framework.pages;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * 界面的轻量签名：界面显示时必须可见的accessibility ID，以及必须不存在的accessibility ID。
+ * 页面类以常量声明自己的签名，isDisplayed()和{@link ScreenRecognizer}使用同一份定义。
+ */
+public final class ScreenSignature {
+    private final String name;
+    private final Supplier<? extends BasePage> page;
+    private final List<String> visible;
+    private final List<String> absent;
+
+    private ScreenSignature(String name, Supplier<? extends BasePage> page, List<String> visible, List<String> absent) {
+        if (visible.isEmpty()) {
+            throw new IllegalArgumentException("Screen signature " + name + " needs at least one visible element");
+        }
+        this.name = name;
+        this.page = page;
+        this.visible = Collections.unmodifiableList(visible);
+        this.absent = Collections.unmodifiableList(absent);
+    }
+
+    /**
+     * 创建签名
+     * @param name 界面名称，例如 "login"
+     * @param page 创建该界面页面对象的方式
+     * @param visibleAccessibilityIds 界面显示时必须可见的accessibility ID
+     * @return 签名
+     */
+    public static ScreenSignature of(String name, Supplier<? extends BasePage> page, String... visibleAccessibilityIds) {
+        List<String> visible = new ArrayList<>(new LinkedHashSet<>(Arrays.asList(visibleAccessibilityIds)));
+        return new ScreenSignature(name, page, visible, Collections.<String>emptyList());
+    }
+
+    /**
+     * 追加必须不存在的元素，用于区分共用部分元素的界面
+     * @param accessibilityIds accessibility ID
+     * @return 新的签名
+     */
+    public ScreenSignature without(String... accessibilityIds) {
+        List<String> combined = new ArrayList<>(absent);
+        combined.addAll(Arrays.asList(accessibilityIds));
+        return new ScreenSignature(name, page, new ArrayList<>(visible), combined);
+    }
+
+    /**
+     * 检查快照是否显示该界面
+     * @param snapshot 页面快照
+     * @return 所有必需元素可见且排除的元素都不存在时返回true
+     */
+    public boolean matches(PageSnapshot snapshot) {
+        return snapshot.areAllVisible(visible.toArray(new String[0])) && hasNoneOf(snapshot);
+    }
+
+    /**
+     * 创建该界面的页面对象
+     * @return 页面对象
+     */
+    public BasePage createPage() {
+        return page.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 必须可见的accessibility ID
+     */
+    public List<String> getVisible() {
+        return visible;
+    }
+
+    /**
+     * @return 必须不存在的accessibility ID
+     */
+    public List<String> getAbsent() {
+        return absent;
+    }
+
+    boolean hasNoneOf(PageSnapshot snapshot) {
+        for (String accessibilityId : absent) {
+            if (snapshot.exists(accessibilityId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
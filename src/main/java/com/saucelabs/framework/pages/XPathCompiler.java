@@ -0,0 +1,499 @@
+package com.saucelabs.framework.pages;
+
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.utils.WaitEngine;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.MobileBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.InvalidSelectorException;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 把常用的XPath子集编译为平台原生定位器，避免服务器为求值XPath序列化整个界面层级。
+ * 支持的子集：以//开头的路径、/和//步骤、类名或*、[@属性='值']（可用and连接）、位置[n]和(路径)[n]。
+ * Android编译为UiSelector链（-android uiautomator），后续步骤用childSelector连接；childSelector在子树中查找，
+ * 因此/在Android上按后代处理。iOS编译为class chain（-ios class chain），/和//的语义与XPath一致。
+ * 编译只接受能精确表达或更宽的形式，因此原生定位器找不到时XPath也找不到，不需要再用XPath确认；
+ * 原生定位器第一次找到元素时与XPath的结果比较一次，一致后只用原生定位器，不一致（例如Android上匹配到更深的后代）
+ * 或服务器拒绝原生定位器时回退到XPath，回退后该表达式在本次运行中不再使用原生定位器。
+ * 编译结果在JVM退出时写入 target/xpath-compiler.json。
+ */
+public final class XPathCompiler {
+    private static final Logger logger = LoggerFactory.getLogger(XPathCompiler.class);
+    private static final Path REPORT = Paths.get("target", "xpath-compiler.json");
+
+    private static final Pattern GLOBAL_POSITION = Pattern.compile("^\\((.*)\\)\\[(\\d+)\\]$");
+    private static final Pattern NODE_TEST = Pattern.compile("\\*|[A-Za-z_][\\w.-]*");
+    private static final Pattern POSITION = Pattern.compile("\\d+");
+    private static final Pattern CONDITION = Pattern.compile(
+            "\\s*@([\\w-]+)\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\")\\s*(?:and\\s+|$)");
+
+    private static final Map<String, String> UI_SELECTOR_STRINGS = new HashMap<>();
+    private static final Map<String, String> UI_SELECTOR_BOOLEANS = new HashMap<>();
+    private static final Map<String, String> CLASS_CHAIN_STRINGS = new HashMap<>();
+    private static final Map<String, String> CLASS_CHAIN_BOOLEANS = new HashMap<>();
+
+    private static final Map<String, Compilation> compilations = new ConcurrentHashMap<>();
+
+    static {
+        UI_SELECTOR_STRINGS.put("content-desc", "description");
+        UI_SELECTOR_STRINGS.put("resource-id", "resourceId");
+        UI_SELECTOR_STRINGS.put("text", "text");
+        UI_SELECTOR_STRINGS.put("class", "className");
+        UI_SELECTOR_STRINGS.put("package", "packageName");
+        UI_SELECTOR_BOOLEANS.put("checkable", "checkable");
+        UI_SELECTOR_BOOLEANS.put("checked", "checked");
+        UI_SELECTOR_BOOLEANS.put("clickable", "clickable");
+        UI_SELECTOR_BOOLEANS.put("enabled", "enabled");
+        UI_SELECTOR_BOOLEANS.put("focusable", "focusable");
+        UI_SELECTOR_BOOLEANS.put("focused", "focused");
+        UI_SELECTOR_BOOLEANS.put("long-clickable", "longClickable");
+        UI_SELECTOR_BOOLEANS.put("scrollable", "scrollable");
+        UI_SELECTOR_BOOLEANS.put("selected", "selected");
+        CLASS_CHAIN_STRINGS.put("name", "name");
+        CLASS_CHAIN_STRINGS.put("label", "label");
+        CLASS_CHAIN_STRINGS.put("value", "value");
+        CLASS_CHAIN_STRINGS.put("type", "type");
+        CLASS_CHAIN_BOOLEANS.put("enabled", "enabled");
+        CLASS_CHAIN_BOOLEANS.put("visible", "visible");
+        CLASS_CHAIN_BOOLEANS.put("selected", "selected");
+
+        Runtime.getRuntime().addShutdownHook(new Thread(XPathCompiler::writeReport, "xpath-compiler-report"));
+    }
+
+    private XPathCompiler() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 查找XPath对应的元素：优先使用编译后的原生定位器，由WaitEngine在超时前反复尝试
+     * @param driver 当前driver
+     * @param xpath XPath表达式
+     * @param timeoutInSeconds 超时时间（秒）
+     * @return 找到的WebElement
+     */
+    public static WebElement find(AppiumDriver<WebElement> driver, String xpath, int timeoutInSeconds) {
+        By by = by(xpath);
+        return WaitEngine.until("presence", d -> first(by.findElements(driver)), timeoutInSeconds);
+    }
+
+    /**
+     * 获取XPath对应的定位器：启用编译且表达式可编译时使用原生定位器，否则为By.xpath
+     * @param xpath XPath表达式
+     * @return 定位器
+     */
+    public static By by(String xpath) {
+        if (!Configuration.isXPathCompilationEnabled()) {
+            return By.xpath(xpath);
+        }
+        return new CompiledBy(compile(xpath, Configuration.getPlatform()));
+    }
+
+    /**
+     * 编译XPath表达式，结果按平台缓存
+     * @param xpath XPath表达式
+     * @param platform "android" 或 "ios"
+     * @return 编译结果，无法编译时{@link Compilation#getLocator()}为XPath本身
+     */
+    public static Compilation compile(String xpath, String platform) {
+        return compilations.computeIfAbsent(platform + ":" + xpath, key -> {
+            boolean android = "android".equalsIgnoreCase(platform);
+            try {
+                List<Step> steps = new ArrayList<>();
+                Integer position = parse(xpath, steps);
+                String locator = android ? toUiSelector(steps, position) : toClassChain(steps, position);
+                logger.debug("Compiled XPath {} to {}", xpath, locator);
+                return new Compilation(xpath, platform, android ? "-android uiautomator" : "-ios class chain",
+                        locator, null);
+            } catch (IllegalArgumentException e) {
+                logger.debug("XPath {} stays XPath: {}", xpath, e.getMessage());
+                return new Compilation(xpath, platform, "xpath", xpath, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 获取所有编译结果
+     * @return 每个表达式和平台的策略、定位器、未编译或回退的原因以及查找次数
+     */
+    public static List<Map<String, Object>> getReport() {
+        List<Map<String, Object>> report = new ArrayList<>();
+        for (Compilation compilation : compilations.values()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("xpath", compilation.xpath);
+            entry.put("platform", compilation.platform);
+            entry.put("strategy", compilation.isNative() ? compilation.strategy : "xpath");
+            entry.put("locator", compilation.locator);
+            entry.put("verified", compilation.verified);
+            entry.put("reason", compilation.reason);
+            entry.put("lookups", compilation.lookups.get());
+            report.add(entry);
+        }
+        return report;
+    }
+
+    private static WebElement first(List<WebElement> elements) {
+        return elements.isEmpty() ? null : elements.get(0);
+    }
+
+    /**
+     * 解析XPath为步骤列表
+     * @return (路径)[n]中的位置，没有时返回null
+     */
+    private static Integer parse(String xpath, List<Step> steps) {
+        String expression = xpath.trim();
+        Integer position = null;
+        Matcher global = GLOBAL_POSITION.matcher(expression);
+        if (global.matches()) {
+            expression = global.group(1).trim();
+            position = Integer.parseInt(global.group(2));
+        }
+        if (!expression.startsWith("//")) {
+            throw new IllegalArgumentException("only paths starting with // are compiled");
+        }
+        int pos = 0;
+        while (pos < expression.length()) {
+            boolean descendant;
+            if (expression.startsWith("//", pos)) {
+                descendant = true;
+                pos += 2;
+            } else if (expression.startsWith("/", pos)) {
+                descendant = false;
+                pos += 1;
+            } else {
+                throw new IllegalArgumentException("unsupported syntax at '" + expression.substring(pos) + "'");
+            }
+            Matcher nodeTest = NODE_TEST.matcher(expression).region(pos, expression.length());
+            if (!nodeTest.lookingAt()) {
+                throw new IllegalArgumentException("unsupported node test at '" + expression.substring(pos) + "'");
+            }
+            Step step = new Step(descendant, nodeTest.group());
+            pos = nodeTest.end();
+            while (pos < expression.length() && expression.charAt(pos) == '[') {
+                int end = closingBracket(expression, pos);
+                step.addPredicate(expression.substring(pos + 1, end).trim());
+                pos = end + 1;
+            }
+            steps.add(step);
+        }
+        return position;
+    }
+
+    private static int closingBracket(String expression, int open) {
+        char quote = 0;
+        for (int i = open + 1; i < expression.length(); i++) {
+            char c = expression.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[') {
+                throw new IllegalArgumentException("nested predicates are not compiled");
+            } else if (c == ']') {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("unterminated predicate");
+    }
+
+    private static String toUiSelector(List<Step> steps, Integer position) {
+        if (position != null && steps.size() > 1) {
+            throw new IllegalArgumentException("(path)[n] over several steps has no UiSelector equivalent");
+        }
+        String selector = null;
+        for (int i = steps.size() - 1; i >= 0; i--) {
+            Step step = steps.get(i);
+            StringBuilder current = new StringBuilder("new UiSelector()");
+            if (!"*".equals(step.type)) {
+                current.append(".className(").append(quote(step.type)).append(')');
+            }
+            for (Map.Entry<String, String> attribute : step.attributes.entrySet()) {
+                String method = UI_SELECTOR_STRINGS.get(attribute.getKey());
+                if (method != null) {
+                    current.append('.').append(method).append('(').append(quote(attribute.getValue())).append(')');
+                    continue;
+                }
+                method = UI_SELECTOR_BOOLEANS.get(attribute.getKey());
+                if (method == null) {
+                    throw new IllegalArgumentException("@" + attribute.getKey() + " has no UiSelector equivalent");
+                }
+                current.append('.').append(method).append('(').append(bool(attribute)).append(')');
+            }
+            if (step.position != null) {
+                // index()是在所有兄弟节点中的位置，只与不限定类名的子节点步骤/*[n]等价
+                if (step.descendant || !"*".equals(step.type)) {
+                    throw new IllegalArgumentException("position predicate on " + step.type
+                            + " has no UiSelector equivalent");
+                }
+                current.append(".index(").append(step.position - 1).append(')');
+            }
+            if (position != null) {
+                current.append(".instance(").append(position - 1).append(')');
+            }
+            selector = selector == null ? current.toString()
+                    : current.append(".childSelector(").append(selector).append(')').toString();
+        }
+        return selector;
+    }
+
+    private static String toClassChain(List<Step> steps, Integer position) {
+        if (position != null && steps.size() > 1) {
+            throw new IllegalArgumentException("(path)[n] over several steps has no class chain equivalent");
+        }
+        StringBuilder chain = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++) {
+            Step step = steps.get(i);
+            if (i > 0) {
+                chain.append('/');
+            }
+            if (step.descendant) {
+                chain.append("**/");
+            }
+            chain.append(step.type);
+            List<String> conditions = new ArrayList<>();
+            for (Map.Entry<String, String> attribute : step.attributes.entrySet()) {
+                String property = CLASS_CHAIN_STRINGS.get(attribute.getKey());
+                if (property != null) {
+                    if (attribute.getValue().indexOf('`') >= 0) {
+                        throw new IllegalArgumentException("backtick in @" + attribute.getKey() + " value");
+                    }
+                    conditions.add(property + " == " + quote(attribute.getValue()));
+                    continue;
+                }
+                property = CLASS_CHAIN_BOOLEANS.get(attribute.getKey());
+                if (property == null) {
+                    throw new IllegalArgumentException("@" + attribute.getKey() + " has no class chain equivalent");
+                }
+                conditions.add(property + " == " + ("true".equals(bool(attribute)) ? 1 : 0));
+            }
+            if (!conditions.isEmpty()) {
+                chain.append("[`").append(String.join(" AND ", conditions)).append("`]");
+            }
+            if (step.position != null) {
+                // class chain的**/X[n]在所有后代匹配中取第n个，而XPath的//X[n]按父节点分别计数
+                if (step.descendant) {
+                    throw new IllegalArgumentException("position predicate on a // step has no class chain equivalent");
+                }
+                chain.append('[').append(step.position).append(']');
+            }
+        }
+        if (position != null) {
+            chain.append('[').append(position).append(']');
+        }
+        return chain.toString();
+    }
+
+    private static String bool(Map.Entry<String, String> attribute) {
+        String value = attribute.getValue();
+        if (!"true".equals(value) && !"false".equals(value)) {
+            throw new IllegalArgumentException("@" + attribute.getKey() + " must be 'true' or 'false'");
+        }
+        return value;
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    private static void writeReport() {
+        // 只报告页面对象实际查找过的表达式
+        List<Map<String, Object>> used = new ArrayList<>();
+        for (Map<String, Object> entry : getReport()) {
+            if ((Long) entry.get("lookups") > 0) {
+                used.add(entry);
+            }
+        }
+        if (used.isEmpty()) {
+            return;
+        }
+        try {
+            Files.createDirectories(REPORT.getParent());
+            Files.write(REPORT, new Json().toJson(used).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            logger.warn("Failed to write {}", REPORT, e);
+        }
+    }
+
+    /**
+     * 一个XPath表达式在某个平台上的编译结果
+     */
+    public static final class Compilation {
+        private final String xpath;
+        private final String platform;
+        private final String strategy;
+        private final String locator;
+        private final AtomicLong lookups = new AtomicLong();
+        private volatile String reason;
+        private volatile boolean fallenBack;
+        private volatile boolean verified;
+
+        private Compilation(String xpath, String platform, String strategy, String locator, String reason) {
+            this.xpath = xpath;
+            this.platform = platform;
+            this.strategy = strategy;
+            this.locator = locator;
+            this.reason = reason;
+        }
+
+        /**
+         * @return 当前是否使用原生定位器
+         */
+        public boolean isNative() {
+            return !"xpath".equals(strategy) && !fallenBack;
+        }
+
+        /**
+         * @return 编译后的定位器字符串，无法编译时为XPath本身
+         */
+        public String getLocator() {
+            return locator;
+        }
+
+        /**
+         * @return 未编译或回退到XPath的原因，使用原生定位器时返回null
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        /**
+         * @return 当前使用的定位器
+         */
+        public By toBy() {
+            if (!isNative()) {
+                return By.xpath(xpath);
+            }
+            return "-android uiautomator".equals(strategy)
+                    ? MobileBy.AndroidUIAutomator(locator) : MobileBy.iOSClassChain(locator);
+        }
+
+        private void fallBack(String why) {
+            if (!fallenBack) {
+                fallenBack = true;
+                reason = why;
+                logger.warn("Falling back to XPath for {} ({} {}): {}", xpath, strategy, locator, why);
+            }
+        }
+    }
+
+    /**
+     * 使用编译结果的定位器：原生定位器的第一次命中与XPath比较，不一致或被服务器拒绝时回退到XPath
+     */
+    static final class CompiledBy extends By {
+        private final Compilation compilation;
+
+        CompiledBy(Compilation compilation) {
+            this.compilation = compilation;
+        }
+
+        @Override
+        public List<WebElement> findElements(SearchContext context) {
+            compilation.lookups.incrementAndGet();
+            By xpath = By.xpath(compilation.xpath);
+            if (!compilation.isNative()) {
+                return context.findElements(xpath);
+            }
+            List<WebElement> found;
+            try {
+                found = context.findElements(compilation.toBy());
+            } catch (InvalidSelectorException e) {
+                compilation.fallBack("rejected by the server: " + e.getMessage().split("\n")[0]);
+                return context.findElements(xpath);
+            }
+            if (found.isEmpty() || compilation.verified) {
+                return found;
+            }
+            List<WebElement> expected = context.findElements(xpath);
+            if (!expected.isEmpty() && sameElement(found.get(0), expected.get(0))) {
+                compilation.verified = true;
+                return found;
+            }
+            compilation.fallBack("native locator matched a different element than XPath");
+            return expected;
+        }
+
+        @Override
+        public String toString() {
+            return "By.compiledXPath: " + compilation.xpath;
+        }
+    }
+
+    /**
+     * 两次查找得到的是否为同一个元素：UiAutomator2对同一元素返回相同的ID，其他驱动比较类型和位置
+     */
+    private static boolean sameElement(WebElement a, WebElement b) {
+        if (a.equals(b)) {
+            return true;
+        }
+        try {
+            return a.getTagName().equals(b.getTagName()) && a.getRect().equals(b.getRect());
+        } catch (WebDriverException e) {
+            return false;
+        }
+    }
+
+    private static final class Step {
+        private final boolean descendant;
+        private final String type;
+        private final Map<String, String> attributes = new LinkedHashMap<>();
+        private Integer position;
+
+        private Step(boolean descendant, String type) {
+            this.descendant = descendant;
+            this.type = type;
+        }
+
+        private void addPredicate(String predicate) {
+            if (position != null) {
+                // [n][@a='b']先按位置再过滤，原生定位器无法表达
+                throw new IllegalArgumentException("predicates after a position are not compiled");
+            }
+            if (POSITION.matcher(predicate).matches()) {
+                position = Integer.parseInt(predicate);
+                if (position < 1) {
+                    throw new IllegalArgumentException("position must be at least 1");
+                }
+                return;
+            }
+            Matcher condition = CONDITION.matcher(predicate);
+            int pos = 0;
+            while (pos < predicate.length()) {
+                condition.region(pos, predicate.length());
+                if (!condition.lookingAt()) {
+                    throw new IllegalArgumentException("unsupported predicate [" + predicate + "]");
+                }
+                String value = condition.group(2) != null ? condition.group(2) : condition.group(3);
+                String previous = attributes.put(condition.group(1), value);
+                if (previous != null && !previous.equals(value)) {
+                    throw new IllegalArgumentException("conflicting values for @" + condition.group(1));
+                }
+                pos = condition.end();
+            }
+            if (predicate.isEmpty()) {
+                throw new IllegalArgumentException("empty predicate");
+            }
+        }
+    }
+}
@@ -1,9 +1,36 @@
 package com.saucelabs.framework.pages.android;
 
 import com.saucelabs.framework.pages.BasePage;
+import com.saucelabs.framework.pages.LoginOutcome;
+import com.saucelabs.framework.pages.PageSnapshot;
+import com.saucelabs.framework.pages.ScreenSignature;
 import org.openqa.selenium.WebElement;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Predicate;
+
 public class LoginPageAndroid extends BasePage {
+    /**
+     * 登录界面的签名：用户名、密码输入框和登录按钮都可见
+     */
+    public static final ScreenSignature SIGNATURE = ScreenSignature.of("login", LoginPageAndroid::new,
+            "test-Username", "test-Password", "test-LOGIN");
+
+    private static final Map<String, String> LOGIN_FORM = new LinkedHashMap<>();
+    private static final Map<LoginOutcome, Predicate<PageSnapshot>> LOGIN_OUTCOMES = new LinkedHashMap<>();
+    private static final String ERROR_MESSAGE_XPATH =
+            "//android.view.ViewGroup[@content-desc='test-Error message']/android.widget.TextView";
+
+    static {
+        LOGIN_FORM.put("username", "test-Username");
+        LOGIN_FORM.put("password", "test-Password");
+        LOGIN_FORM.put("login", "test-LOGIN");
+
+        LOGIN_OUTCOMES.put(LoginOutcome.PRODUCTS, snapshot -> snapshot.isVisible("test-PRODUCTS"));
+        LOGIN_OUTCOMES.put(LoginOutcome.LOGIN_ERROR, snapshot -> snapshot.exists("test-Error message"));
+    }
 
     // 移除@AndroidFindBy注解，改用findElementByAccessibilityId
     private WebElement getUsernameField() {
@@ -19,7 +46,7 @@ public class LoginPageAndroid extends BasePage {
     }
 
     private WebElement getErrorMessageElement() {
-        return findElementByXPath("//android.view.ViewGroup[@content-desc='test-Error message']/android.widget.TextView");
+        return findElementByXPath(ERROR_MESSAGE_XPATH);
     }
 
     /**
@@ -54,6 +81,14 @@ public class LoginPageAndroid extends BasePage {
         return this;
     }
 
+    /**
+     * 等待点击登录之后的结果：商品页或错误消息，以先出现者为准
+     * @return 登录结果
+     */
+    public LoginOutcome awaitLoginOutcome() {
+        return waitForFirst(LOGIN_OUTCOMES, DEFAULT_TIMEOUT);
+    }
+
     /**
      * 获取错误消息文本
      * @return 错误消息文本
@@ -73,13 +108,31 @@ public class LoginPageAndroid extends BasePage {
      * @return 如果错误消息显示则返回true，否则返回false
      */
     public boolean isErrorMessageDisplayed() {
-        try {
-            WebElement errorElement = getErrorMessageElement();
-            waitForVisibility(errorElement, SHORT_TIMEOUT);
-            return errorElement.isDisplayed();
-        } catch (Exception e) {
+        // 立即判断，不等待：调用方在此之前已等待错误消息出现，或正是要确认它不存在
+        return isDisplayedNow(compiledBy(ERROR_MESSAGE_XPATH));
+    }
+
+    /**
+     * 确认错误消息在期限内不存在，例如登录成功之后
+     * @param timeoutInMillis 期限（毫秒）
+     * @return 期限内不存在时返回true
+     */
+    public boolean isErrorMessageAbsent(long timeoutInMillis) {
+        return waitForAbsence(compiledBy(ERROR_MESSAGE_XPATH), timeoutInMillis);
+    }
+
+    /**
+     * 清空登录表单，用于共享会话的场景之间的轻量重置
+     * @return 当前在登录界面并已清空表单时返回true，不在登录界面时返回false
+     */
+    public boolean clearForm() {
+        Map<String, Optional<WebElement>> form = findElementsByAccessibilityIds(LOGIN_FORM, SHORT_TIMEOUT);
+        if (!form.get("username").isPresent() || !form.get("password").isPresent()) {
             return false;
         }
+        form.get("username").get().clear();
+        form.get("password").get().clear();
+        return true;
     }
 
     /**
@@ -89,23 +142,19 @@ public class LoginPageAndroid extends BasePage {
      * @return 当前页面的实例，用于链式调用
      */
     public LoginPageAndroid login(String username, String password) {
-        enterUsername(username);
-        enterPassword(password);
-        clickLogin();
+        // 一次批量查找取回整个登录表单
+        Map<String, Optional<WebElement>> form = findElementsByAccessibilityIds(LOGIN_FORM, DEFAULT_TIMEOUT);
+        safeInput(required(form, "username"), username);
+        safeInput(required(form, "password"), password);
+        safeClick(required(form, "login"));
         return this;
     }
 
     /**
-     * Check if the login page is displayed
+     * Check if the login page is displayed, using a single page source snapshot per poll
      * @return True if login page is displayed, false otherwise
      */
     public boolean isDisplayed() {
-        try {
-            return isElementDisplayed(getUsernameField()) &&
-                   isElementDisplayed(getPasswordField()) &&
-                   isElementDisplayed(getLoginButton());
-        } catch (Exception e) {
-            return false;
-        }
+        return waitForSnapshot(SIGNATURE::matches, DEFAULT_TIMEOUT);
     }
 } 
\ No newline at end of file
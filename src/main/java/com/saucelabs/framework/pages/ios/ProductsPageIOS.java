@@ -1,9 +1,14 @@
 package com.saucelabs.framework.pages.ios;
 
 import com.saucelabs.framework.pages.BasePage;
+import com.saucelabs.framework.pages.ScreenSignature;
 import org.openqa.selenium.WebElement;
 
 public class ProductsPageIOS extends BasePage {
+    /**
+     * 商品页的签名：标题可见
+     */
+    public static final ScreenSignature SIGNATURE = ScreenSignature.of("products", ProductsPageIOS::new, "test-PRODUCTS");
 
     private WebElement getProductTitle() {
         return findElementByAccessibilityId("test-PRODUCTS");
@@ -22,11 +27,7 @@ public class ProductsPageIOS extends BasePage {
      * @return True if products page is displayed, false otherwise
      */
     public boolean isDisplayed() {
-        try {
-            return isElementDisplayed(getProductTitle());
-        } catch (Exception e) {
-            return false;
-        }
+        return waitForSnapshot(SIGNATURE::matches, DEFAULT_TIMEOUT);
     }
 
     /**
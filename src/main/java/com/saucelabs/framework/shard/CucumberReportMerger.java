@@ -0,0 +1,89 @@
+package com.saucelabs.framework.shard;
+
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把多个Cucumber JSON报告合并为一个。
+ * 同一特性文件的场景合并到同一个feature下，并按行号排序，合并结果与单次运行的报告结构相同。
+ */
+public final class CucumberReportMerger {
+    private final Map<String, Map<String, Object>> features = new LinkedHashMap<>();
+
+    /**
+     * 加入一份报告
+     * @param report Cucumber JSON报告文件
+     */
+    @SuppressWarnings("unchecked")
+    public void add(Path report) {
+        List<Object> parsed;
+        try {
+            parsed = new Json().toType(new String(Files.readAllBytes(report), StandardCharsets.UTF_8), List.class);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read " + report, e);
+        }
+        for (Object item : parsed) {
+            Map<String, Object> feature = (Map<String, Object>) item;
+            List<Object> elements = (List<Object>) feature.getOrDefault("elements", new ArrayList<>());
+            Map<String, Object> merged = features.computeIfAbsent((String) feature.get("uri"), uri -> {
+                Map<String, Object> copy = new LinkedHashMap<>(feature);
+                copy.put("elements", new ArrayList<>());
+                return copy;
+            });
+            ((List<Object>) merged.get("elements")).addAll(elements);
+        }
+    }
+
+    /**
+     * 写出合并后的报告
+     * @param output 输出文件
+     */
+    @SuppressWarnings("unchecked")
+    public void write(Path output) {
+        List<Map<String, Object>> merged = new ArrayList<>(features.values());
+        for (Map<String, Object> feature : merged) {
+            feature.put("elements", sortByLine((List<Map<String, Object>>) feature.get("elements")));
+        }
+        try {
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.write(output, new Json().toJson(merged).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + output, e);
+        }
+    }
+
+    /**
+     * 按场景行号排序；背景元素在报告中紧挨在其所属场景之前，排序时与该场景保持在一起
+     */
+    private static List<Map<String, Object>> sortByLine(List<Map<String, Object>> elements) {
+        List<List<Map<String, Object>>> groups = new ArrayList<>();
+        List<Map<String, Object>> group = new ArrayList<>();
+        for (Map<String, Object> element : elements) {
+            group.add(element);
+            if (!"background".equals(element.get("type"))) {
+                groups.add(group);
+                group = new ArrayList<>();
+            }
+        }
+        groups.sort(Comparator.comparingLong(scenario -> line(scenario.get(scenario.size() - 1))));
+        List<Map<String, Object>> sorted = new ArrayList<>();
+        groups.forEach(sorted::addAll);
+        sorted.addAll(group);
+        return sorted;
+    }
+
+    private static long line(Map<String, Object> element) {
+        return ((Number) element.get("line")).longValue();
+    }
+}
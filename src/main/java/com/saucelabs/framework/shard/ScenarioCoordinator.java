@@ -0,0 +1,426 @@
+package com.saucelabs.framework.shard;
+
+import com.saucelabs.framework.core.ConfigurationSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 动态分配场景的协调进程。
+ * 协调进程持有场景队列（按历史耗时从长到短排列），为每台设备启动一个{@link ScenarioWorker}工作JVM；
+ * 工作进程通过本地socket连接，每完成一个场景就领取下一个，因此快的设备自然会运行更多场景。
+ * 工作进程意外退出时，它正在运行的场景会重新排队交给其他工作进程。
+ * 全部完成后，各场景的JSON报告合并为 report.json，并生成汇总页面 summary.html。
+ */
+public final class ScenarioCoordinator {
+    static final String HELLO = "HELLO";
+    static final String RUN = "RUN";
+    static final String RESULT = "RESULT";
+    static final String STOP = "STOP";
+
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioCoordinator.class);
+    private static final int MAX_ATTEMPTS = 2;
+    private static final long POLL_MILLIS = 200;
+
+    private final int requestedWorkers;
+    private final Path features;
+    private final String tags;
+    private final List<Path> history;
+    private final String glue;
+    private final Path output;
+
+    private final BlockingDeque<Task> queue = new LinkedBlockingDeque<>();
+    private final List<Result> results = Collections.synchronizedList(new ArrayList<>());
+    private CountDownLatch remaining;
+
+    private ScenarioCoordinator(int requestedWorkers, Path features, String tags, List<Path> history, String glue,
+                                Path output) {
+        this.requestedWorkers = requestedWorkers;
+        this.features = features;
+        this.tags = tags;
+        this.history = history;
+        this.glue = glue;
+        this.output = output;
+    }
+
+    /**
+     * 用法: ScenarioCoordinator &lt;工作进程数，0表示每台设备一个&gt; &lt;特性文件目录&gt; &lt;标签表达式&gt;
+     * &lt;历史报告文件或目录，逗号分隔&gt; &lt;glue包&gt; &lt;报告目录&gt;
+     * @param args 命令行参数
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 6) {
+            throw new IllegalArgumentException(
+                    "Usage: ScenarioCoordinator <workers> <features> <tags> <history> <glue> <output>");
+        }
+        List<Path> history = new ArrayList<>();
+        for (String source : args[3].split(",")) {
+            if (!source.trim().isEmpty()) {
+                history.add(Paths.get(source.trim()));
+            }
+        }
+        ScenarioCoordinator coordinator = new ScenarioCoordinator(Integer.parseInt(args[0].trim()),
+                Paths.get(args[1]), args[2], history, args[4], Paths.get(args[5]));
+        int failed = coordinator.run();
+        if (failed > 0) {
+            throw new RuntimeException(failed + " scenario(s) failed, see " + coordinator.output.resolve("summary.html"));
+        }
+    }
+
+    /**
+     * 运行所有场景
+     * @return 失败的场景数
+     */
+    private int run() throws IOException, InterruptedException {
+        List<ShardPlanner.Scenario> scenarios = ShardPlanner.discover(features, tags);
+        if (scenarios.isEmpty()) {
+            logger.warn("No scenarios in {} match '{}'", features, tags);
+            return 0;
+        }
+        // 单个分片的LPT规划就是按估计耗时从长到短排序，长场景先开始，最后剩下的都是短场景
+        for (ShardPlanner.Scenario scenario : ShardPlanner.plan(scenarios, ScenarioDurations.load(history), 1).get(0)) {
+            queue.add(new Task(scenario));
+        }
+        remaining = new CountDownLatch(scenarios.size());
+
+        ConfigurationSnapshot config = ConfigurationSnapshot.load();
+        int workers = Math.min(workerCount(config), scenarios.size());
+        Path workerReports = output.resolve("workers");
+        Files.createDirectories(workerReports);
+        logger.info("Distributing {} scenarios across {} workers", scenarios.size(), workers);
+
+        List<Process> processes = new ArrayList<>();
+        try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+            for (int i = 0; i < workers; i++) {
+                processes.add(launchWorker(config, i, workers, server.getLocalPort(), workerReports));
+            }
+            Thread acceptor = new Thread(() -> accept(server, processes.size()), "coordinator-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+
+            while (!remaining.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (processes.stream().noneMatch(Process::isAlive)) {
+                    logger.error("All workers exited with {} scenarios left", remaining.getCount());
+                    break;
+                }
+            }
+        } finally {
+            for (Process process : processes) {
+                if (!process.waitFor(60, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            }
+        }
+
+        Task task;
+        while ((task = queue.poll()) != null) {
+            results.add(new Result(task.scenario, "-", "not run", 0, null));
+        }
+        return report(scenarios.size());
+    }
+
+    private int workerCount(ConfigurationSnapshot config) {
+        String devices = config.getString(config.getPlatform() + ".devices");
+        int deviceCount = devices == null ? 1 : devices.split(",").length;
+        if (requestedWorkers <= 0) {
+            return deviceCount;
+        }
+        // 替身服务器在每个工作JVM内独立运行，不受设备数量限制
+        if (requestedWorkers > deviceCount && !config.getBoolean("stub.enabled")) {
+            logger.warn("Only {} device(s) configured, using {} workers instead of {}", deviceCount, deviceCount,
+                    requestedWorkers);
+            return deviceCount;
+        }
+        return requestedWorkers;
+    }
+
+    private Process launchWorker(ConfigurationSnapshot config, int index, int workers, int port, Path reports)
+            throws IOException {
+        String name = "worker-" + (index + 1);
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.add("-cp");
+        command.add(classpath());
+        for (Map.Entry<String, String> property : workerProperties(config, index).entrySet()) {
+            command.add("-D" + property.getKey() + "=" + property.getValue());
+        }
+        command.add(ScenarioWorker.class.getName());
+        command.add(String.valueOf(port));
+        command.add(name);
+        command.add(reports.toAbsolutePath().toString());
+        command.add(glue);
+
+        Path log = reports.resolve(name + ".log");
+        logger.info("Starting {} (log: {})", name, log);
+        return new ProcessBuilder(command).redirectErrorStream(true).redirectOutput(log.toFile()).start();
+    }
+
+    /**
+     * 工作JVM的系统属性：继承通过系统属性设置的配置，并为每个工作进程分配一台独占的设备和端口
+     */
+    private static Map<String, String> workerProperties(ConfigurationSnapshot config, int index) {
+        Map<String, String> properties = new TreeMap<>();
+        for (String key : config.getKeys()) {
+            if ("system properties".equals(config.getSource(key))) {
+                properties.put(key, config.getRaw(key));
+            }
+        }
+        String platform = config.getPlatform();
+        properties.put("platform", platform);
+        properties.put("cucumber.publish.quiet", "true");
+        if (config.getBoolean("stub.enabled")) {
+            properties.put("stub.port", "0");
+            String nodelay = System.getProperty("sun.net.httpserver.nodelay");
+            if (nodelay != null) {
+                properties.put("sun.net.httpserver.nodelay", nodelay);
+            }
+        }
+        String devices = config.getString(platform + ".devices");
+        if (devices != null) {
+            String[] udids = devices.split(",");
+            properties.put(platform + ".devices", udids[index % udids.length].trim());
+            if ("android".equals(platform)) {
+                offset(properties, config, "android.systemPort.base", index);
+            } else {
+                offset(properties, config, "ios.wdaLocalPort.base", index);
+            }
+            offset(properties, config, platform + ".mjpegServerPort.base", index);
+            String urls = config.getString("appium." + platform + ".urls");
+            if (urls != null) {
+                String[] servers = urls.split(",");
+                properties.put("appium." + platform + ".urls", servers[index % servers.length].trim());
+            }
+        }
+        return properties;
+    }
+
+    private static void offset(Map<String, String> properties, ConfigurationSnapshot config, String key, int index) {
+        properties.put(key, String.valueOf(config.getInteger(key) + index));
+    }
+
+    /**
+     * 工作JVM的类路径。通过exec:java运行时java.class.path是Maven自身的类路径，项目类路径在上下文类加载器中
+     */
+    private static String classpath() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        if (loader instanceof URLClassLoader) {
+            List<String> entries = new ArrayList<>();
+            for (URL url : ((URLClassLoader) loader).getURLs()) {
+                try {
+                    entries.add(Paths.get(url.toURI()).toString());
+                } catch (URISyntaxException e) {
+                    throw new RuntimeException("Invalid classpath entry " + url, e);
+                }
+            }
+            if (!entries.isEmpty()) {
+                return String.join(File.pathSeparator, entries);
+            }
+        }
+        return System.getProperty("java.class.path");
+    }
+
+    private void accept(ServerSocket server, int workers) {
+        for (int i = 0; i < workers; i++) {
+            try {
+                Socket socket = server.accept();
+                Thread handler = new Thread(() -> serve(socket), "coordinator-connection-" + (i + 1));
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException e) {
+                // 协调进程结束时关闭了server socket
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        String name = "?";
+        Task task = null;
+        try (Socket connection = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String hello = in.readLine();
+            if (hello == null || !hello.startsWith(HELLO + " ")) {
+                return;
+            }
+            name = hello.substring(HELLO.length() + 1);
+            // 队列暂时为空时继续等待，其他工作进程退出后重新排队的场景仍需要有人运行
+            while (remaining.getCount() > 0) {
+                task = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    continue;
+                }
+                task.attempts++;
+                out.println(RUN + " " + task.scenario.getKey());
+                String line = in.readLine();
+                if (line == null) {
+                    break;
+                }
+                Result result = parseResult(line, task.scenario, name);
+                if (result == null) {
+                    // 与连接断开同样处理：场景重新排队，关闭连接
+                    logger.error("Malformed result from {}: {}", name, line);
+                    break;
+                }
+                results.add(result);
+                logger.info("{} {} {}", name, result.status, task.scenario);
+                task = null;
+                remaining.countDown();
+            }
+            out.println(STOP);
+        } catch (IOException e) {
+            logger.error("Lost connection to {}: {}", name, e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (task != null) {
+                requeue(task, name);
+            }
+        }
+    }
+
+    /**
+     * 解析工作进程的结果行 "RESULT &lt;退出码&gt; &lt;耗时纳秒&gt; &lt;报告路径&gt;"
+     * @param line 结果行
+     * @param scenario 工作进程正在运行的场景
+     * @param worker 工作进程名称
+     * @return 结果，格式不正确时返回null
+     */
+    static Result parseResult(String line, ShardPlanner.Scenario scenario, String worker) {
+        String[] fields = line.split(" ", 4);
+        if (fields.length != 4 || !RESULT.equals(fields[0]) || fields[3].isEmpty()) {
+            return null;
+        }
+        try {
+            Integer.parseInt(fields[1]);
+            long nanos = Long.parseLong(fields[2]);
+            Path report = Paths.get(fields[3]);
+            return new Result(scenario, worker, "0".equals(fields[1]) ? "passed" : "failed", nanos, report);
+        } catch (NumberFormatException | InvalidPathException e) {
+            return null;
+        }
+    }
+
+    private void requeue(Task task, String worker) {
+        if (task.attempts < MAX_ATTEMPTS) {
+            logger.warn("{} exited while running {}, requeueing it", worker, task.scenario);
+            queue.addFirst(task);
+        } else {
+            logger.error("{} exited while running {}, giving up after {} attempts", worker, task.scenario,
+                    task.attempts);
+            results.add(new Result(task.scenario, worker, "crashed", 0, null));
+            remaining.countDown();
+        }
+    }
+
+    private int report(int total) throws IOException {
+        CucumberReportMerger merger = new CucumberReportMerger();
+        Map<String, long[]> perWorker = new TreeMap<>();
+        int failed = 0;
+        List<Result> sorted;
+        synchronized (results) {
+            sorted = new ArrayList<>(results);
+        }
+        sorted.sort((a, b) -> a.scenario.getKey().compareTo(b.scenario.getKey()));
+        for (Result result : sorted) {
+            if (result.report != null && Files.isRegularFile(result.report)) {
+                merger.add(result.report);
+            }
+            if (!"passed".equals(result.status)) {
+                failed++;
+            }
+            long[] stats = perWorker.computeIfAbsent(result.worker, worker -> new long[2]);
+            stats[0]++;
+            stats[1] += result.nanos;
+        }
+        merger.write(output.resolve("report.json"));
+        writeSummary(sorted, perWorker);
+
+        logger.info("{} of {} scenarios passed", total - failed, total);
+        for (Map.Entry<String, long[]> entry : perWorker.entrySet()) {
+            logger.info("  {}: {} scenarios, busy {} s", entry.getKey(), entry.getValue()[0],
+                    TimeUnit.NANOSECONDS.toSeconds(entry.getValue()[1]));
+        }
+        return failed;
+    }
+
+    private void writeSummary(List<Result> results, Map<String, long[]> perWorker) throws IOException {
+        StringBuilder html = new StringBuilder();
+        html.append("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>Scenario summary</title>")
+                .append("<style>body{font-family:sans-serif}table{border-collapse:collapse}")
+                .append("td,th{border:1px solid #ccc;padding:4px 8px;text-align:left}")
+                .append(".passed{color:#2e7d32}.failed,.crashed,.not{color:#c62828}</style></head><body>\n");
+        html.append("<h1>Scenario summary</h1>\n<table><tr><th>Worker</th><th>Scenarios</th><th>Busy (s)</th></tr>\n");
+        for (Map.Entry<String, long[]> entry : perWorker.entrySet()) {
+            html.append("<tr><td>").append(escape(entry.getKey())).append("</td><td>").append(entry.getValue()[0])
+                    .append("</td><td>").append(String.format("%.1f", entry.getValue()[1] / 1e9)).append("</td></tr>\n");
+        }
+        html.append("</table>\n<h2>Scenarios</h2>\n<table><tr><th>Scenario</th><th>Location</th><th>Worker</th>")
+                .append("<th>Status</th><th>Duration (s)</th></tr>\n");
+        for (Result result : results) {
+            html.append("<tr><td>").append(escape(result.scenario.getName())).append("</td><td>")
+                    .append(escape(result.scenario.getKey())).append("</td><td>").append(escape(result.worker))
+                    .append("</td><td class=\"").append(result.status.split(" ")[0]).append("\">")
+                    .append(result.status).append("</td><td>").append(String.format("%.1f", result.nanos / 1e9))
+                    .append("</td></tr>\n");
+        }
+        html.append("</table>\n</body></html>\n");
+        Files.createDirectories(output);
+        Files.write(output.resolve("summary.html"), html.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    private static class Task {
+        private final ShardPlanner.Scenario scenario;
+        private int attempts;
+
+        private Task(ShardPlanner.Scenario scenario) {
+            this.scenario = scenario;
+        }
+    }
+
+    static class Result {
+        private final ShardPlanner.Scenario scenario;
+        private final String worker;
+        private final String status;
+        private final long nanos;
+        private final Path report;
+
+        private Result(ShardPlanner.Scenario scenario, String worker, String status, long nanos, Path report) {
+            this.scenario = scenario;
+            this.worker = worker;
+            this.status = status;
+            this.nanos = nanos;
+            this.report = report;
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.saucelabs.framework.shard;
+
+import org.openqa.selenium.json.Json;
+import org.openqa.selenium.json.JsonException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 从历史Cucumber JSON报告中读取每个场景的耗时。
+ * 场景以 "特性文件路径:行号" 标识，与 cucumber.features 中的写法一致；
+ * 同一场景在多份报告中出现时取平均值。没有历史记录的场景按步骤数和历史上每个步骤的平均耗时估算。
+ */
+public final class ScenarioDurations {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioDurations.class);
+
+    private final Map<String, Long> durations;
+    private final long nanosPerStep;
+
+    private ScenarioDurations(Map<String, Long> durations, long nanosPerStep) {
+        this.durations = durations;
+        this.nanosPerStep = nanosPerStep;
+    }
+
+    /**
+     * 读取报告文件；目录中的所有 .json 文件都会被当作报告读取，不存在的路径会被忽略
+     * @param sources 报告文件或目录
+     * @return 场景耗时
+     */
+    public static ScenarioDurations load(Collection<Path> sources) {
+        Map<String, long[]> totals = new HashMap<>();
+        long totalNanos = 0;
+        long totalSteps = 0;
+        for (Path report : reports(sources)) {
+            for (ReportedScenario scenario : read(report)) {
+                long[] total = totals.computeIfAbsent(scenario.key, key -> new long[2]);
+                total[0] += scenario.nanos;
+                total[1]++;
+                totalNanos += scenario.nanos;
+                totalSteps += scenario.steps;
+            }
+        }
+        Map<String, Long> durations = new HashMap<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            durations.put(entry.getKey(), entry.getValue()[0] / entry.getValue()[1]);
+        }
+        return new ScenarioDurations(durations, totalSteps == 0 ? 0 : totalNanos / totalSteps);
+    }
+
+    /**
+     * 场景是否有历史耗时
+     * @param key "特性文件路径:行号"
+     * @return 有历史记录时返回true
+     */
+    public boolean contains(String key) {
+        return durations.containsKey(key);
+    }
+
+    /**
+     * 获取场景的历史耗时，没有历史记录时按步骤数估算；完全没有历史时每个步骤计1纳秒，只按步骤数均分
+     * @param key "特性文件路径:行号"
+     * @param steps 场景的步骤数
+     * @return 耗时（纳秒）
+     */
+    public long estimate(String key, int steps) {
+        Long known = durations.get(key);
+        if (known != null) {
+            return known;
+        }
+        return Math.max(1, steps) * Math.max(1, nanosPerStep);
+    }
+
+    /**
+     * @return 有历史耗时的场景数
+     */
+    public int size() {
+        return durations.size();
+    }
+
+    /**
+     * 把报告中的特性文件URI转换为相对于当前目录的路径，例如 file:src/test/resources/features/login.feature
+     * @param uri 报告或特性文件的URI
+     * @return 使用 / 分隔的路径
+     */
+    static String normalizePath(String uri) {
+        String path = uri.startsWith("file:") ? uri.substring("file:".length()) : uri;
+        if (path.startsWith("//")) {
+            path = path.substring(2);
+        }
+        Path resolved = Paths.get(path);
+        if (resolved.isAbsolute()) {
+            Path base = Paths.get("").toAbsolutePath();
+            if (resolved.startsWith(base)) {
+                resolved = base.relativize(resolved);
+            }
+        }
+        return resolved.toString().replace('\\', '/');
+    }
+
+    private static List<Path> reports(Collection<Path> sources) {
+        List<Path> reports = new ArrayList<>();
+        for (Path source : sources) {
+            if (Files.isDirectory(source)) {
+                try (Stream<Path> files = Files.walk(source)) {
+                    reports.addAll(files.filter(file -> file.toString().endsWith(".json")).sorted()
+                            .collect(Collectors.toList()));
+                } catch (IOException e) {
+                    throw new RuntimeException("Failed to list reports in " + source, e);
+                }
+            } else if (Files.isRegularFile(source)) {
+                reports.add(source);
+            }
+        }
+        return reports;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ReportedScenario> read(Path report) {
+        Object parsed;
+        try {
+            parsed = new Json().toType(new String(Files.readAllBytes(report), StandardCharsets.UTF_8), Object.class);
+        } catch (IOException | JsonException e) {
+            logger.warn("Skipping unreadable report {}: {}", report, e.getMessage());
+            return new ArrayList<>();
+        }
+        List<ReportedScenario> scenarios = new ArrayList<>();
+        if (!(parsed instanceof List)) {
+            // 不是Cucumber报告（例如command-metrics.json）
+            return scenarios;
+        }
+        for (Object feature : (List<Object>) parsed) {
+            if (!(feature instanceof Map) || !(((Map<String, Object>) feature).get("uri") instanceof String)) {
+                return scenarios;
+            }
+            Map<String, Object> featureMap = (Map<String, Object>) feature;
+            String path = normalizePath((String) featureMap.get("uri"));
+            long backgroundNanos = 0;
+            int backgroundSteps = 0;
+            for (Object element : (List<Object>) featureMap.getOrDefault("elements", new ArrayList<>())) {
+                Map<String, Object> elementMap = (Map<String, Object>) element;
+                long nanos = duration(elementMap.get("before")) + duration(elementMap.get("steps"))
+                        + duration(elementMap.get("after"));
+                int steps = ((List<Object>) elementMap.getOrDefault("steps", new ArrayList<>())).size();
+                if ("background".equals(elementMap.get("type"))) {
+                    // 背景在报告中作为下一个场景之前的独立元素出现，计入该场景
+                    backgroundNanos = nanos;
+                    backgroundSteps = steps;
+                    continue;
+                }
+                Number line = (Number) elementMap.get("line");
+                scenarios.add(new ReportedScenario(path + ":" + line.intValue(), nanos + backgroundNanos,
+                        steps + backgroundSteps));
+                backgroundNanos = 0;
+                backgroundSteps = 0;
+            }
+        }
+        return scenarios;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long duration(Object hooksOrSteps) {
+        long nanos = 0;
+        if (hooksOrSteps instanceof List) {
+            for (Object item : (List<Object>) hooksOrSteps) {
+                Object result = ((Map<String, Object>) item).get("result");
+                if (result instanceof Map && ((Map<String, Object>) result).get("duration") instanceof Number) {
+                    nanos += ((Number) ((Map<String, Object>) result).get("duration")).longValue();
+                }
+            }
+        }
+        return nanos;
+    }
+
+    private static class ReportedScenario {
+        private final String key;
+        private final long nanos;
+        private final int steps;
+
+        private ReportedScenario(String key, long nanos, int steps) {
+            this.key = key;
+            this.nanos = nanos;
+            this.steps = steps;
+        }
+    }
+}
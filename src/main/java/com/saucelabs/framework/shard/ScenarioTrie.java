@@ -0,0 +1,159 @@
+package com.saucelabs.framework.shard;
+
+import com.saucelabs.framework.fixtures.PrefixCheckpoints;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按开头的步骤把场景组织成前缀树，找出多个场景共有、随后分叉的步骤前缀。
+ * 这些分叉点就是{@link PrefixCheckpoints}的检查点：第一个场景执行完共有前缀后在此记录应用状态，
+ * 其余场景从检查点恢复，只执行分叉之后的步骤。每个场景仍然单独运行、单独出现在报告中。
+ */
+public final class ScenarioTrie {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioTrie.class);
+
+    private final Node root = new Node();
+    private int scenarios;
+    private int totalSteps;
+    private int uniqueSteps;
+
+    private ScenarioTrie() {
+    }
+
+    /**
+     * 用法: ScenarioTrie &lt;特性文件目录&gt; &lt;标签表达式&gt; &lt;输出文件&gt;
+     * @param args 命令行参数
+     */
+    public static void main(String[] args) {
+        if (args.length < 3) {
+            throw new IllegalArgumentException("Usage: ScenarioTrie <features> <tags> <output>");
+        }
+        ScenarioTrie trie = build(ShardPlanner.discover(Paths.get(args[0]), args[1]));
+        logger.info("{} scenarios run {} steps, {} of them distinct prefixes; {} checkpoints planned",
+                trie.scenarios, trie.totalSteps, trie.uniqueSteps, trie.getCheckpoints().size());
+        trie.write(Paths.get(args[2]));
+    }
+
+    /**
+     * 构建前缀树
+     * @param scenarios 场景
+     * @return 前缀树
+     */
+    public static ScenarioTrie build(List<ShardPlanner.Scenario> scenarios) {
+        ScenarioTrie trie = new ScenarioTrie();
+        for (ShardPlanner.Scenario scenario : scenarios) {
+            trie.add(scenario);
+        }
+        return trie;
+    }
+
+    /**
+     * 获取检查点：至少两个场景经过、且在此之后分叉或有场景在此结束的前缀。
+     * 完整的场景不作为检查点，每个场景至少执行最后一步
+     * @return 检查点前缀，按深度优先顺序排列
+     */
+    public List<List<String>> getCheckpoints() {
+        List<List<String>> checkpoints = new ArrayList<>();
+        collect(root, new ArrayList<>(), checkpoints);
+        return checkpoints;
+    }
+
+    /**
+     * 所有场景的步骤总数
+     * @return 步骤数
+     */
+    public int getTotalSteps() {
+        return totalSteps;
+    }
+
+    /**
+     * 前缀树的节点数，即每个共有前缀只执行一次时需要执行的步骤数
+     * @return 步骤数
+     */
+    public int getUniqueSteps() {
+        return uniqueSteps;
+    }
+
+    /**
+     * 写出检查点规划，供 prefix.checkpoints 使用
+     * @param output 输出文件
+     */
+    public void write(Path output) {
+        List<Map<String, Object>> checkpoints = new ArrayList<>();
+        for (List<String> prefix : getCheckpoints()) {
+            Map<String, Object> checkpoint = new LinkedHashMap<>();
+            checkpoint.put("steps", prefix);
+            checkpoint.put("scenarios", find(prefix).scenarios);
+            checkpoints.add(checkpoint);
+        }
+        Map<String, Object> plan = new LinkedHashMap<>();
+        plan.put("scenarios", scenarios);
+        plan.put("steps", totalSteps);
+        plan.put("uniqueSteps", uniqueSteps);
+        plan.put("checkpoints", checkpoints);
+        try {
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.write(output, new Json().toJson(plan).getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + output, e);
+        }
+        logger.info("Wrote {} checkpoints to {}", checkpoints.size(), output);
+    }
+
+    private void add(ShardPlanner.Scenario scenario) {
+        scenarios++;
+        Node node = root;
+        for (String step : scenario.getStepKeys()) {
+            totalSteps++;
+            Node child = node.children.get(step);
+            if (child == null) {
+                child = new Node();
+                node.children.put(step, child);
+                uniqueSteps++;
+            }
+            child.scenarios++;
+            node = child;
+        }
+        node.ending++;
+    }
+
+    private Node find(List<String> prefix) {
+        Node node = root;
+        for (String step : prefix) {
+            node = node.children.get(step);
+        }
+        return node;
+    }
+
+    private static void collect(Node node, List<String> prefix, List<List<String>> checkpoints) {
+        for (Map.Entry<String, Node> entry : node.children.entrySet()) {
+            Node child = entry.getValue();
+            prefix.add(entry.getKey());
+            if (child.scenarios >= 2 && !child.children.isEmpty()
+                    && (child.children.size() >= 2 || child.ending > 0)) {
+                checkpoints.add(new ArrayList<>(prefix));
+            }
+            collect(child, prefix, checkpoints);
+            prefix.remove(prefix.size() - 1);
+        }
+    }
+
+    private static class Node {
+        private final Map<String, Node> children = new LinkedHashMap<>();
+        private int scenarios;
+        private int ending;
+    }
+}
@@ -0,0 +1,71 @@
+package com.saucelabs.framework.shard;
+
+import com.saucelabs.framework.fixtures.PrefixCheckpointPlugin;
+import io.cucumber.core.cli.Main;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * {@link ScenarioCoordinator}启动的工作JVM。
+ * 连接协调进程后循环领取场景，每个场景通过Cucumber命令行入口在本JVM内运行并输出单独的JSON报告，
+ * 再把结果汇报给协调进程。同一JVM内的场景共享DriverManager和会话池，会话可以在场景之间复用。
+ */
+public final class ScenarioWorker {
+    private static final Logger logger = LoggerFactory.getLogger(ScenarioWorker.class);
+
+    private ScenarioWorker() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 用法: ScenarioWorker &lt;协调进程端口&gt; &lt;工作进程名&gt; &lt;报告目录&gt; &lt;glue包&gt;
+     * @param args 命令行参数
+     */
+    public static void main(String[] args) throws IOException {
+        int port = Integer.parseInt(args[0]);
+        String name = args[1];
+        Path reports = Paths.get(args[2]);
+        String glue = args[3];
+        Files.createDirectories(reports);
+
+        int exitCode = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println(ScenarioCoordinator.HELLO + " " + name);
+            int sequence = 0;
+            String command;
+            while ((command = in.readLine()) != null && command.startsWith(ScenarioCoordinator.RUN + " ")) {
+                String scenario = command.substring(ScenarioCoordinator.RUN.length() + 1);
+                Path report = reports.resolve(name + "-" + (++sequence) + ".json");
+                logger.info("{} running {}", name, scenario);
+                long start = System.nanoTime();
+                byte status = Main.run(new String[] {
+                        "--glue", glue,
+                        "--plugin", "json:" + report,
+                        "--plugin", PrefixCheckpointPlugin.class.getName(),
+                        "--monochrome",
+                        scenario
+                }, Thread.currentThread().getContextClassLoader());
+                out.println(ScenarioCoordinator.RESULT + " " + status + " " + (System.nanoTime() - start) + " " + report);
+            }
+        } catch (IOException e) {
+            logger.error("{} lost its connection to the coordinator", name, e);
+            exitCode = 1;
+        }
+        // 退出前由关闭钩子结束会话池中的会话
+        System.exit(exitCode);
+    }
+}
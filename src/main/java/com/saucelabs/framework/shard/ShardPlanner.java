@@ -0,0 +1,280 @@
+package com.saucelabs.framework.shard;
+
+import com.saucelabs.framework.fixtures.PrefixCheckpoints;
+import io.cucumber.core.feature.FeatureParser;
+import io.cucumber.core.gherkin.Feature;
+import io.cucumber.core.gherkin.Pickle;
+import io.cucumber.core.gherkin.Step;
+import io.cucumber.core.resource.Resource;
+import io.cucumber.tagexpressions.Expression;
+import io.cucumber.tagexpressions.TagExpressionParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 按历史耗时把场景分配到N个分片，使各分片的总耗时尽量接近。
+ * 使用贪心的最长处理时间优先（LPT）装箱：场景按耗时从长到短排序，依次放入当前总耗时最小的分片。
+ * 规划只依赖特性文件和历史报告，且排序完全确定，因此每个CI节点独立计算都会得到相同的分配结果。
+ * 分片结果以Cucumber rerun文件的格式（每行 "特性文件路径:行号:行号"）写出，通过 cucumber.features=@文件 运行。
+ */
+public final class ShardPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(ShardPlanner.class);
+
+    private ShardPlanner() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 用法: ShardPlanner &lt;分片，例如 2/4&gt; &lt;输出文件&gt; &lt;特性文件目录&gt; &lt;标签表达式&gt; [历史报告文件或目录，逗号分隔]
+     * @param args 命令行参数
+     */
+    public static void main(String[] args) {
+        if (args.length < 4) {
+            throw new IllegalArgumentException("Usage: ShardPlanner <index/total> <output> <features> <tags> [history]");
+        }
+        int[] shard = parseShard(args[0]);
+        List<Path> history = new ArrayList<>();
+        if (args.length > 4) {
+            for (String source : args[4].split(",")) {
+                if (!source.trim().isEmpty()) {
+                    history.add(Paths.get(source.trim()));
+                }
+            }
+        }
+
+        List<Scenario> scenarios = discover(Paths.get(args[2]), args[3]);
+        ScenarioDurations durations = ScenarioDurations.load(history);
+        List<List<Scenario>> shards = plan(scenarios, durations, shard[1]);
+        logger.info("Planned {} scenarios ({} with history) into {} shards:", scenarios.size(), durations.size(),
+                shard[1]);
+        for (int i = 0; i < shards.size(); i++) {
+            logger.info("  shard {}/{}: {} scenarios, estimated {} s", i + 1, shard[1], shards.get(i).size(),
+                    TimeUnit.NANOSECONDS.toSeconds(totalNanos(shards.get(i))));
+        }
+        writeRerunFile(shards.get(shard[0] - 1), Paths.get(args[1]));
+    }
+
+    /**
+     * 解析分片参数
+     * @param value "序号/总数"，序号从1开始，例如 "2/4"
+     * @return {序号, 总数}
+     */
+    public static int[] parseShard(String value) {
+        String[] parts = value.trim().split("/");
+        try {
+            if (parts.length == 2) {
+                int index = Integer.parseInt(parts[0].trim());
+                int total = Integer.parseInt(parts[1].trim());
+                if (total >= 1 && index >= 1 && index <= total) {
+                    return new int[] {index, total};
+                }
+            }
+        } catch (NumberFormatException e) {
+            // 下面统一报错
+        }
+        throw new IllegalArgumentException("Invalid shard '" + value + "', expected <index>/<total> such as 2/4");
+    }
+
+    /**
+     * 找出目录下所有特性文件中符合标签表达式的场景，场景大纲的每一行示例各算一个场景
+     * @param features 特性文件目录
+     * @param tags 标签表达式，为空时不过滤
+     * @return 场景列表，按文件路径和行号排序
+     */
+    public static List<Scenario> discover(Path features, String tags) {
+        Expression filter = tags == null || tags.trim().isEmpty() ? null : TagExpressionParser.parse(tags);
+        FeatureParser parser = new FeatureParser(UUID::randomUUID);
+        List<Scenario> scenarios = new ArrayList<>();
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(features)) {
+            files = walk.filter(file -> file.toString().endsWith(".feature")).sorted().collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to list feature files in " + features, e);
+        }
+        for (Path file : files) {
+            String path = ScenarioDurations.normalizePath(file.toAbsolutePath().toString());
+            Optional<Feature> feature = parser.parseResource(new FileResource(file));
+            if (!feature.isPresent()) {
+                continue;
+            }
+            for (Pickle pickle : feature.get().getPickles()) {
+                if (filter == null || filter.evaluate(pickle.getTags())) {
+                    List<String> steps = new ArrayList<>();
+                    for (Step step : pickle.getSteps()) {
+                        steps.add(PrefixCheckpoints.stepKey(step));
+                    }
+                    scenarios.add(new Scenario(path, pickle.getLocation().getLine(), pickle.getName(), steps));
+                }
+            }
+        }
+        return scenarios;
+    }
+
+    /**
+     * 按LPT把场景分配到各分片
+     * @param scenarios 场景
+     * @param durations 历史耗时
+     * @param total 分片数
+     * @return 每个分片的场景，分片内按耗时从长到短排列
+     */
+    public static List<List<Scenario>> plan(List<Scenario> scenarios, ScenarioDurations durations, int total) {
+        List<Scenario> ordered = new ArrayList<>();
+        for (Scenario scenario : scenarios) {
+            ordered.add(scenario.withEstimate(durations.estimate(scenario.getKey(), scenario.getSteps())));
+        }
+        // 耗时相同时按key排序，保证每个节点得到相同的结果
+        ordered.sort(Comparator.comparingLong(Scenario::getEstimateNanos).reversed()
+                .thenComparing(Scenario::getKey));
+
+        List<List<Scenario>> shards = new ArrayList<>();
+        long[] loads = new long[total];
+        PriorityQueue<Integer> lightest = new PriorityQueue<>(
+                Comparator.<Integer>comparingLong(index -> loads[index]).thenComparingInt(index -> index));
+        for (int i = 0; i < total; i++) {
+            shards.add(new ArrayList<>());
+            lightest.add(i);
+        }
+        for (Scenario scenario : ordered) {
+            int index = lightest.poll();
+            shards.get(index).add(scenario);
+            loads[index] += scenario.getEstimateNanos();
+            lightest.add(index);
+        }
+        return shards;
+    }
+
+    /**
+     * 写出Cucumber rerun文件，分片为空时写出空文件，Cucumber不会运行任何场景
+     * @param scenarios 分片中的场景
+     * @param output 输出文件
+     */
+    public static void writeRerunFile(List<Scenario> scenarios, Path output) {
+        Map<String, List<Integer>> lines = new TreeMap<>();
+        for (Scenario scenario : scenarios) {
+            lines.computeIfAbsent(scenario.getPath(), path -> new ArrayList<>()).add(scenario.getLine());
+        }
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, List<Integer>> entry : lines.entrySet()) {
+            content.append(entry.getKey());
+            entry.getValue().stream().sorted().forEach(line -> content.append(':').append(line));
+            content.append('\n');
+        }
+        try {
+            if (output.getParent() != null) {
+                Files.createDirectories(output.getParent());
+            }
+            Files.write(output, content.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to write " + output, e);
+        }
+        logger.info("Wrote {} scenarios to {}", scenarios.size(), output);
+    }
+
+    private static long totalNanos(List<Scenario> scenarios) {
+        return scenarios.stream().mapToLong(Scenario::getEstimateNanos).sum();
+    }
+
+    /**
+     * 一个可单独运行的场景（场景大纲的一行示例）
+     */
+    public static final class Scenario {
+        private final String path;
+        private final int line;
+        private final String name;
+        private final List<String> steps;
+        private final long estimateNanos;
+
+        Scenario(String path, int line, String name, List<String> steps) {
+            this(path, line, name, steps, 0);
+        }
+
+        private Scenario(String path, int line, String name, List<String> steps, long estimateNanos) {
+            this.path = path;
+            this.line = line;
+            this.name = name;
+            this.steps = Collections.unmodifiableList(steps);
+            this.estimateNanos = estimateNanos;
+        }
+
+        private Scenario withEstimate(long nanos) {
+            return new Scenario(path, line, name, steps, nanos);
+        }
+
+        /**
+         * @return "特性文件路径:行号"
+         */
+        public String getKey() {
+            return path + ":" + line;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSteps() {
+            return steps.size();
+        }
+
+        /**
+         * @return 各步骤的标识，见{@link PrefixCheckpoints#stepKey}
+         */
+        public List<String> getStepKeys() {
+            return steps;
+        }
+
+        public long getEstimateNanos() {
+            return estimateNanos;
+        }
+
+        @Override
+        public String toString() {
+            return getKey();
+        }
+    }
+
+    private static class FileResource implements Resource {
+        private final Path file;
+
+        private FileResource(Path file) {
+            this.file = file;
+        }
+
+        @Override
+        public URI getUri() {
+            return file.toUri();
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return Files.newInputStream(file);
+        }
+    }
+}
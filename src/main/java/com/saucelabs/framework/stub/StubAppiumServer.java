@@ -0,0 +1,431 @@
+package com.saucelabs.framework.stub;
+
+import com.saucelabs.framework.core.Configuration;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.openqa.selenium.json.Json;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 进程内的Appium替身服务器，在没有设备的环境中运行场景和基准测试。
+ * 实现本框架用到的W3C/Appium命令，界面来自 stub/android 和 stub/ios 下的XML夹具，
+ * 每个请求可以注入固定延迟和随机失败。启用 stub.enabled 并调用{@link #register()}后
+ * {@link Configuration#getAppiumServerUrl()} 指向这里。
+ * 连接默认启用Nagle算法，小响应与延迟ACK叠加会给每个请求带来约40ms的额外延迟；
+ * stub和benchmark profile通过JVM级的系统属性 sun.net.httpserver.nodelay=true 关闭它。
+ */
+public class StubAppiumServer {
+    private static final Logger logger = LoggerFactory.getLogger(StubAppiumServer.class);
+    private static final String ELEMENT_KEY = "element-6066-11e4-a52e-4f735466cecf";
+
+    private static StubAppiumServer instance;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final long latencyMillis;
+    private final double failureRate;
+    private final Map<String, StubSession> sessions = new ConcurrentHashMap<>();
+    /** 所有替身设备共用的文件系统，示例应用本身不读写其中的文件 */
+    private final Map<String, byte[]> files = new ConcurrentHashMap<>();
+    private final Json json = new Json();
+
+    /**
+     * 启动服务器
+     * @param port 端口，0表示随机端口
+     * @param latencyMillis 每个请求的固定延迟（毫秒）
+     * @param failureRate 命令随机失败的概率，0到1之间
+     */
+    public StubAppiumServer(int port, long latencyMillis, double failureRate) {
+        this.latencyMillis = latencyMillis;
+        this.failureRate = failureRate;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-appium-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        } catch (IOException e) {
+            executor.shutdown();
+            throw new RuntimeException("Failed to start stub Appium server on port " + port, e);
+        }
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+        logger.info("Stub Appium server listening on {}", getUrl());
+    }
+
+    /**
+     * 获取按config.properties中stub.*配置启动的共享实例，首次调用时启动
+     * @return 服务器实例
+     */
+    public static synchronized StubAppiumServer getInstance() {
+        if (instance == null) {
+            instance = new StubAppiumServer(Configuration.getStubPort(), Configuration.getStubLatencyMillis(),
+                    Configuration.getStubFailureRate());
+        }
+        return instance;
+    }
+
+    /**
+     * 把共享实例注册为{@link Configuration#getAppiumServerUrl()}的服务器，实例在首次需要URL时才启动
+     */
+    public static void register() {
+        Configuration.registerStubServer(() -> getInstance().getUrl());
+    }
+
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int status = 200;
+        Object value;
+        try {
+            String method = exchange.getRequestMethod();
+            List<String> path = segments(exchange.getRequestURI().getPath());
+            Map<String, Object> body = readBody(exchange);
+            if (!path.equals(Collections.singletonList("status"))) {
+                injectLatencyAndFailures();
+            }
+            value = dispatch(method, path, body);
+        } catch (StubException e) {
+            status = e.getStatus();
+            value = error(e.getError(), e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Stub Appium server failed to handle {}", exchange.getRequestURI(), e);
+            status = 500;
+            value = error("unknown error", String.valueOf(e.getMessage()));
+        }
+        byte[] response = json.toJson(Collections.singletonMap("value", value)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(response);
+        }
+    }
+
+    private void injectLatencyAndFailures() {
+        if (latencyMillis > 0) {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            throw new StubException(500, "unknown error", "Injected failure");
+        }
+    }
+
+    private Object dispatch(String method, List<String> path, Map<String, Object> body) {
+        if (path.equals(Collections.singletonList("status"))) {
+            Map<String, Object> status = new HashMap<>();
+            status.put("ready", true);
+            status.put("message", "Stub Appium server is ready");
+            return status;
+        }
+        if (path.isEmpty() || !"session".equals(path.get(0))) {
+            throw unknownCommand(method, path);
+        }
+        if (path.size() == 1 && "POST".equals(method)) {
+            return createSession(body);
+        }
+
+        String sessionId = path.get(1);
+        StubSession session = sessions.get(sessionId);
+        if (session == null) {
+            throw new StubException(404, "invalid session id", "A session is either terminated or not started");
+        }
+        String command = method + " " + String.join("/", path.subList(2, path.size()));
+
+        if (path.size() == 2) {
+            if ("DELETE".equals(method)) {
+                sessions.remove(sessionId);
+                return null;
+            }
+            return session.getCapabilities();
+        }
+        if (path.size() >= 4 && "element".equals(path.get(2)) && !"active".equals(path.get(3))) {
+            return dispatchElement(session, method, path.get(3), path.subList(4, path.size()), body);
+        }
+        switch (command) {
+            case "POST timeouts":
+            case "POST appium/device/install_app":
+            case "POST appium/device/remove_app":
+                return null;
+            case "GET timeouts":
+                return Collections.singletonMap("implicit", 0);
+            case "GET context":
+                return "NATIVE_APP";
+            case "GET contexts":
+                return Collections.singletonList("NATIVE_APP");
+            case "POST element":
+                return first(session.find(string(body, "using"), string(body, "value"), null), body);
+            case "POST elements":
+                return references(session.find(string(body, "using"), string(body, "value"), null));
+            case "GET source":
+                return session.getPageSource();
+            case "GET screenshot":
+                return session.getScreenshot();
+            case "POST appium/device/terminate_app":
+                session.terminateApp();
+                return true;
+            case "POST appium/device/activate_app":
+                session.activateApp();
+                return null;
+            case "POST execute/sync":
+                return executeScript(session, string(body, "script"), body);
+            default:
+                throw unknownCommand(method, path);
+        }
+    }
+
+    private Object dispatchElement(StubSession session, String method, String elementId, List<String> rest,
+                                   Map<String, Object> body) {
+        String command = method + " " + String.join("/", rest);
+        switch (command) {
+            case "POST element":
+                return first(session.find(string(body, "using"), string(body, "value"), elementId), body);
+            case "POST elements":
+                return references(session.find(string(body, "using"), string(body, "value"), elementId));
+            case "POST click":
+                session.click(elementId);
+                return null;
+            case "POST value":
+                session.sendKeys(elementId, keys(body));
+                return null;
+            case "POST clear":
+                session.clear(elementId);
+                return null;
+            case "GET text":
+                return session.getText(elementId);
+            case "GET displayed":
+                return session.isDisplayed(elementId);
+            case "GET enabled":
+                return session.isEnabled(elementId);
+            case "GET selected":
+                return "true".equals(session.getAttribute(elementId, "selected"));
+            default:
+                if ("GET".equals(method) && rest.size() == 2 && "attribute".equals(rest.get(0))) {
+                    return session.getAttribute(elementId, rest.get(1));
+                }
+                throw new StubException(404, "unknown command", "Unsupported element command " + command);
+        }
+    }
+
+    private Object createSession(Map<String, Object> body) {
+        Map<String, Object> capabilities = requestedCapabilities(body);
+        Object platformName = capabilities.get("platformName");
+        boolean ios = platformName != null && "ios".equalsIgnoreCase(platformName.toString());
+        StubSession session = new StubSession(UUID.randomUUID().toString(), ios, capabilities);
+        sessions.put(session.getId(), session);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("sessionId", session.getId());
+        response.put("capabilities", capabilities);
+        return response;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> requestedCapabilities(Map<String, Object> body) {
+        Map<String, Object> capabilities = new LinkedHashMap<>();
+        Object desired = body.get("desiredCapabilities");
+        if (desired instanceof Map) {
+            capabilities.putAll((Map<String, Object>) desired);
+        }
+        Object w3c = body.get("capabilities");
+        if (w3c instanceof Map) {
+            Object alwaysMatch = ((Map<String, Object>) w3c).get("alwaysMatch");
+            if (alwaysMatch instanceof Map) {
+                capabilities.putAll((Map<String, Object>) alwaysMatch);
+            }
+            Object firstMatch = ((Map<String, Object>) w3c).get("firstMatch");
+            if (firstMatch instanceof List && !((List<?>) firstMatch).isEmpty()) {
+                capabilities.putAll((Map<String, Object>) ((List<?>) firstMatch).get(0));
+            }
+        }
+        // W3C请求中的扩展能力带有 appium: 前缀，返回时去掉前缀便于客户端按原名读取
+        Map<String, Object> normalized = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : capabilities.entrySet()) {
+            normalized.put(entry.getKey().startsWith("appium:") ? entry.getKey().substring("appium:".length())
+                    : entry.getKey(), entry.getValue());
+        }
+        return normalized;
+    }
+
+    private Object executeScript(StubSession session, String script, Map<String, Object> body) {
+        if ("mobile: clearApp".equals(script)) {
+            session.clearApp();
+            return null;
+        }
+        if ("mobile: terminateApp".equals(script)) {
+            session.terminateApp();
+            return true;
+        }
+        if ("mobile: activateApp".equals(script)) {
+            session.activateApp();
+            return null;
+        }
+        if ("mobile: deepLink".equals(script)) {
+            session.openDeepLink(string(scriptArgs(script, body), "url"));
+            return null;
+        }
+        if ("mobile: pushFile".equals(script)) {
+            Map<String, Object> args = scriptArgs(script, body);
+            files.put(string(args, "remotePath"), Base64.getDecoder().decode(string(args, "payload")));
+            return null;
+        }
+        if ("mobile: pullFolder".equals(script)) {
+            return pullFolder(string(scriptArgs(script, body), "remotePath"));
+        }
+        throw new StubException(404, "unknown command", "Unsupported script " + script);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> scriptArgs(String script, Map<String, Object> body) {
+        Object args = body.get("args");
+        if (!(args instanceof List) || ((List<?>) args).isEmpty() || !(((List<?>) args).get(0) instanceof Map)) {
+            throw new StubException(400, "invalid argument", script + " expects an argument map");
+        }
+        return (Map<String, Object>) ((List<?>) args).get(0);
+    }
+
+    /**
+     * 把设备文件系统中某个目录下的文件打包为zip，与Appium的 mobile: pullFolder 相同
+     */
+    private String pullFolder(String remotePath) {
+        String folder = remotePath.endsWith("/") ? remotePath : remotePath + "/";
+        ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipped)) {
+            for (Map.Entry<String, byte[]> file : new TreeMap<>(files).entrySet()) {
+                if (file.getKey().startsWith(folder)) {
+                    zip.putNextEntry(new ZipEntry(file.getKey().substring(folder.length())));
+                    zip.write(file.getValue());
+                    zip.closeEntry();
+                }
+            }
+        } catch (IOException e) {
+            throw new StubException(500, "unknown error", "Failed to zip " + remotePath + ": " + e.getMessage());
+        }
+        return Base64.getEncoder().encodeToString(zipped.toByteArray());
+    }
+
+    private static Object first(List<String> found, Map<String, Object> body) {
+        if (found.isEmpty()) {
+            throw StubException.noSuchElement(string(body, "using"), string(body, "value"));
+        }
+        return reference(found.get(0));
+    }
+
+    private static List<Object> references(List<String> found) {
+        List<Object> references = new ArrayList<>(found.size());
+        for (String elementId : found) {
+            references.add(reference(elementId));
+        }
+        return references;
+    }
+
+    private static Map<String, Object> reference(String elementId) {
+        Map<String, Object> reference = new HashMap<>();
+        reference.put(ELEMENT_KEY, elementId);
+        reference.put("ELEMENT", elementId);
+        return reference;
+    }
+
+    private static String keys(Map<String, Object> body) {
+        Object text = body.get("text");
+        if (text != null) {
+            return text.toString();
+        }
+        StringBuilder keys = new StringBuilder();
+        Object value = body.get("value");
+        if (value instanceof List) {
+            for (Object key : (List<?>) value) {
+                keys.append(key);
+            }
+        }
+        return keys.toString();
+    }
+
+    private static String string(Map<String, Object> body, String key) {
+        Object value = body.get(key);
+        if (value == null) {
+            throw new StubException(400, "invalid argument", "Missing parameter '" + key + "'");
+        }
+        return value.toString();
+    }
+
+    private static Map<String, Object> error(String error, String message) {
+        Map<String, Object> value = new HashMap<>();
+        value.put("error", error);
+        value.put("message", message);
+        value.put("stacktrace", "");
+        return value;
+    }
+
+    private static StubException unknownCommand(String method, List<String> path) {
+        return new StubException(404, "unknown command",
+                "The requested resource could not be found: " + method + " /" + String.join("/", path));
+    }
+
+    private static List<String> segments(String path) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : path.split("/")) {
+            if (!segment.isEmpty()) {
+                segments.add(segment);
+            }
+        }
+        // 兼容Appium 1.x的 /wd/hub 前缀
+        if (segments.size() >= 2 && "wd".equals(segments.get(0)) && "hub".equals(segments.get(1))) {
+            return segments.subList(2, segments.size());
+        }
+        return segments;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try (InputStream input = exchange.getRequestBody()) {
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+        }
+        String body = new String(content.toByteArray(), StandardCharsets.UTF_8).trim();
+        if (body.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Object parsed = json.toType(body, Object.class);
+        return parsed instanceof Map ? (Map<String, Object>) parsed : Collections.emptyMap();
+    }
+}
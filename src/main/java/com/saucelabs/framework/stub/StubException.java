@@ -0,0 +1,37 @@
+package com.saucelabs.framework.stub;
+
+/**
+ * 以W3C错误响应返回给客户端的异常，例如 404 "no such element"
+ */
+class StubException extends RuntimeException {
+    private final int status;
+    private final String error;
+
+    StubException(int status, String error, String message) {
+        super(message);
+        this.status = status;
+        this.error = error;
+    }
+
+    static StubException noSuchElement(String using, String value) {
+        return new StubException(404, "no such element",
+                "An element could not be located on the page using the given search parameters: " + using + "=" + value);
+    }
+
+    static StubException staleElement(String elementId) {
+        return new StubException(404, "stale element reference",
+                "The element '" + elementId + "' is no longer attached to the page");
+    }
+
+    static StubException invalidSelector(String using, String value) {
+        return new StubException(400, "invalid selector", "Unsupported selector " + using + "=" + value);
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    String getError() {
+        return error;
+    }
+}
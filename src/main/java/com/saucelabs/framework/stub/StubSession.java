@@ -0,0 +1,558 @@
+package com.saucelabs.framework.stub;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+
+import javax.imageio.ImageIO;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 桩服务器上的一个会话：当前界面的DOM、已返回给客户端的元素，以及按定位策略查找元素。
+ * 界面变化后重新渲染DOM，之前返回的元素随之失效（stale element reference）。
+ */
+class StubSession {
+    // childSelector(的参数是嵌套的UiSelector，只匹配到左括号，之后的方法属于子选择器
+    private static final Pattern UI_SELECTOR_METHOD = Pattern.compile(
+            "\\.(\\w+)\\((?:\"((?:[^\"\\\\]|\\\\.)*)\"\\)|(-?\\w+)\\)|(?=new UiSelector\\(\\)))");
+    private static final Pattern CLASS_CHAIN_STEP = Pattern.compile(
+            "(\\*\\*/)?([\\w*]+)(?:\\[`(.*?)`\\])?(?:\\[(\\d+)\\])?(?:/|$)");
+    private static final Pattern CLASS_CHAIN_CONDITION = Pattern.compile(
+            "\\s*(\\w+) (?:== (?:\"((?:[^\"\\\\]|\\\\.)*)\"|'([^']*)'|(\\d+))"
+                    + "|IN \\{((?:\\s*\"(?:[^\"\\\\]|\\\\.)*\"\\s*,?)*)\\})\\s*(?:AND\\s+|$)");
+    private static final Pattern QUOTED = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern ANDROID_BOUNDS = Pattern.compile("\\[(\\d+),(\\d+)\\]\\[(\\d+),(\\d+)\\]");
+
+    private final String id;
+    private final boolean ios;
+    private final Map<String, Object> capabilities;
+    private final SwagLabsApp app;
+    private final Map<String, Element> elements = new HashMap<>();
+    private final Map<Element, String> elementIds = new IdentityHashMap<>();
+    private Document document;
+    private int nextElementId;
+
+    StubSession(String id, boolean ios, Map<String, Object> capabilities) {
+        this.id = id;
+        this.ios = ios;
+        this.capabilities = capabilities;
+        this.app = new SwagLabsApp(ios ? "ios" : "android");
+        this.app.launch();
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Map<String, Object> getCapabilities() {
+        return capabilities;
+    }
+
+    synchronized List<String> find(String using, String value, String parentId) {
+        Node context = parentId == null ? document() : element(parentId);
+        List<String> found = new ArrayList<>();
+        for (Element element : locate(context, using, value)) {
+            // 与UiAutomator2一样，同一个元素再次被找到时返回相同的ID
+            String elementId = elementIds.get(element);
+            if (elementId == null) {
+                elementId = "stub-" + (++nextElementId);
+                elementIds.put(element, elementId);
+                elements.put(elementId, element);
+            }
+            found.add(elementId);
+        }
+        return found;
+    }
+
+    synchronized void click(String elementId) {
+        Element element = element(elementId);
+        if (app.click(accessibilityIdOf(element))) {
+            invalidate();
+        }
+    }
+
+    synchronized void sendKeys(String elementId, String text) {
+        Element element = element(elementId);
+        setText(element, element.getAttribute(textAttribute()) + text);
+    }
+
+    synchronized void clear(String elementId) {
+        setText(element(elementId), "");
+    }
+
+    synchronized String getText(String elementId) {
+        Element element = element(elementId);
+        if (ios) {
+            return firstNonEmpty(element.getAttribute("value"), element.getAttribute("label"));
+        }
+        return element.getAttribute("text");
+    }
+
+    synchronized boolean isDisplayed(String elementId) {
+        return !"false".equals(element(elementId).getAttribute(ios ? "visible" : "displayed"));
+    }
+
+    synchronized boolean isEnabled(String elementId) {
+        return !"false".equals(element(elementId).getAttribute("enabled"));
+    }
+
+    synchronized String getAttribute(String elementId, String name) {
+        Element element = element(elementId);
+        return element.hasAttribute(name) ? element.getAttribute(name) : null;
+    }
+
+    synchronized String getPageSource() {
+        try {
+            Transformer transformer = TransformerFactory.newInstance().newTransformer();
+            transformer.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
+            StringWriter writer = new StringWriter();
+            transformer.transform(new DOMSource(document()), new StreamResult(writer));
+            return writer.toString();
+        } catch (Exception e) {
+            throw new StubException(500, "unknown error", "Failed to serialize page source: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 按元素边界绘制当前界面，不同界面得到不同的截图
+     * @return Base64编码的PNG
+     */
+    synchronized String getScreenshot() {
+        Element root = document().getDocumentElement();
+        int width = ios ? 414 : 1080;
+        int height = ios ? 896 : 2160;
+        BufferedImage image = new BufferedImage(width / 2, height / 2, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.scale(0.5, 0.5);
+            NodeList nodes = root.getElementsByTagName("*");
+            for (int i = 0; i < nodes.getLength(); i++) {
+                Element element = (Element) nodes.item(i);
+                int[] bounds = bounds(element);
+                if (bounds == null || "false".equals(element.getAttribute(ios ? "visible" : "displayed"))) {
+                    continue;
+                }
+                // 文字内容决定填充颜色，输入和错误提示都会让截图发生变化
+                String text = element.getAttribute(textAttribute());
+                graphics.setColor(new Color(text.isEmpty() ? 0xE0E0E0 : text.hashCode() & 0xFFFFFF));
+                graphics.fillRect(bounds[0], bounds[1], bounds[2], bounds[3]);
+                graphics.setColor(Color.DARK_GRAY);
+                graphics.drawRect(bounds[0], bounds[1], bounds[2], bounds[3]);
+            }
+        } finally {
+            graphics.dispose();
+        }
+        try {
+            ByteArrayOutputStream png = new ByteArrayOutputStream();
+            ImageIO.write(image, "png", png);
+            return Base64.getEncoder().encodeToString(png.toByteArray());
+        } catch (IOException e) {
+            throw new StubException(500, "unknown error", "Failed to render screenshot: " + e.getMessage());
+        }
+    }
+
+    synchronized void terminateApp() {
+        app.terminate();
+        invalidate();
+    }
+
+    synchronized void activateApp() {
+        app.launch();
+        invalidate();
+    }
+
+    synchronized void openDeepLink(String url) {
+        app.openDeepLink(url);
+        invalidate();
+    }
+
+    synchronized void clearApp() {
+        app.clearData();
+        invalidate();
+    }
+
+    private Document document() {
+        if (document == null) {
+            document = parse(app.render());
+            applyTyped();
+        }
+        return document;
+    }
+
+    private void invalidate() {
+        document = null;
+        elements.clear();
+        elementIds.clear();
+    }
+
+    private Element element(String elementId) {
+        Element element = elements.get(elementId);
+        if (element == null) {
+            throw StubException.staleElement(elementId);
+        }
+        return element;
+    }
+
+    private List<Element> locate(Node context, String using, String value) {
+        switch (using) {
+            case "accessibility id":
+                return matching(context, e -> value.equals(e.getAttribute(accessibilityIdAttribute())));
+            case "id":
+                return matching(context, e -> ios ? value.equals(e.getAttribute("name"))
+                        : value.equals(e.getAttribute("resource-id"))
+                        || e.getAttribute("resource-id").endsWith(":id/" + value));
+            case "class name":
+                return matching(context, e -> value.equals(e.getTagName()));
+            case "xpath":
+                return xpath(context, value);
+            case "-android uiautomator":
+                if (!ios) {
+                    return uiSelector(context, value);
+                }
+                break;
+            case "-ios class chain":
+                if (ios) {
+                    return classChain(context, value);
+                }
+                break;
+            default:
+                break;
+        }
+        throw StubException.invalidSelector(using, value);
+    }
+
+    private List<Element> xpath(Node context, String expression) {
+        try {
+            NodeList nodes = (NodeList) XPathFactory.newInstance().newXPath()
+                    .evaluate(expression, context, XPathConstants.NODESET);
+            List<Element> found = new ArrayList<>();
+            for (int i = 0; i < nodes.getLength(); i++) {
+                if (nodes.item(i) instanceof Element) {
+                    found.add((Element) nodes.item(i));
+                }
+            }
+            return found;
+        } catch (XPathExpressionException e) {
+            throw StubException.invalidSelector("xpath", expression);
+        }
+    }
+
+    /**
+     * UiSelector链：new UiSelector()的条件，可用childSelector在前一级匹配的子树中继续查找，
+     * instance(n)取该级所有匹配中的第n个（从0开始）
+     */
+    private List<Element> uiSelector(Node context, String selector) {
+        if (!selector.trim().startsWith("new UiSelector()")) {
+            throw StubException.invalidSelector("-android uiautomator", selector);
+        }
+        List<List<String[]>> levels = new ArrayList<>();
+        levels.add(new ArrayList<>());
+        Matcher matcher = UI_SELECTOR_METHOD.matcher(selector);
+        while (matcher.find()) {
+            if ("childSelector".equals(matcher.group(1))) {
+                levels.add(new ArrayList<>());
+                continue;
+            }
+            String argument = matcher.group(2) != null ? unescape(matcher.group(2)) : matcher.group(3);
+            if (argument == null) {
+                throw StubException.invalidSelector("-android uiautomator", matcher.group(1));
+            }
+            levels.get(levels.size() - 1).add(new String[]{matcher.group(1), argument});
+        }
+        List<Node> contexts = Collections.singletonList(context);
+        List<Element> found = Collections.emptyList();
+        for (List<String[]> conditions : levels) {
+            if (conditions.isEmpty()) {
+                throw StubException.invalidSelector("-android uiautomator", selector);
+            }
+            Integer instance = null;
+            List<String[]> filters = new ArrayList<>();
+            for (String[] condition : conditions) {
+                if ("instance".equals(condition[0])) {
+                    instance = Integer.parseInt(condition[1]);
+                } else {
+                    filters.add(condition);
+                }
+            }
+            found = new ArrayList<>();
+            for (Node current : contexts) {
+                for (Element e : matching(current, e -> matchesUiSelector(e, filters))) {
+                    if (!found.contains(e)) {
+                        found.add(e);
+                    }
+                }
+            }
+            if (instance != null) {
+                found = instance < found.size() ? Collections.singletonList(found.get(instance))
+                        : Collections.<Element>emptyList();
+            }
+            contexts = new ArrayList<>(found);
+        }
+        return found;
+    }
+
+    private static boolean matchesUiSelector(Element element, List<String[]> conditions) {
+        for (String[] condition : conditions) {
+            if (!matchesUiSelector(element, condition[0], condition[1])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matchesUiSelector(Element element, String method, String expected) {
+        switch (method) {
+            case "description":
+                return expected.equals(element.getAttribute("content-desc"));
+            case "descriptionContains":
+                return element.getAttribute("content-desc").contains(expected);
+            case "descriptionMatches":
+                return element.getAttribute("content-desc").matches(expected);
+            case "resourceId":
+                return expected.equals(element.getAttribute("resource-id"));
+            case "text":
+                return expected.equals(element.getAttribute("text"));
+            case "textContains":
+                return element.getAttribute("text").contains(expected);
+            case "className":
+                return expected.equals(element.getTagName());
+            case "packageName":
+                return expected.equals(element.getAttribute("package"));
+            case "index":
+                return Integer.parseInt(expected) == siblingIndex(element);
+            case "checkable":
+            case "checked":
+            case "clickable":
+            case "enabled":
+            case "focusable":
+            case "focused":
+            case "scrollable":
+            case "selected":
+                return expected.equals(element.getAttribute(method));
+            case "longClickable":
+                return expected.equals(element.getAttribute("long-clickable"));
+            default:
+                throw StubException.invalidSelector("-android uiautomator", method);
+        }
+    }
+
+    /**
+     * class chain：**&#47;表示后代、否则为子节点，[`属性 == 值 AND ...`]过滤，
+     * [n]取每个上下文中的第n个匹配（从1开始）
+     */
+    private List<Element> classChain(Node context, String chain) {
+        String remaining = chain.trim();
+        List<Node> contexts = Collections.singletonList(context);
+        List<Element> found = Collections.emptyList();
+        Matcher matcher = CLASS_CHAIN_STEP.matcher(remaining);
+        int pos = 0;
+        while (pos < remaining.length()) {
+            matcher.region(pos, remaining.length());
+            if (!matcher.lookingAt()) {
+                throw StubException.invalidSelector("-ios class chain", chain);
+            }
+            boolean descendant = matcher.group(1) != null;
+            String type = matcher.group(2);
+            Predicate<Element> predicate = classChainPredicate(chain, matcher.group(3));
+            Integer position = matcher.group(4) == null ? null : Integer.parseInt(matcher.group(4));
+            found = new ArrayList<>();
+            for (Node current : contexts) {
+                List<Element> candidates = descendant
+                        ? matching(current, e -> ("*".equals(type) || type.equals(e.getTagName())) && predicate.test(e))
+                        : children(current, e -> ("*".equals(type) || type.equals(e.getTagName())) && predicate.test(e));
+                if (position != null) {
+                    candidates = position <= candidates.size()
+                            ? Collections.singletonList(candidates.get(position - 1)) : Collections.<Element>emptyList();
+                }
+                for (Element e : candidates) {
+                    if (!found.contains(e)) {
+                        found.add(e);
+                    }
+                }
+            }
+            contexts = new ArrayList<>(found);
+            pos = matcher.end();
+        }
+        return found;
+    }
+
+    private static Predicate<Element> classChainPredicate(String chain, String predicate) {
+        if (predicate == null) {
+            return e -> true;
+        }
+        Map<String, List<String>> conditions = new HashMap<>();
+        Matcher condition = CLASS_CHAIN_CONDITION.matcher(predicate);
+        int pos = 0;
+        while (pos < predicate.length()) {
+            condition.region(pos, predicate.length());
+            if (!condition.lookingAt()) {
+                throw StubException.invalidSelector("-ios class chain", chain);
+            }
+            List<String> expected = new ArrayList<>();
+            if (condition.group(5) != null) {
+                Matcher quoted = QUOTED.matcher(condition.group(5));
+                while (quoted.find()) {
+                    expected.add(unescape(quoted.group(1)));
+                }
+            } else {
+                expected.add(condition.group(2) != null ? unescape(condition.group(2))
+                        : condition.group(3) != null ? condition.group(3)
+                        : "1".equals(condition.group(4)) ? "true" : "false");
+            }
+            conditions.put(condition.group(1), expected);
+            pos = condition.end();
+        }
+        return e -> {
+            for (Map.Entry<String, List<String>> entry : conditions.entrySet()) {
+                String actual = "type".equals(entry.getKey()) ? e.getTagName() : e.getAttribute(entry.getKey());
+                if (!entry.getValue().contains(actual)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    private static String unescape(String quoted) {
+        return quoted.replaceAll("\\\\(.)", "$1");
+    }
+
+    private static int siblingIndex(Element element) {
+        int index = 0;
+        for (Node sibling = element.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+            if (sibling instanceof Element) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    private static List<Element> children(Node context, Predicate<Element> predicate) {
+        List<Element> found = new ArrayList<>();
+        Node parent = context instanceof Document ? ((Document) context).getDocumentElement() : context;
+        for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element && predicate.test((Element) child)) {
+                found.add((Element) child);
+            }
+        }
+        return found;
+    }
+
+    private static List<Element> matching(Node context, Predicate<Element> predicate) {
+        List<Element> found = new ArrayList<>();
+        NodeList nodes = context instanceof Document
+                ? ((Document) context).getElementsByTagName("*")
+                : ((Element) context).getElementsByTagName("*");
+        for (int i = 0; i < nodes.getLength(); i++) {
+            Element element = (Element) nodes.item(i);
+            if (predicate.test(element)) {
+                found.add(element);
+            }
+        }
+        return found;
+    }
+
+    private void setText(Element element, String text) {
+        element.setAttribute(textAttribute(), text);
+        app.type(accessibilityIdOf(element), text);
+    }
+
+    private void applyTyped() {
+        if (app.getTyped().isEmpty()) {
+            return;
+        }
+        for (Element element : matching(document,
+                e -> app.getTyped().containsKey(e.getAttribute(accessibilityIdAttribute())))) {
+            element.setAttribute(textAttribute(), app.getTyped().get(element.getAttribute(accessibilityIdAttribute())));
+        }
+    }
+
+    /**
+     * 元素的accessibility ID；没有时取最近的带accessibility ID的祖先，
+     * 点击按钮内部的文字等同于点击按钮
+     */
+    private String accessibilityIdOf(Element element) {
+        for (Node node = element; node instanceof Element; node = node.getParentNode()) {
+            String value = ((Element) node).getAttribute(accessibilityIdAttribute());
+            if (!value.isEmpty()) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    private String accessibilityIdAttribute() {
+        return ios ? "name" : "content-desc";
+    }
+
+    private String textAttribute() {
+        return ios ? "value" : "text";
+    }
+
+    private int[] bounds(Element element) {
+        if (ios) {
+            if (!element.hasAttribute("width")) {
+                return null;
+            }
+            return new int[] {Integer.parseInt(element.getAttribute("x")), Integer.parseInt(element.getAttribute("y")),
+                    Integer.parseInt(element.getAttribute("width")), Integer.parseInt(element.getAttribute("height"))};
+        }
+        Matcher matcher = ANDROID_BOUNDS.matcher(element.getAttribute("bounds"));
+        if (!matcher.matches()) {
+            return null;
+        }
+        int left = Integer.parseInt(matcher.group(1));
+        int top = Integer.parseInt(matcher.group(2));
+        return new int[] {left, top, Integer.parseInt(matcher.group(3)) - left, Integer.parseInt(matcher.group(4)) - top};
+    }
+
+    private static String firstNonEmpty(String... values) {
+        for (String value : values) {
+            if (value != null && !value.isEmpty()) {
+                return value;
+            }
+        }
+        return "";
+    }
+
+    private static Document parse(String xml) {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            return factory.newDocumentBuilder().parse(new InputSource(new StringReader(xml)));
+        } catch (Exception e) {
+            throw new StubException(500, "unknown error", "Invalid stub fixture: " + e.getMessage());
+        }
+    }
+}
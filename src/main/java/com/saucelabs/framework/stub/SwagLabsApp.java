@@ -0,0 +1,181 @@
+package com.saucelabs.framework.stub;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Swag Labs示例应用的状态机。
+ * 界面由 stub/&lt;platform&gt;/&lt;screen&gt;.xml 夹具渲染：未启动时为 home，启动后为 login，
+ * 登录成功后为 products；登录失败时在login界面的 ${error} 处插入 error.xml 片段。
+ */
+class SwagLabsApp {
+    static final String HOME = "home";
+    static final String LOGIN = "login";
+    static final String PRODUCTS = "products";
+
+    private static final String PASSWORD = "secret_sauce";
+    private static final Set<String> USERS = new HashSet<>(Arrays.asList(
+            "standard_user", "problem_user", "performance_glitch_user"));
+    private static final String LOCKED_OUT_USER = "locked_out_user";
+
+    private static final String LOGIN_DEEP_LINK = "swaglabs://login";
+
+    private static final Map<String, String> fixtures = new ConcurrentHashMap<>();
+
+    private final String platform;
+    private final Map<String, String> typed = new HashMap<>();
+    private String screen = HOME;
+    private String error;
+
+    /**
+     * @param platform 夹具目录，"android" 或 "ios"
+     */
+    SwagLabsApp(String platform) {
+        this.platform = platform;
+    }
+
+    void launch() {
+        if (HOME.equals(screen)) {
+            screen = LOGIN;
+            typed.clear();
+            error = null;
+        }
+    }
+
+    void terminate() {
+        screen = HOME;
+    }
+
+    void clearData() {
+        screen = HOME;
+        typed.clear();
+        error = null;
+    }
+
+    /**
+     * 处理深度链接：swaglabs://login?username=..&amp;password=.. 按与登录表单相同的规则登录，
+     * 其他链接只启动应用
+     * @param url 深度链接
+     */
+    void openDeepLink(String url) {
+        launch();
+        if (!url.startsWith(LOGIN_DEEP_LINK)) {
+            return;
+        }
+        Map<String, String> query = new HashMap<>();
+        String rawQuery = url.indexOf('?') < 0 ? "" : url.substring(url.indexOf('?') + 1);
+        for (String pair : rawQuery.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                query.put(decode(pair.substring(0, separator)), decode(pair.substring(separator + 1)));
+            }
+        }
+        screen = LOGIN;
+        typed.clear();
+        login(query.getOrDefault("username", ""), query.getOrDefault("password", ""));
+    }
+
+    String getScreen() {
+        return screen;
+    }
+
+    /**
+     * 记录输入框的内容
+     * @param accessibilityId 输入框的accessibility ID
+     * @param text 输入后的完整内容
+     */
+    void type(String accessibilityId, String text) {
+        if (accessibilityId != null) {
+            typed.put(accessibilityId, text);
+        }
+    }
+
+    Map<String, String> getTyped() {
+        return typed;
+    }
+
+    /**
+     * 处理点击
+     * @param accessibilityId 被点击元素或其最近的带accessibility ID的祖先
+     * @return 界面发生变化时返回true
+     */
+    boolean click(String accessibilityId) {
+        if (LOGIN.equals(screen) && "test-LOGIN".equals(accessibilityId)) {
+            login(typed.getOrDefault("test-Username", ""), typed.getOrDefault("test-Password", ""));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 渲染当前界面的XML
+     * @return 页面源码
+     */
+    String render() {
+        String xml = fixture(screen);
+        if (LOGIN.equals(screen)) {
+            String fragment = error == null ? "" : fixture("error").replace("${message}", escape(error));
+            xml = xml.replace("${error}", fragment);
+        }
+        return xml;
+    }
+
+    private void login(String username, String password) {
+        if (username.isEmpty()) {
+            error = "Username is required";
+        } else if (password.isEmpty()) {
+            error = "Password is required";
+        } else if (LOCKED_OUT_USER.equals(username) && PASSWORD.equals(password)) {
+            error = "Sorry, this user has been locked out.";
+        } else if (USERS.contains(username) && PASSWORD.equals(password)) {
+            error = null;
+            screen = PRODUCTS;
+        } else {
+            error = "Username and password do not match any user in this service.";
+        }
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String fixture(String name) {
+        String resource = "stub/" + platform + "/" + name + ".xml";
+        return fixtures.computeIfAbsent(resource, SwagLabsApp::load);
+    }
+
+    private static String load(String resource) {
+        try (InputStream input = SwagLabsApp.class.getClassLoader().getResourceAsStream(resource)) {
+            if (input == null) {
+                throw new RuntimeException("Unable to find stub fixture " + resource);
+            }
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
+            }
+            return new String(content.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load stub fixture " + resource, e);
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
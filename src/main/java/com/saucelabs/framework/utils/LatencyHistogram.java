@@ -0,0 +1,117 @@
+package com.saucelabs.framework.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 低开销、线程安全的延迟直方图。
+ * 以微秒为单位记录，每个2的幂区间再分为8个子桶，百分位的相对误差不超过12.5%。
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = 64 * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    /**
+     * 记录一次耗时
+     * @param nanos 耗时（纳秒）
+     */
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        buckets.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        totalMicros.addAndGet(micros);
+        long currentMax;
+        while (micros > (currentMax = maxMicros.get())) {
+            if (maxMicros.compareAndSet(currentMax, micros)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * @return 记录的次数
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * 获取指定百分位的耗时
+     * @param percentile 百分位，例如 0.95
+     * @return 耗时（毫秒），没有记录时返回0
+     */
+    public double getPercentileMillis(double percentile) {
+        long total = count.get();
+        if (total == 0) {
+            return 0;
+        }
+        long target = (long) Math.ceil(percentile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * @return 最大耗时（毫秒）
+     */
+    public double getMaxMillis() {
+        return maxMicros.get() / 1000.0;
+    }
+
+    /**
+     * @return 累计耗时（毫秒）
+     */
+    public double getTotalMillis() {
+        return totalMicros.get() / 1000.0;
+    }
+
+    /**
+     * 生成摘要：次数、累计耗时、p50/p95/p99和最大值（毫秒）
+     * @return 摘要
+     */
+    public Map<String, Object> summary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", getCount());
+        summary.put("totalMs", round(getTotalMillis()));
+        summary.put("p50Ms", round(getPercentileMillis(0.50)));
+        summary.put("p95Ms", round(getPercentileMillis(0.95)));
+        summary.put("p99Ms", round(getPercentileMillis(0.99)));
+        summary.put("maxMs", round(getMaxMillis()));
+        return summary;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+
+    private static int indexOf(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + subBucket;
+    }
+
+    private static long upperBoundOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+}
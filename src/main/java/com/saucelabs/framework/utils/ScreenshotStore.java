@@ -0,0 +1,344 @@
+package com.saucelabs.framework.utils;
+
+import com.saucelabs.framework.core.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 按内容寻址的截图存储。
+ * 每张截图按SHA-256保存一次；与最近截图感知哈希（dHash）足够接近的截图仍单独保存，只在报告中共用已生成的图片。
+ * 每次截图在索引文件中记录一行名称到哈希的引用，报告中也只记录引用或缩小后的图片。
+ * 写入被丢弃或失败的截图不会留在索引中，之后内容相同的截图会重新写入。
+ * 原始字节和报告图片只为最近的截图保留在内存中。
+ */
+public class ScreenshotStore {
+    private static final Logger logger = LoggerFactory.getLogger(ScreenshotStore.class);
+    private static final String STORE_DIRECTORY = "target/screenshots/store/";
+    private static final Path INDEX_FILE = Paths.get("target/screenshots/index.csv");
+    private static final int RECENT_HASHES = 32;
+
+    private static final Map<String, StoredScreenshot> bySha = new ConcurrentHashMap<>();
+    private static final Deque<StoredScreenshot> recent = new ArrayDeque<>();
+    /** 报告图片，只保留最近截图用到的，随recent一起淘汰 */
+    private static final Map<String, byte[]> reportRenditions = new HashMap<>();
+
+    private ScreenshotStore() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 保存截图，内容完全相同的截图只记录引用
+     * @param name 截图名称，写入索引文件
+     * @param png PNG格式的截图字节
+     * @return 存储的截图引用
+     */
+    public static StoredScreenshot store(String name, byte[] png) {
+        String sha = sha256(png);
+        StoredScreenshot stored = bySha.get(sha);
+
+        if (stored == null) {
+            long perceptualHash = 0;
+            StoredScreenshot similar = null;
+            if (Configuration.getScreenshotDedupThreshold() >= 0) {
+                BufferedImage image = decode(png);
+                if (image != null) {
+                    perceptualHash = dHash(image);
+                    similar = findNearDuplicate(perceptualHash);
+                }
+            }
+            // 每个不同的SHA都单独保存：dHash相同的截图仍可能文字不同，近似重复只共用报告图片
+            String renditionKey = similar == null ? sha : similar.renditionKey;
+            stored = new StoredScreenshot(sha, perceptualHash, renditionKey,
+                    Paths.get(STORE_DIRECTORY, sha + ".png"), png);
+            StoredScreenshot existing = bySha.putIfAbsent(sha, stored);
+            if (existing == null) {
+                remember(stored);
+                StoredScreenshot submitted = stored;
+                ScreenshotWriter.submit(stored.getPath(), png).whenComplete((path, error) -> written(submitted, path, error));
+            } else {
+                stored = existing;
+            }
+        }
+
+        // 被丢弃的截图（drop策略下队列已满时立即确定）不在索引中引用不存在的文件
+        CompletableFuture<Path> written = stored.getWritten();
+        boolean dropped = written.isDone() && !written.isCompletedExceptionally() && written.getNow(null) == null;
+        String line = LocalDateTime.now() + "," + name.replace(',', ' ') + "," + stored.getSha() + ","
+                + (dropped ? "" : stored.getPath().toString()) + "\n";
+        ScreenshotWriter.append(INDEX_FILE, line.getBytes(StandardCharsets.UTF_8));
+        logger.debug("Screenshot {} stored as {}", name, stored.getPath());
+        return stored;
+    }
+
+    /**
+     * 获取用于报告的图片：按screenshot.report.maxWidth缩小，并按screenshot.report.format重新编码
+     * @param stored 存储的截图
+     * @return 报告使用的图片字节
+     */
+    public static byte[] reportImage(StoredScreenshot stored) {
+        synchronized (recent) {
+            byte[] cached = reportRenditions.get(stored.renditionKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        byte[] png = stored.getBytes();
+        byte[] rendition = render(png);
+        if (rendition != null && rendition != png) {
+            // 未重新编码时报告直接使用原始字节，不缓存，以免长期持有已释放的原图
+            synchronized (recent) {
+                if (isRecentRendition(stored.renditionKey)) {
+                    reportRenditions.putIfAbsent(stored.renditionKey, rendition);
+                }
+            }
+        }
+        return rendition;
+    }
+
+    /**
+     * @return 报告图片的MIME类型
+     */
+    public static String reportMediaType() {
+        return "jpeg".equalsIgnoreCase(Configuration.getScreenshotReportFormat()) ? "image/jpeg" : "image/png";
+    }
+
+    private static StoredScreenshot findNearDuplicate(long perceptualHash) {
+        int threshold = Configuration.getScreenshotDedupThreshold();
+        synchronized (recent) {
+            for (StoredScreenshot candidate : recent) {
+                if (Long.bitCount(candidate.getPerceptualHash() ^ perceptualHash) <= threshold) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    private static void remember(StoredScreenshot stored) {
+        synchronized (recent) {
+            recent.addFirst(stored);
+            if (recent.size() > RECENT_HASHES) {
+                StoredScreenshot evicted = recent.removeLast();
+                evicted.releaseBytes();
+                if (!isRecentRendition(evicted.renditionKey)) {
+                    reportRenditions.remove(evicted.renditionKey);
+                }
+            }
+        }
+    }
+
+    private static void written(StoredScreenshot stored, Path path, Throwable error) {
+        if (path == null) {
+            // 被丢弃或写入失败：之后内容相同的截图重新写入，也不再作为近似重复的参照
+            bySha.remove(stored.getSha(), stored);
+            synchronized (recent) {
+                recent.remove(stored);
+                if (!isRecentRendition(stored.renditionKey)) {
+                    reportRenditions.remove(stored.renditionKey);
+                }
+            }
+        }
+        if (error != null) {
+            stored.written.completeExceptionally(error);
+        } else {
+            stored.written.complete(path);
+        }
+    }
+
+    /**
+     * 调用方需持有recent的锁
+     */
+    private static boolean isRecentRendition(String renditionKey) {
+        for (StoredScreenshot candidate : recent) {
+            if (candidate.renditionKey.equals(renditionKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] render(byte[] png) {
+        int maxWidth = Configuration.getScreenshotReportMaxWidth();
+        boolean jpeg = "jpeg".equalsIgnoreCase(Configuration.getScreenshotReportFormat());
+        if (png == null || (maxWidth <= 0 && !jpeg)) {
+            return png;
+        }
+        BufferedImage image = decode(png);
+        if (image == null) {
+            return png;
+        }
+        if (maxWidth > 0 && image.getWidth() > maxWidth) {
+            int height = (int) Math.round(image.getHeight() * (maxWidth / (double) image.getWidth()));
+            image = scale(image, maxWidth, height, BufferedImage.TYPE_INT_RGB);
+        } else if (jpeg) {
+            image = scale(image, image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        }
+        try {
+            return jpeg ? encodeJpeg(image, Configuration.getScreenshotReportQuality()) : encodePng(image);
+        } catch (IOException e) {
+            logger.warn("Failed to re-encode screenshot for report", e);
+            return png;
+        }
+    }
+
+    /**
+     * 差值哈希：缩小为9x8灰度图，比较相邻像素的亮度
+     */
+    private static long dHash(BufferedImage image) {
+        BufferedImage small = scale(image, 9, 8, BufferedImage.TYPE_BYTE_GRAY);
+        long hash = 0;
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int left = small.getRaster().getSample(x, y, 0);
+                int right = small.getRaster().getSample(x + 1, y, 0);
+                hash = (hash << 1) | (left > right ? 1 : 0);
+            }
+        }
+        return hash;
+    }
+
+    private static BufferedImage scale(BufferedImage source, int width, int height, int type) {
+        BufferedImage target = new BufferedImage(width, height, type);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static BufferedImage decode(byte[] png) {
+        try {
+            return ImageIO.read(new ByteArrayInputStream(png));
+        } catch (IOException e) {
+            logger.warn("Failed to decode screenshot", e);
+            return null;
+        }
+    }
+
+    private static byte[] encodePng(BufferedImage image) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("jpeg");
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(output)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return output.toByteArray();
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * 存储中的一张截图
+     */
+    public static class StoredScreenshot {
+        private final String sha;
+        private final long perceptualHash;
+        private final String renditionKey;
+        private final Path path;
+        private volatile byte[] png;
+        private final CompletableFuture<Path> written = new CompletableFuture<>();
+
+        StoredScreenshot(String sha, long perceptualHash, String renditionKey, Path path, byte[] png) {
+            this.sha = sha;
+            this.perceptualHash = perceptualHash;
+            this.renditionKey = renditionKey;
+            this.path = path;
+            this.png = png;
+        }
+
+        public String getSha() {
+            return sha;
+        }
+
+        public long getPerceptualHash() {
+            return perceptualHash;
+        }
+
+        /**
+         * @return 图片在存储目录中的路径
+         */
+        public Path getPath() {
+            return path;
+        }
+
+        /**
+         * @return 图片写入磁盘完成后返回路径的Future；截图被丢弃时结果为null
+         */
+        public CompletableFuture<Path> getWritten() {
+            return written;
+        }
+
+        /**
+         * @return 原始PNG字节，已从内存释放时从磁盘读取
+         */
+        private byte[] getBytes() {
+            byte[] bytes = png;
+            if (bytes != null) {
+                return bytes;
+            }
+            try {
+                return Files.readAllBytes(path);
+            } catch (IOException e) {
+                logger.warn("Screenshot {} is not available on disk", path);
+                return null;
+            }
+        }
+
+        private void releaseBytes() {
+            // 只为最近的截图保留原始字节，用于生成报告图片
+            png = null;
+        }
+    }
+}
@@ -6,63 +6,52 @@ import org.openqa.selenium.TakesScreenshot;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.File;
-import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Future;
 
 /**
  * Utility class for taking screenshots
  */
 public class ScreenshotUtils {
     private static final Logger logger = LoggerFactory.getLogger(ScreenshotUtils.class);
-    private static final String SCREENSHOT_DIRECTORY = "target/screenshots/";
 
     private ScreenshotUtils() {
         // Private constructor to prevent instantiation
     }
 
     /**
-     * Take a screenshot and save it to the screenshots directory
+     * Take a screenshot and save it to the content-addressed screenshot store.
+     * Duplicate and near-duplicate screenshots resolve to an already stored image,
+     * and the file is written in the background.
      * @param screenshotName Name of the screenshot
-     * @return Path to the saved screenshot file, or null if screenshot could not be taken
+     * @return Path to the screenshot file, or null if screenshot could not be taken
      */
     public static String takeScreenshot(String screenshotName) {
-        try {
-            // Create screenshot directory if it doesn't exist
-            File directory = new File(SCREENSHOT_DIRECTORY);
-            if (!directory.exists()) {
-                directory.mkdirs();
-            }
+        byte[] png = takeScreenshotAsBytes();
+        if (png == null) {
+            return null;
+        }
+        Path destinationPath = ScreenshotStore.store(screenshotName, png).getPath();
+        logger.info("Screenshot saved: {}", destinationPath);
+        return destinationPath.toString();
+    }
 
-            // Take screenshot
-            File screenshot = ((TakesScreenshot) DriverManager.getDriver()).getScreenshotAs(OutputType.FILE);
-            
-            // Generate filename with timestamp
-            LocalDateTime now = LocalDateTime.now();
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
-            String timestamp = now.format(formatter);
-            
-            // Create the file path
-            String fileName = screenshotName + "_" + timestamp + ".png";
-            Path destinationPath = Paths.get(SCREENSHOT_DIRECTORY, fileName);
-            
-            // Copy the screenshot to the destination
-            Files.copy(screenshot.toPath(), destinationPath);
-            
-            logger.info("Screenshot saved: {}", destinationPath);
-            return destinationPath.toString();
-        } catch (IOException e) {
-            logger.error("Failed to take screenshot", e);
+    /**
+     * Take a screenshot and hand it to the screenshot store without waiting for the disk write
+     * @param screenshotName Name of the screenshot
+     * @return Future completing with the stored path (null if the screenshot was dropped),
+     *         or null if screenshot could not be taken
+     */
+    public static Future<Path> takeScreenshotAsync(String screenshotName) {
+        byte[] png = takeScreenshotAsBytes();
+        if (png == null) {
             return null;
         }
+        return ScreenshotStore.store(screenshotName, png).getWritten();
     }
 
     /**
-     * Take a screenshot and return it as byte array
+     * Take a screenshot and return it as byte array, decoded once in memory without a temp file
      * @return Screenshot as byte array, or null if screenshot could not be taken
      */
     public static byte[] takeScreenshotAsBytes() {
@@ -0,0 +1,135 @@
+package com.saucelabs.framework.utils;
+
+import com.saucelabs.framework.core.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 在后台线程中把截图写入磁盘。
+ * 测试线程只提交PNG字节并拿到Future；队列已满时按配置阻塞等待或丢弃截图，
+ * JVM退出前会写完队列中剩余的截图。
+ */
+public class ScreenshotWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ScreenshotWriter.class);
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(ScreenshotWriter::shutdown, "screenshot-writer-shutdown"));
+    }
+
+    private ScreenshotWriter() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 提交一张截图，异步写入目标路径
+     * @param destination 目标文件路径
+     * @param png PNG格式的截图字节
+     * @return 写入完成后返回路径的Future；截图被丢弃时返回null
+     */
+    public static CompletableFuture<Path> submit(Path destination, byte[] png) {
+        return enqueue(destination, png, false);
+    }
+
+    /**
+     * 提交一段要追加到文件末尾的内容，与截图按提交顺序写入
+     * @param destination 目标文件路径
+     * @param data 要追加的字节
+     * @return 写入完成后返回路径的Future；被丢弃时返回null
+     */
+    public static CompletableFuture<Path> append(Path destination, byte[] data) {
+        return enqueue(destination, data, true);
+    }
+
+    private static CompletableFuture<Path> enqueue(Path destination, byte[] data, boolean append) {
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        Runnable task = () -> {
+            try {
+                write(destination, data, append);
+                future.complete(destination);
+            } catch (IOException | RuntimeException e) {
+                logger.error("Failed to write screenshot {}", destination, e);
+                future.completeExceptionally(e);
+            }
+        };
+        try {
+            executor.execute(task);
+        } catch (DroppedException e) {
+            logger.warn("Screenshot queue is full, dropping {}", destination);
+            future.complete(null);
+        }
+        return future;
+    }
+
+    /**
+     * 等待队列中所有截图写入完成，最长等待screenshot.flush.timeout.seconds
+     */
+    public static void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(Configuration.getScreenshotFlushTimeoutSeconds(), TimeUnit.SECONDS)) {
+                logger.warn("Timed out flushing {} pending screenshots", executor.getQueue().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void write(Path destination, byte[] data, boolean append) throws IOException {
+        Files.createDirectories(destination.getParent());
+        try (FileChannel channel = FileChannel.open(destination, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    private static ThreadPoolExecutor createExecutor() {
+        BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(Configuration.getScreenshotQueueCapacity());
+        RejectedExecutionHandler handler = "drop".equalsIgnoreCase(Configuration.getScreenshotQueuePolicy())
+                ? (task, pool) -> {
+                    throw new DroppedException();
+                }
+                : (task, pool) -> {
+                    // 背压：队列满时阻塞提交截图的测试线程
+                    if (pool.isShutdown()) {
+                        throw new DroppedException();
+                    }
+                    try {
+                        pool.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DroppedException();
+                    }
+                };
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, "screenshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        }, handler);
+        pool.prestartCoreThread();
+        return pool;
+    }
+
+    private static class DroppedException extends RuntimeException {
+        DroppedException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.saucelabs.framework.utils;
+
+import com.saucelabs.framework.core.CommandMetrics;
+import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.core.DriverManager;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 框架中所有等待的唯一入口。
+ * driver的隐式等待固定为0，等待由这里的轮询完成：轮询间隔按配置退避增长，
+ * 到达截止时间后不再发起新的轮询，每次调用的耗时记录到对应名称的直方图中。
+ */
+public class WaitEngine {
+    private static final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+
+    private WaitEngine() {
+        // Private constructor to prevent instantiation
+    }
+
+    /**
+     * 等待条件满足：返回值非null且不为false
+     * @param name 等待名称，用于统计
+     * @param condition 条件，例如 ExpectedConditions.visibilityOf(element)
+     * @param timeoutInSeconds 超时时间（秒）
+     * @return 条件的返回值
+     */
+    public static <T> T until(String name, Function<? super WebDriver, T> condition, long timeoutInSeconds) {
+        return untilMillis(name, condition, timeoutInSeconds * 1000);
+    }
+
+    /**
+     * 等待条件满足，使用毫秒级超时时间
+     * @param name 等待名称，用于统计
+     * @param condition 条件
+     * @param timeoutInMillis 超时时间（毫秒）
+     * @return 条件的返回值
+     */
+    public static <T> T untilMillis(String name, Function<? super WebDriver, T> condition, long timeoutInMillis) {
+        WebDriver driver = DriverManager.getDriver();
+        long start = System.nanoTime();
+        long deadline = start + timeoutInMillis * 1_000_000L;
+        long interval = Configuration.getWaitPollingInitialMillis();
+        RuntimeException lastException = null;
+
+        try {
+            while (true) {
+                try {
+                    T value = condition.apply(driver);
+                    if (value != null && !Boolean.FALSE.equals(value)) {
+                        return value;
+                    }
+                } catch (NotFoundException | StaleElementReferenceException e) {
+                    lastException = e;
+                }
+
+                long remainingMillis = (deadline - System.nanoTime()) / 1_000_000L;
+                if (remainingMillis <= 0) {
+                    throw new TimeoutException("Timed out after " + timeoutInMillis + " ms waiting for " + name
+                            + ": " + condition, lastException);
+                }
+                sleep(Math.min(interval, remainingMillis));
+                interval = Math.min((long) (interval * Configuration.getWaitPollingMultiplier()),
+                        Configuration.getWaitPollingMaxMillis());
+            }
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            histogram(name).recordNanos(elapsed);
+            CommandMetrics.record("wait:" + name, elapsed);
+        }
+    }
+
+    /**
+     * 获取所有等待的耗时直方图
+     * @return 按等待名称排序的直方图
+     */
+    public static Map<String, LatencyHistogram> getHistograms() {
+        return new TreeMap<>(histograms);
+    }
+
+    private static LatencyHistogram histogram(String name) {
+        return histograms.computeIfAbsent(name, k -> new LatencyHistogram());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Interrupted while waiting", e);
+        }
+    }
+}
@@ -1,14 +1,11 @@
 package com.saucelabs.framework.utils;
 
-import com.saucelabs.framework.core.DriverManager;
-import io.appium.java_client.AppiumDriver;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 
 /**
- * Utility class for wait operations
+ * Utility class for wait operations, backed by {@link WaitEngine}
  */
 public class WaitUtils {
     
@@ -22,9 +19,7 @@ public class WaitUtils {
      * @param timeoutInSeconds Timeout in seconds
      */
     public static void waitForVisibility(WebElement element, long timeoutInSeconds) {
-        AppiumDriver<WebElement> driver = DriverManager.getDriver();
-        WebDriverWait wait = new WebDriverWait(driver, timeoutInSeconds);
-        wait.until(ExpectedConditions.visibilityOf(element));
+        WaitEngine.until("visibility", ExpectedConditions.visibilityOf(element), timeoutInSeconds);
     }
     
     /**
@@ -33,9 +28,7 @@ public class WaitUtils {
      * @param timeoutInSeconds Timeout in seconds
      */
     public static void waitForClickability(WebElement element, long timeoutInSeconds) {
-        AppiumDriver<WebElement> driver = DriverManager.getDriver();
-        WebDriverWait wait = new WebDriverWait(driver, timeoutInSeconds);
-        wait.until(ExpectedConditions.elementToBeClickable(element));
+        WaitEngine.until("clickable", ExpectedConditions.elementToBeClickable(element), timeoutInSeconds);
     }
     
     /**
@@ -44,9 +37,7 @@ public class WaitUtils {
      * @param timeoutInSeconds Timeout in seconds
      */
     public static void waitForPresence(By locator, long timeoutInSeconds) {
-        AppiumDriver<WebElement> driver = DriverManager.getDriver();
-        WebDriverWait wait = new WebDriverWait(driver, timeoutInSeconds);
-        wait.until(ExpectedConditions.presenceOfElementLocated(locator));
+        WaitEngine.until("presence", ExpectedConditions.presenceOfElementLocated(locator), timeoutInSeconds);
     }
     
     /**
@@ -55,9 +46,7 @@ public class WaitUtils {
      * @param timeoutInSeconds Timeout in seconds
      */
     public static void waitForInvisibility(WebElement element, long timeoutInSeconds) {
-        AppiumDriver<WebElement> driver = DriverManager.getDriver();
-        WebDriverWait wait = new WebDriverWait(driver, timeoutInSeconds);
-        wait.until(ExpectedConditions.invisibilityOf(element));
+        WaitEngine.until("invisibility", ExpectedConditions.invisibilityOf(element), timeoutInSeconds);
     }
     
     /**
@@ -0,0 +1,116 @@
+package com.saucelabs.framework.core;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConfigurationSnapshotTest {
+
+    private static ConfigurationSnapshot load(Map<String, String> environment, String... systemProperties) {
+        Properties properties = new Properties();
+        for (int i = 0; i < systemProperties.length; i += 2) {
+            properties.setProperty(systemProperties[i], systemProperties[i + 1]);
+        }
+        return ConfigurationSnapshot.load(environment, properties);
+    }
+
+    private static ConfigurationSnapshot load(String... systemProperties) {
+        return load(Collections.<String, String>emptyMap(), systemProperties);
+    }
+
+    @Test
+    public void unsetKeysUseTheSchemaDefault() {
+        ConfigurationSnapshot config = load();
+        assertNull(config.getInteger("android.systemPort"));
+        assertEquals("default", config.getSource("android.systemPort"));
+    }
+
+    @Test
+    public void configFileOverridesTheDefault() {
+        ConfigurationSnapshot config = load();
+        assertTrue(config.getBoolean("session.reuse"));
+        assertEquals("config.properties", config.getSource("session.reuse"));
+    }
+
+    @Test
+    public void profileOverridesTheConfigFile() {
+        ConfigurationSnapshot config = load("config.profile", "layering");
+        assertEquals(Integer.valueOf(5), config.getInteger("session.maxUses"));
+        assertFalse(config.getBoolean("session.reuse"));
+        assertEquals("config-layering.properties", config.getSource("session.maxUses"));
+    }
+
+    @Test
+    public void profileCanBeSelectedFromTheEnvironment() {
+        ConfigurationSnapshot config = load(Collections.singletonMap("TEST_CONFIG_PROFILE", "layering"));
+        assertEquals(Integer.valueOf(5), config.getInteger("session.maxUses"));
+    }
+
+    @Test
+    public void environmentOverridesTheProfileAndSystemPropertiesOverrideTheEnvironment() {
+        Map<String, String> environment = Collections.singletonMap("TEST_SESSION_MAX_USES", "7");
+        ConfigurationSnapshot fromEnvironment = load(environment, "config.profile", "layering");
+        assertEquals(Integer.valueOf(7), fromEnvironment.getInteger("session.maxUses"));
+        assertEquals("environment", fromEnvironment.getSource("session.maxUses"));
+
+        ConfigurationSnapshot fromSystem = load(environment, "config.profile", "layering", "session.maxUses", "9");
+        assertEquals(Integer.valueOf(9), fromSystem.getInteger("session.maxUses"));
+        assertEquals("system properties", fromSystem.getSource("session.maxUses"));
+    }
+
+    @Test
+    public void blankValuesKeepTheLowerLayer() {
+        ConfigurationSnapshot config = load(Collections.singletonMap("TEST_SESSION_MAX_USES", "  "),
+                "config.profile", "layering");
+        assertEquals(Integer.valueOf(5), config.getInteger("session.maxUses"));
+        assertEquals("config-layering.properties", config.getSource("session.maxUses"));
+    }
+
+    @Test
+    public void onlyKnownAndOpenPrefixKeysAreTakenFromTheEnvironmentAndSystemProperties() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put("TEST_FIXTURE_DEEPLINK_CART", "saucelabs://cart");
+        environment.put("TEST_UNRELATED", "x");
+        ConfigurationSnapshot config = load(environment, "fixture.deeplink.cart", "saucelabs://ignored",
+                "java.custom", "y");
+        assertEquals("saucelabs://ignored", config.getRaw("fixture.deeplink.cart"));
+        assertFalse(config.getKeys().contains("java.custom"));
+        assertFalse(config.getKeys().contains("unrelated"));
+    }
+
+    @Test
+    public void invalidValuesFailWithTheirSource() {
+        try {
+            load("session.maxUses", "-1", "wait.polling.multiplier", "fast");
+            fail("Invalid values should be rejected");
+        } catch (RuntimeException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("'session.maxUses' = '-1' (from system properties)"));
+            assertTrue(e.getMessage(), e.getMessage().contains("'wait.polling.multiplier' = 'fast'"));
+        }
+    }
+
+    @Test
+    public void unknownTypedKeysAreRejected() {
+        try {
+            load().getString("no.such.key");
+            fail("Unknown keys should be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("no.such.key"));
+        }
+    }
+
+    @Test
+    public void environmentNamesSplitCamelCase() {
+        assertEquals("TEST_SESSION_MAX_USES", ConfigurationSnapshot.environmentName("session.maxUses"));
+        assertEquals("TEST_FIXTURE_LOGGED-IN_PASSWORD", ConfigurationSnapshot.environmentName("fixture.logged-in.password"));
+    }
+}
@@ -0,0 +1,68 @@
+package com.saucelabs.framework.core;
+
+import org.junit.Test;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.SessionId;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class UiMutationsTest {
+
+    @Test
+    public void readCommandsDoNotAdvanceTheGeneration() {
+        SessionId session = new SessionId("read-only");
+        UiMutations.executed(new Command(session, DriverCommand.GET_PAGE_SOURCE));
+        UiMutations.executed(new Command(session, DriverCommand.FIND_ELEMENTS,
+                Collections.singletonMap("using", "accessibility id")));
+        UiMutations.executed(new Command(session, DriverCommand.EXECUTE_SCRIPT,
+                Collections.singletonMap("script", "mobile: pullFolder")));
+        assertEquals(0, UiMutations.generation("read-only"));
+    }
+
+    @Test
+    public void mutatingCommandsAdvanceOnlyTheirOwnSession() {
+        SessionId session = new SessionId("mutating");
+        UiMutations.executed(new Command(session, DriverCommand.CLICK_ELEMENT));
+        UiMutations.executed(new Command(session, DriverCommand.EXECUTE_SCRIPT,
+                Collections.singletonMap("script", "mobile: deepLink")));
+        assertEquals(2, UiMutations.generation("mutating"));
+        assertEquals(0, UiMutations.generation("other"));
+    }
+
+    @Test
+    public void quitForgetsTheSession() {
+        SessionId session = new SessionId("quitting");
+        UiMutations.executed(new Command(session, DriverCommand.SEND_KEYS_TO_ELEMENT));
+        UiMutations.executed(new Command(session, DriverCommand.QUIT));
+        assertEquals(0, UiMutations.generation("quitting"));
+    }
+
+    @Test
+    public void unknownScriptsCountAsMutations() {
+        assertTrue(UiMutations.isRead(new Command(null, DriverCommand.GET_ELEMENT_ATTRIBUTE)));
+        assertFalse(UiMutations.isRead(new Command(null, DriverCommand.EXECUTE_SCRIPT,
+                Collections.singletonMap("script", "mobile: shell"))));
+        assertFalse(UiMutations.isRead(new Command(null, "terminateApp")));
+    }
+
+    @Test
+    public void textEntryDoesNotAdvanceTheLayoutGeneration() {
+        SessionId session = new SessionId("typing");
+        UiMutations.executed(new Command(session, DriverCommand.SEND_KEYS_TO_ELEMENT));
+        UiMutations.executed(new Command(session, DriverCommand.CLEAR_ELEMENT));
+        assertEquals(2, UiMutations.generation("typing"));
+        assertEquals(0, UiMutations.layoutGeneration("typing"));
+
+        UiMutations.executed(new Command(session, DriverCommand.CLICK_ELEMENT));
+        assertEquals(3, UiMutations.generation("typing"));
+        assertEquals(1, UiMutations.layoutGeneration("typing"));
+
+        UiMutations.executed(new Command(session, DriverCommand.QUIT));
+        assertEquals(0, UiMutations.layoutGeneration("typing"));
+    }
+}
@@ -0,0 +1,45 @@
+package com.saucelabs.framework.pages;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BasePageTest {
+
+    @Test
+    public void androidUnionIsAnAnchoredDescriptionRegex() {
+        By by = BasePage.accessibilityIdUnion(Arrays.asList("test-Username", "a.b"), true);
+        assertEquals("By.AndroidUIAutomator: new UiSelector().descriptionMatches(\"^(?:test\\\\-Username|a\\\\.b)$\")",
+                by.toString());
+    }
+
+    @Test
+    public void androidUnionMatchesOnlyTheExactIds() {
+        By by = BasePage.accessibilityIdUnion(Arrays.asList("a.b", "say \"hi\""), true);
+        String literal = by.toString().replaceAll("^.*descriptionMatches\\(\"(.*)\"\\)$", "$1");
+        Pattern regex = Pattern.compile(literal.replaceAll("\\\\(.)", "$1"));
+        assertTrue(regex.matcher("a.b").matches());
+        assertTrue(regex.matcher("say \"hi\"").matches());
+        assertFalse(regex.matcher("axb").matches());
+        assertFalse(regex.matcher("a.bc").matches());
+    }
+
+    @Test
+    public void iosUnionIsAClassChainInCondition() {
+        By by = BasePage.accessibilityIdUnion(Arrays.asList("test-Username", "say \"hi\""), false);
+        assertEquals("By.IosClassChain: **/*[`name IN {\"test-Username\", \"say \\\"hi\\\"\"}`]", by.toString());
+    }
+
+    @Test
+    public void iosUnionRejectsBackticks() {
+        assertNull(BasePage.accessibilityIdUnion(Collections.singletonList("a`b"), false));
+    }
+}
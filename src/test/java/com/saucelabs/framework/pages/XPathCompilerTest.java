@@ -0,0 +1,195 @@
+package com.saucelabs.framework.pages;
+
+import org.junit.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.SearchContext;
+import org.openqa.selenium.WebElement;
+
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class XPathCompilerTest {
+
+    private static String android(String xpath) {
+        XPathCompiler.Compilation compilation = XPathCompiler.compile(xpath, "android");
+        assertTrue(xpath + " should compile: " + compilation.getReason(), compilation.isNative());
+        return compilation.getLocator();
+    }
+
+    private static String ios(String xpath) {
+        XPathCompiler.Compilation compilation = XPathCompiler.compile(xpath, "ios");
+        assertTrue(xpath + " should compile: " + compilation.getReason(), compilation.isNative());
+        return compilation.getLocator();
+    }
+
+    private static void assertRejected(String xpath, String platform) {
+        XPathCompiler.Compilation compilation = XPathCompiler.compile(xpath, platform);
+        assertFalse(xpath + " should stay XPath on " + platform, compilation.isNative());
+        assertEquals(xpath, compilation.getLocator());
+        assertNotNull(compilation.getReason());
+    }
+
+    @Test
+    public void compilesChildStepToChildSelectorAndClassChain() {
+        assertEquals("new UiSelector().className(\"android.view.ViewGroup\").description(\"test-Error message\")"
+                        + ".childSelector(new UiSelector().className(\"android.widget.TextView\"))",
+                android("//android.view.ViewGroup[@content-desc='test-Error message']/android.widget.TextView"));
+        assertEquals("**/XCUIElementTypeOther[`name == \"test-Error message\"`]/XCUIElementTypeStaticText",
+                ios("//XCUIElementTypeOther[@name='test-Error message']/XCUIElementTypeStaticText"));
+    }
+
+    @Test
+    public void compilesDescendantStepInTheMiddleOfAPath() {
+        assertEquals("**/XCUIElementTypeCell/**/XCUIElementTypeButton",
+                ios("//XCUIElementTypeCell//XCUIElementTypeButton"));
+    }
+
+    @Test
+    public void joinsAndPredicates() {
+        assertEquals("new UiSelector().description(\"a\").enabled(true)",
+                android("//*[@content-desc='a' and @enabled='true']"));
+        assertEquals("**/*[`name == \"a\" AND visible == 1`]", ios("//*[@name='a' and @visible='true']"));
+        assertEquals("new UiSelector().text(\"b\").resourceId(\"c\")", android("//*[@text='b'][@resource-id='c']"));
+    }
+
+    @Test
+    public void compilesPositions() {
+        assertEquals("new UiSelector().className(\"android.widget.TextView\").instance(1)",
+                android("(//android.widget.TextView)[2]"));
+        assertEquals("**/XCUIElementTypeCell[3]", ios("(//XCUIElementTypeCell)[3]"));
+        assertEquals("new UiSelector().className(\"a\").childSelector(new UiSelector().index(2))", android("//a/*[3]"));
+        assertEquals("**/XCUIElementTypeCell[`name == \"x\"`]/XCUIElementTypeButton[2]",
+                ios("//XCUIElementTypeCell[@name='x']/XCUIElementTypeButton[2]"));
+    }
+
+    @Test
+    public void quotesValues() {
+        assertEquals("new UiSelector().text(\"it's\")", android("//*[@text=\"it's\"]"));
+        assertEquals("**/*[`name == \"say \\\"hi\\\"\"`]", ios("//*[@name='say \"hi\"']"));
+        assertEquals("new UiSelector().text(\"a\\\\b\")", android("//*[@text='a\\b']"));
+    }
+
+    @Test
+    public void rejectsPositionsWithoutAnExactEquivalent() {
+        assertRejected("//a/b[2]", "android");
+        assertRejected("//a//b[2]", "ios");
+        assertRejected("//b[2]", "android");
+        assertRejected("(//a/b)[2]", "android");
+        assertRejected("(//a/b)[2]", "ios");
+        assertRejected("//a[1][@text='x']", "android");
+    }
+
+    @Test
+    public void rejectsUnsupportedSyntax() {
+        assertRejected("/hierarchy/android.widget.FrameLayout", "android");
+        assertRejected("//a[contains(@text,'x')]", "android");
+        assertRejected("//a[@text='x' or @text='y']", "android");
+        assertRejected("//a/..", "ios");
+        assertRejected("//a/text()", "ios");
+        assertRejected("//a[@b='c'][", "android");
+        assertRejected("//a[@text='x' and @text='y']", "android");
+        assertRejected("//*[@enabled='yes']", "android");
+        assertRejected("//*[@name='a`b']", "ios");
+    }
+
+    @Test
+    public void rejectsAttributesWithoutANativeEquivalent() {
+        assertRejected("//*[@name='x']", "android");
+        assertRejected("//*[@content-desc='x']", "ios");
+        assertRejected("//*[@text='x']", "ios");
+    }
+
+    @Test
+    public void nativeHitIsVerifiedAgainstXPathOnce() {
+        XPathCompiler.Compilation compilation = XPathCompiler.compile("//verified[@content-desc='a']/b", "android");
+        WebElement element = element(0);
+        FakeContext context = new FakeContext(element, element);
+        By by = new XPathCompiler.CompiledBy(compilation);
+
+        assertEquals(Collections.singletonList(element), by.findElements(context));
+        assertEquals(Collections.singletonList(element), by.findElements(context));
+        assertTrue(compilation.isNative());
+        assertEquals(1, context.xpathQueries);
+    }
+
+    @Test
+    public void nativeHitOnADifferentElementFallsBackToXPath() {
+        XPathCompiler.Compilation compilation = XPathCompiler.compile("//mismatch[@content-desc='a']/b", "android");
+        WebElement expected = element(0);
+        FakeContext context = new FakeContext(element(40), expected);
+        By by = new XPathCompiler.CompiledBy(compilation);
+
+        assertEquals(Collections.singletonList(expected), by.findElements(context));
+        assertFalse(compilation.isNative());
+        assertNotNull(compilation.getReason());
+        by.findElements(context);
+        assertEquals(1, context.nativeQueries);
+    }
+
+    @Test
+    public void nativeMissIsNotRecheckedWithXPath() {
+        XPathCompiler.Compilation compilation = XPathCompiler.compile("//absent[@content-desc='a']", "android");
+        FakeContext context = new FakeContext(null, null);
+
+        assertTrue(new XPathCompiler.CompiledBy(compilation).findElements(context).isEmpty());
+        assertEquals(0, context.xpathQueries);
+        assertTrue(compilation.isNative());
+    }
+
+    private static WebElement element(int y) {
+        return (WebElement) Proxy.newProxyInstance(WebElement.class.getClassLoader(), new Class<?>[]{WebElement.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "getTagName":
+                            return "b";
+                        case "getRect":
+                            return new Rectangle(0, y, 1, 1);
+                        default:
+                            return null;
+                    }
+                });
+    }
+
+    /**
+     * 原生定位器和XPath各返回一个固定元素（null表示未找到）
+     */
+    private static class FakeContext implements SearchContext {
+        private final WebElement nativeResult;
+        private final WebElement xpathResult;
+        private int nativeQueries;
+        private int xpathQueries;
+
+        private FakeContext(WebElement nativeResult, WebElement xpathResult) {
+            this.nativeResult = nativeResult;
+            this.xpathResult = xpathResult;
+        }
+
+        @Override
+        public List<WebElement> findElements(By by) {
+            boolean xpath = by instanceof By.ByXPath;
+            if (xpath) {
+                xpathQueries++;
+            } else {
+                nativeQueries++;
+            }
+            WebElement result = xpath ? xpathResult : nativeResult;
+            return result == null ? Collections.<WebElement>emptyList() : Collections.singletonList(result);
+        }
+
+        @Override
+        public WebElement findElement(By by) {
+            return findElements(by).get(0);
+        }
+    }
+}
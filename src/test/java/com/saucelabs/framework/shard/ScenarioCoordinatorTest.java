@@ -0,0 +1,34 @@
+package com.saucelabs.framework.shard;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class ScenarioCoordinatorTest {
+    private static final ShardPlanner.Scenario SCENARIO =
+            new ShardPlanner.Scenario("a.feature", 3, "login", Collections.<String>emptyList());
+
+    private static ScenarioCoordinator.Result parse(String line) {
+        return ScenarioCoordinator.parseResult(line, SCENARIO, "worker-1");
+    }
+
+    @Test
+    public void parsesWellFormedResults() {
+        assertNotNull(parse("RESULT 0 1500000 target/workers/worker-1/a-3.json"));
+        assertNotNull(parse("RESULT 1 20 target/reports with spaces/a-3.json"));
+    }
+
+    @Test
+    public void rejectsMalformedResults() {
+        assertNull(parse(""));
+        assertNull(parse("RESULT"));
+        assertNull(parse("RESULT 0 1500000"));
+        assertNull(parse("HELLO 0 1500000 report.json"));
+        assertNull(parse("RESULT x 1500000 report.json"));
+        assertNull(parse("RESULT 0 soon report.json"));
+        assertNull(parse("RESULT 0 1500000 bad\u0000path"));
+    }
+}
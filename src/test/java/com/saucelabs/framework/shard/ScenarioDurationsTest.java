@@ -0,0 +1,113 @@
+package com.saucelabs.framework.shard;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ScenarioDurationsTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 生成只含一个场景的Cucumber JSON报告，耗时全部记在第一个步骤上
+     */
+    static String report(String uri, int line, long nanos, int steps) {
+        return "[" + feature(uri, element("scenario", line, nanos, steps)) + "]";
+    }
+
+    private static String feature(String uri, String... elements) {
+        return "{\"uri\":\"" + uri + "\",\"elements\":[" + String.join(",", elements) + "]}";
+    }
+
+    private static String element(String type, int line, long nanos, int steps) {
+        StringBuilder json = new StringBuilder("{\"type\":\"").append(type).append("\",\"line\":").append(line)
+                .append(",\"steps\":[");
+        for (int i = 0; i < steps; i++) {
+            json.append(i == 0 ? "" : ",").append("{\"result\":{\"status\":\"passed\",\"duration\":")
+                    .append(i == 0 ? nanos : 0).append("}}");
+        }
+        return json.append("]}").toString();
+    }
+
+    private Path write(String name, String content) throws IOException {
+        File file = new File(folder.getRoot(), name);
+        file.getParentFile().mkdirs();
+        return Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void averagesTheSameScenarioAcrossReports() throws IOException {
+        Path first = write("first.json", report("file:features/login.feature", 5, 100, 2));
+        Path second = write("second.json", report("file:features/login.feature", 5, 300, 2));
+
+        ScenarioDurations durations = ScenarioDurations.load(Arrays.asList(first, second));
+
+        assertEquals(1, durations.size());
+        assertTrue(durations.contains("features/login.feature:5"));
+        assertEquals(200, durations.estimate("features/login.feature:5", 2));
+    }
+
+    @Test
+    public void unknownScenariosAreEstimatedFromTheAverageStepDuration() throws IOException {
+        Path report = write("report.json", "[" + feature("features/a.feature",
+                element("scenario", 3, 300, 3), element("scenario", 9, 100, 1)) + "]");
+
+        ScenarioDurations durations = ScenarioDurations.load(Collections.singletonList(report));
+
+        assertEquals(500, durations.estimate("features/a.feature:20", 5));
+        assertEquals(100, durations.estimate("features/a.feature:20", 0));
+    }
+
+    @Test
+    public void withoutHistoryEveryStepCountsOneNanosecond() {
+        ScenarioDurations durations = ScenarioDurations.load(Collections.<Path>emptyList());
+        assertEquals(0, durations.size());
+        assertEquals(4, durations.estimate("features/a.feature:1", 4));
+    }
+
+    @Test
+    public void backgroundIsAddedToTheFollowingScenario() throws IOException {
+        Path report = write("report.json", "[" + feature("features/b.feature", element("background", 2, 40, 1),
+                element("scenario", 6, 60, 1), element("background", 2, 40, 1), element("scenario", 10, 10, 1)) + "]");
+
+        ScenarioDurations durations = ScenarioDurations.load(Collections.singletonList(report));
+
+        assertEquals(100, durations.estimate("features/b.feature:6", 2));
+        assertEquals(50, durations.estimate("features/b.feature:10", 2));
+    }
+
+    @Test
+    public void readsDirectoriesAndSkipsOtherFiles() throws IOException {
+        write("reports/one.json", report("features/c.feature", 1, 10, 1));
+        write("reports/nested/two.json", report("features/c.feature", 2, 20, 1));
+        write("reports/command-metrics.json", "{\"click\":{\"count\":1}}");
+        write("reports/broken.json", "[{");
+        write("reports/notes.txt", report("features/c.feature", 3, 30, 1));
+
+        ScenarioDurations durations = ScenarioDurations.load(Arrays.asList(
+                folder.getRoot().toPath().resolve("reports"), folder.getRoot().toPath().resolve("missing")));
+
+        assertEquals(2, durations.size());
+        assertEquals(20, durations.estimate("features/c.feature:2", 1));
+        assertFalse(durations.contains("features/c.feature:3"));
+    }
+
+    @Test
+    public void normalizesReportUris() {
+        assertEquals("features/d.feature", ScenarioDurations.normalizePath("file:features/d.feature"));
+        assertEquals("src/test/resources/features/d.feature", ScenarioDurations.normalizePath(
+                new File("src/test/resources/features/d.feature").toURI().toString()));
+    }
+}
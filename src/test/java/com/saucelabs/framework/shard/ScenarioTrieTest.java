@@ -0,0 +1,80 @@
+package com.saucelabs.framework.shard;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openqa.selenium.json.Json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ScenarioTrieTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ScenarioTrie trie(String... scenarios) {
+        List<ShardPlanner.Scenario> parsed = new ArrayList<>();
+        for (int i = 0; i < scenarios.length; i++) {
+            List<String> steps = scenarios[i].isEmpty()
+                    ? Collections.<String>emptyList() : Arrays.asList(scenarios[i].split(","));
+            parsed.add(new ShardPlanner.Scenario("a.feature", i + 1, "scenario " + i, steps));
+        }
+        return ScenarioTrie.build(parsed);
+    }
+
+    @Test
+    public void sharedPrefixBecomesACheckpointWhereScenariosDiverge() {
+        ScenarioTrie trie = trie("login,open cart,checkout", "login,open cart,remove item", "login,logout");
+
+        assertEquals(Arrays.asList(Collections.singletonList("login"), Arrays.asList("login", "open cart")),
+                trie.getCheckpoints());
+        assertEquals(8, trie.getTotalSteps());
+        assertEquals(5, trie.getUniqueSteps());
+    }
+
+    @Test
+    public void prefixWhereAScenarioEndsIsACheckpoint() {
+        ScenarioTrie trie = trie("login,open cart", "login,open cart,checkout");
+        assertEquals(Collections.singletonList(Arrays.asList("login", "open cart")), trie.getCheckpoints());
+    }
+
+    @Test
+    public void completeScenariosAreNeverCheckpoints() {
+        assertTrue(trie("login,open cart", "login,open cart").getCheckpoints().isEmpty());
+    }
+
+    @Test
+    public void scenariosWithoutASharedPrefixHaveNoCheckpoints() {
+        ScenarioTrie trie = trie("login,checkout", "open menu,about", "");
+        assertTrue(trie.getCheckpoints().isEmpty());
+        assertEquals(4, trie.getTotalSteps());
+        assertEquals(4, trie.getUniqueSteps());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void writesThePlanWithScenarioCounts() throws IOException {
+        Path output = folder.getRoot().toPath().resolve("plan/checkpoints.json");
+        trie("login,a", "login,b", "login,c").write(output);
+
+        Map<String, Object> plan = new Json().toType(
+                new String(Files.readAllBytes(output), StandardCharsets.UTF_8), Map.class);
+        assertEquals(3L, plan.get("scenarios"));
+        assertEquals(6L, plan.get("steps"));
+        assertEquals(4L, plan.get("uniqueSteps"));
+        List<Map<String, Object>> checkpoints = (List<Map<String, Object>>) plan.get("checkpoints");
+        assertEquals(1, checkpoints.size());
+        assertEquals(Collections.singletonList("login"), checkpoints.get(0).get("steps"));
+        assertEquals(3L, checkpoints.get(0).get("scenarios"));
+    }
+}
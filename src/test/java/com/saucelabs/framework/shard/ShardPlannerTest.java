@@ -0,0 +1,122 @@
+package com.saucelabs.framework.shard;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ShardPlannerTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * 没有历史报告时每个步骤计1纳秒，场景的估算耗时就是步骤数
+     */
+    private static final ScenarioDurations NO_HISTORY = ScenarioDurations.load(Collections.<Path>emptyList());
+
+    private static ShardPlanner.Scenario scenario(String path, int line, int steps) {
+        List<String> stepKeys = new ArrayList<>();
+        for (int i = 0; i < steps; i++) {
+            stepKeys.add("step " + i);
+        }
+        return new ShardPlanner.Scenario(path, line, "scenario " + line, stepKeys);
+    }
+
+    private static List<String> keys(List<ShardPlanner.Scenario> shard) {
+        return shard.stream().map(ShardPlanner.Scenario::getKey).collect(Collectors.toList());
+    }
+
+    @Test
+    public void assignsLongestScenariosToTheLightestShard() {
+        List<ShardPlanner.Scenario> scenarios = Arrays.asList(scenario("a.feature", 1, 3), scenario("a.feature", 2, 7),
+                scenario("a.feature", 3, 2), scenario("b.feature", 1, 5), scenario("b.feature", 2, 4),
+                scenario("b.feature", 3, 3));
+
+        List<List<ShardPlanner.Scenario>> shards = ShardPlanner.plan(scenarios, NO_HISTORY, 2);
+
+        assertEquals(Arrays.asList("a.feature:2", "a.feature:1", "a.feature:3"), keys(shards.get(0)));
+        assertEquals(Arrays.asList("b.feature:1", "b.feature:2", "b.feature:3"), keys(shards.get(1)));
+        assertEquals(12, shards.get(0).stream().mapToLong(ShardPlanner.Scenario::getEstimateNanos).sum());
+        assertEquals(12, shards.get(1).stream().mapToLong(ShardPlanner.Scenario::getEstimateNanos).sum());
+    }
+
+    @Test
+    public void planDoesNotDependOnInputOrder() {
+        List<ShardPlanner.Scenario> scenarios = new ArrayList<>();
+        for (int line = 1; line <= 9; line++) {
+            scenarios.add(scenario("c.feature", line, line % 3 + 1));
+        }
+        List<List<ShardPlanner.Scenario>> expected = ShardPlanner.plan(scenarios, NO_HISTORY, 3);
+        Collections.reverse(scenarios);
+        List<List<ShardPlanner.Scenario>> reversed = ShardPlanner.plan(scenarios, NO_HISTORY, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(keys(expected.get(i)), keys(reversed.get(i)));
+        }
+    }
+
+    @Test
+    public void historyTakesPrecedenceOverStepCounts() throws IOException {
+        Path report = folder.newFile("report.json").toPath();
+        Files.write(report, ScenarioDurationsTest.report("d.feature", 1, 100, 2).getBytes(StandardCharsets.UTF_8));
+        ScenarioDurations durations = ScenarioDurations.load(Collections.singletonList(report));
+
+        List<List<ShardPlanner.Scenario>> shards = ShardPlanner.plan(
+                Arrays.asList(scenario("d.feature", 1, 2), scenario("d.feature", 2, 6)), durations, 2);
+
+        assertEquals(Collections.singletonList("d.feature:2"), keys(shards.get(0)));
+        assertEquals(300, shards.get(0).get(0).getEstimateNanos());
+        assertEquals(Collections.singletonList("d.feature:1"), keys(shards.get(1)));
+    }
+
+    @Test
+    public void extraShardsStayEmpty() {
+        List<List<ShardPlanner.Scenario>> shards = ShardPlanner.plan(
+                Collections.singletonList(scenario("e.feature", 1, 1)), NO_HISTORY, 3);
+        assertEquals(3, shards.size());
+        assertEquals(1, shards.get(0).size());
+        assertTrue(shards.get(1).isEmpty());
+        assertTrue(shards.get(2).isEmpty());
+    }
+
+    @Test
+    public void rerunFileGroupsLinesByFeature() throws IOException {
+        Path output = folder.getRoot().toPath().resolve("shards/shard-1.txt");
+        ShardPlanner.writeRerunFile(Arrays.asList(scenario("b.feature", 9, 1), scenario("a.feature", 12, 1),
+                scenario("b.feature", 3, 1), scenario("a.feature", 4, 1)), output);
+        assertEquals("a.feature:4:12\nb.feature:3:9\n", new String(Files.readAllBytes(output), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void emptyShardWritesAnEmptyRerunFile() throws IOException {
+        Path output = folder.getRoot().toPath().resolve("empty.txt");
+        ShardPlanner.writeRerunFile(Collections.<ShardPlanner.Scenario>emptyList(), output);
+        assertEquals(0, Files.size(output));
+    }
+
+    @Test
+    public void parsesShardArguments() {
+        assertArrayEquals(new int[] {2, 4}, ShardPlanner.parseShard(" 2 / 4 "));
+        for (String invalid : new String[] {"0/4", "5/4", "1/0", "2", "a/b", "1/2/3"}) {
+            try {
+                ShardPlanner.parseShard(invalid);
+                fail(invalid + " should be rejected");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains(invalid));
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.saucelabs.framework.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+    private static final long MICROS = 1000;
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getPercentileMillis(0.99), 0.0);
+        assertEquals(0.0, histogram.getMaxMillis(), 0.0);
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 0; micros < 8; micros++) {
+            histogram.recordNanos(micros * MICROS);
+        }
+        assertEquals(0.003, histogram.getPercentileMillis(0.5), 0.0);
+        assertEquals(0.007, histogram.getPercentileMillis(1.0), 0.0);
+    }
+
+    @Test
+    public void percentilesStayWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 10000; micros++) {
+            histogram.recordNanos(micros * MICROS);
+        }
+        assertEquals(10000, histogram.getCount());
+        assertWithinBucketError(5.0, histogram.getPercentileMillis(0.50));
+        assertWithinBucketError(9.5, histogram.getPercentileMillis(0.95));
+        assertWithinBucketError(9.9, histogram.getPercentileMillis(0.99));
+        assertEquals(10.0, histogram.getMaxMillis(), 0.0);
+        assertEquals(50005.0, histogram.getTotalMillis(), 0.0);
+    }
+
+    @Test
+    public void percentilesNeverExceedTheMaximum() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(1234 * MICROS);
+        assertEquals(1.234, histogram.getPercentileMillis(0.5), 0.0);
+        assertEquals(1.234, histogram.getPercentileMillis(0.99), 0.0);
+    }
+
+    @Test
+    public void negativeAndHugeValuesAreRecorded() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(-5);
+        histogram.recordNanos(Long.MAX_VALUE);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0.0, histogram.getPercentileMillis(0.5), 0.0);
+        assertEquals(Long.MAX_VALUE / MICROS / 1000.0, histogram.getPercentileMillis(1.0), 0.0);
+    }
+
+    @Test
+    public void summaryRoundsToTenthsOfAMillisecond() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordNanos(1234 * MICROS);
+        Map<String, Object> summary = histogram.summary();
+        assertEquals(1L, summary.get("count"));
+        assertEquals(1.2, summary.get("totalMs"));
+        assertEquals(1.2, summary.get("p50Ms"));
+        assertEquals(1.2, summary.get("maxMs"));
+    }
+
+    @Test
+    public void concurrentRecordsAreNotLost() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long micros = (t + 1) * 100;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.recordNanos(micros * MICROS);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, histogram.getCount());
+        assertEquals(10000.0, histogram.getTotalMillis(), 0.0);
+        assertEquals(0.4, histogram.getMaxMillis(), 0.0);
+    }
+
+    private static void assertWithinBucketError(double expected, double actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected * 1.125);
+    }
+}
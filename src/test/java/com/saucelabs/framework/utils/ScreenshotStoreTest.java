@@ -0,0 +1,99 @@
+package com.saucelabs.framework.utils;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ScreenshotStoreTest {
+
+    private static byte[] uniqueBytes() {
+        return UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void identicalScreenshotsShareOneWrite() throws Exception {
+        byte[] png = uniqueBytes();
+        ScreenshotStore.StoredScreenshot first = ScreenshotStore.store("first", png);
+        ScreenshotStore.StoredScreenshot second = ScreenshotStore.store("second", png.clone());
+
+        assertSame(first, second);
+        assertEquals(first.getPath(), first.getWritten().get(10, TimeUnit.SECONDS));
+        assertArrayEquals(png, Files.readAllBytes(first.getPath()));
+    }
+
+    @Test
+    public void concurrentCallersAlwaysSeeTheWriteFuture() throws Exception {
+        byte[] png = uniqueBytes();
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Future<Path>>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                results.add(threads.submit(() -> ScreenshotStore.store("concurrent", png).getWritten()));
+            }
+            for (Future<Future<Path>> result : results) {
+                assertNotNull(result.get().get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void failedWriteIsForgottenAndRetried() throws Exception {
+        byte[] png = uniqueBytes();
+        ScreenshotStore.StoredScreenshot probe = ScreenshotStore.store("probe", uniqueBytes());
+        Path blocked = probe.getPath().resolveSibling(sha256(png) + ".png");
+        // 目标路径是目录，写入失败
+        Files.createDirectories(blocked);
+        try {
+            ScreenshotStore.StoredScreenshot failed = ScreenshotStore.store("failed", png);
+            try {
+                failed.getWritten().get(10, TimeUnit.SECONDS);
+                fail("Writing over a directory should fail");
+            } catch (ExecutionException e) {
+                // 预期的写入失败
+            }
+            Files.delete(blocked);
+
+            ScreenshotStore.StoredScreenshot retried = ScreenshotStore.store("retried", png);
+            assertNotSame(failed, retried);
+            assertEquals(retried.getPath(), retried.getWritten().get(10, TimeUnit.SECONDS));
+            assertTrue(Files.isRegularFile(retried.getPath()));
+        } finally {
+            Files.deleteIfExists(blocked);
+        }
+    }
+
+    @Test
+    public void unencodableScreenshotIsReportedAsIs() {
+        byte[] png = uniqueBytes();
+        assertArrayEquals(png, ScreenshotStore.reportImage(ScreenshotStore.store("raw", png)));
+    }
+
+    private static String sha256(byte[] data) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(data)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
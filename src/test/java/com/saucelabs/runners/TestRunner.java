@@ -9,7 +9,8 @@ import org.junit.runner.RunWith;
         features = "src/test/resources/features",
         glue = {"com.saucelabs.stepdefinitions"},
         plugin = {"pretty", "html:target/cucumber-reports/report.html", 
-                "json:target/cucumber-reports/report.json"},
+                "json:target/cucumber-reports/report.json",
+                "com.saucelabs.framework.fixtures.PrefixCheckpointPlugin"},
         monochrome = true,
         tags = "@successful"
 )
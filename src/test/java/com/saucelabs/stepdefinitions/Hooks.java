@@ -1,6 +1,13 @@
 package com.saucelabs.stepdefinitions;
 
+import com.saucelabs.framework.core.CommandMetrics;
+import com.saucelabs.framework.core.Configuration;
 import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.pages.PageFactory;
+import com.saucelabs.framework.pages.ScreenSignature;
+import com.saucelabs.framework.stub.StubAppiumServer;
+import com.saucelabs.framework.utils.ScreenshotStore;
+import com.saucelabs.framework.utils.ScreenshotStore.StoredScreenshot;
 import io.cucumber.java.After;
 import io.cucumber.java.Before;
 import io.cucumber.java.Scenario;
@@ -11,12 +18,26 @@ import org.slf4j.LoggerFactory;
 
 public class Hooks {
     private static final Logger logger = LoggerFactory.getLogger(Hooks.class);
+    static final String SHARED_SESSION_TAG = "@shared-session";
+
+    static {
+        if (Configuration.isStubServerEnabled()) {
+            // Sessions go to the in-process stub server instead of a real Appium server
+            StubAppiumServer.register();
+        }
+    }
 
     @Before
     public void setUp(Scenario scenario) {
         logger.info("Starting scenario: {}", scenario.getName());
-        // Initialize the AppiumDriver
-        DriverManager.initializeDriver();
+        CommandMetrics.startScenario();
+        // @shared-session scenarios of the same feature keep one session; others acquire a (pooled) session
+        String scope = scenario.getSourceTagNames().contains(SHARED_SESSION_TAG) ? scenario.getUri().toString() : null;
+        DriverManager.beginScenario(scope);
+        if (scope == null) {
+            // Start the next scenario's session in the background on a free device (no-op unless session.prewarm=true)
+            DriverManager.prewarmSession();
+        }
     }
 
     @After
@@ -26,15 +47,32 @@ public class Hooks {
         // Take screenshot if scenario fails
         if (scenario.isFailed()) {
             logger.error("Scenario failed, taking screenshot");
+            try {
+                // One page source fetch tells where the app ended up, which narrows down navigation failures
+                ScreenSignature screen = PageFactory.getCurrentScreen();
+                logger.error("Scenario failed on screen: {}", screen == null ? "unrecognized" : screen.getName());
+            } catch (Exception e) {
+                logger.error("Failed to recognize the current screen", e);
+            }
             try {
                 final byte[] screenshot = ((TakesScreenshot) DriverManager.getDriver()).getScreenshotAs(OutputType.BYTES);
-                scenario.attach(screenshot, "image/png", "Screenshot");
+                StoredScreenshot stored = ScreenshotStore.store(scenario.getName(), screenshot);
+                if (Configuration.isScreenshotReportEmbedded()) {
+                    scenario.attach(ScreenshotStore.reportImage(stored), ScreenshotStore.reportMediaType(), "Screenshot");
+                } else {
+                    // Record a reference to the stored image instead of embedding its bytes
+                    scenario.attach(stored.getPath().toUri().toString(), "text/uri-list", "Screenshot");
+                }
             } catch (Exception e) {
                 logger.error("Failed to take screenshot", e);
             }
         }
         
-        // Quit the driver
-        DriverManager.quitDriver();
+        // Attach per-command latency for this scenario (suite totals go to target/command-metrics.json)
+        scenario.attach(CommandMetrics.toJson(CommandMetrics.getScenarioSummary()), "application/json", "Command latency");
+
+        // Keep a passing @shared-session driver for the next example; otherwise return it to the session pool
+        // (quits it when reuse is disabled), so a failure always leads to a fully reset session
+        DriverManager.endScenario(scenario.isFailed());
     }
 } 
\ No newline at end of file
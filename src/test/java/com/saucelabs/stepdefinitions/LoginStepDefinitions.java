@@ -1,11 +1,18 @@
 package com.saucelabs.stepdefinitions;
 
+import com.saucelabs.framework.core.AppResetStrategy;
 import com.saucelabs.framework.core.Configuration;
+import com.saucelabs.framework.core.DriverManager;
+import com.saucelabs.framework.fixtures.AppStateFixtures;
+import com.saucelabs.framework.fixtures.LoggedInFixture;
+import com.saucelabs.framework.fixtures.PrefixCheckpoints;
+import com.saucelabs.framework.pages.LoginOutcome;
 import com.saucelabs.framework.pages.PageFactory;
 import com.saucelabs.framework.pages.android.LoginPageAndroid;
 import com.saucelabs.framework.pages.android.ProductsPageAndroid;
 import com.saucelabs.framework.pages.ios.LoginPageIOS;
 import com.saucelabs.framework.pages.ios.ProductsPageIOS;
+import io.cucumber.java.Before;
 import io.cucumber.java.en.And;
 import io.cucumber.java.en.Given;
 import io.cucumber.java.en.Then;
@@ -14,24 +21,67 @@ import org.junit.Assert;
 
 public class LoginStepDefinitions {
 
+    /** How long an error banner may take to show up after the login screen has been left */
+    private static final long ERROR_ABSENCE_MILLIS = 500;
+
     private LoginPageAndroid loginPageAndroid;
     private LoginPageIOS loginPageIOS;
     private ProductsPageAndroid productsPageAndroid;
     private ProductsPageIOS productsPageIOS;
+    private LoginOutcome loginOutcome;
+
+    /**
+     * Lightweight reset between @shared-session examples: clear the login form, or relaunch the app
+     * when a previous example left the login screen. Runs after Hooks.setUp (default order 10000).
+     */
+    @Before(value = Hooks.SHARED_SESSION_TAG, order = 10001)
+    public void resetLoginScreen() {
+        if (!DriverManager.isSessionContinued()) {
+            return;
+        }
+        boolean onLoginScreen = Configuration.isAndroid()
+                ? ((LoginPageAndroid) PageFactory.getLoginPage()).clearForm()
+                : ((LoginPageIOS) PageFactory.getLoginPage()).clearForm();
+        if (!onLoginScreen) {
+            DriverManager.resetApp(AppResetStrategy.RELAUNCH);
+        }
+    }
 
     @Given("I am on the login screen")
     public void iAmOnTheLoginScreen() {
+        boolean restored = PrefixCheckpoints.isRestored();
         if (Configuration.isAndroid()) {
             loginPageAndroid = (LoginPageAndroid) PageFactory.getLoginPage();
+            if (restored) {
+                return;
+            }
             Assert.assertTrue("Login page is not displayed", loginPageAndroid.isDisplayed());
         } else if (Configuration.isIOS()) {
             loginPageIOS = (LoginPageIOS) PageFactory.getLoginPage();
+            if (restored) {
+                return;
+            }
             Assert.assertTrue("Login page is not displayed", loginPageIOS.isDisplayed());
         }
     }
 
+    @Given("I am logged in as {string}")
+    public void iAmLoggedInAs(String username) {
+        if (!PrefixCheckpoints.isRestored()) {
+            AppStateFixtures.reach(new LoggedInFixture(username, Configuration.getFixtureLoggedInPassword()));
+        }
+        if (Configuration.isAndroid()) {
+            productsPageAndroid = new ProductsPageAndroid();
+        } else if (Configuration.isIOS()) {
+            productsPageIOS = new ProductsPageIOS();
+        }
+    }
+
     @When("I enter username {string}")
     public void iEnterUsername(String username) {
+        if (PrefixCheckpoints.isRestored()) {
+            return;
+        }
         if (Configuration.isAndroid()) {
             loginPageAndroid.enterUsername(username);
         } else if (Configuration.isIOS()) {
@@ -41,6 +91,9 @@ public class LoginStepDefinitions {
 
     @And("I enter password {string}")
     public void iEnterPassword(String password) {
+        if (PrefixCheckpoints.isRestored()) {
+            return;
+        }
         if (Configuration.isAndroid()) {
             loginPageAndroid.enterPassword(password);
         } else if (Configuration.isIOS()) {
@@ -50,17 +103,26 @@ public class LoginStepDefinitions {
 
     @And("I tap on the login button")
     public void iTapOnTheLoginButton() {
+        boolean restored = PrefixCheckpoints.isRestored();
         if (Configuration.isAndroid()) {
-            loginPageAndroid.clickLogin();
+            if (!restored) {
+                loginOutcome = loginPageAndroid.clickLogin().awaitLoginOutcome();
+            }
             productsPageAndroid = new ProductsPageAndroid();
         } else if (Configuration.isIOS()) {
-            loginPageIOS.clickLogin();
+            if (!restored) {
+                loginOutcome = loginPageIOS.clickLogin().awaitLoginOutcome();
+            }
             productsPageIOS = new ProductsPageIOS();
         }
     }
 
     @Then("I should see the products page")
     public void iShouldSeeTheProductsPage() {
+        if (PrefixCheckpoints.isRestored()) {
+            return;
+        }
+        assertLoginOutcome(LoginOutcome.PRODUCTS);
         if (Configuration.isAndroid()) {
             Assert.assertTrue("Products page is not displayed", productsPageAndroid.isDisplayed());
         } else if (Configuration.isIOS()) {
@@ -68,8 +130,26 @@ public class LoginStepDefinitions {
         }
     }
 
+    @Then("I should not see an error message")
+    public void iShouldNotSeeAnErrorMessage() {
+        if (PrefixCheckpoints.isRestored()) {
+            return;
+        }
+        if (Configuration.isAndroid()) {
+            Assert.assertTrue("Error message is displayed",
+                    new LoginPageAndroid().isErrorMessageAbsent(ERROR_ABSENCE_MILLIS));
+        } else if (Configuration.isIOS()) {
+            Assert.assertTrue("Error message is displayed",
+                    new LoginPageIOS().isErrorMessageAbsent(ERROR_ABSENCE_MILLIS));
+        }
+    }
+
     @Then("I should see the error message {string}")
     public void iShouldSeeTheErrorMessage(String errorMessage) {
+        if (PrefixCheckpoints.isRestored()) {
+            return;
+        }
+        assertLoginOutcome(LoginOutcome.LOGIN_ERROR);
         if (Configuration.isAndroid()) {
             Assert.assertEquals("Error message does not match", errorMessage, loginPageAndroid.getErrorMessage());
             Assert.assertTrue("Error message is not displayed", loginPageAndroid.isErrorMessageDisplayed());
@@ -78,4 +158,13 @@ public class LoginStepDefinitions {
             Assert.assertTrue("Error message is not displayed", loginPageIOS.isErrorMessageDisplayed());
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Fail fast when the login already ended on the other branch instead of waiting out a full timeout
+     */
+    private void assertLoginOutcome(LoginOutcome expected) {
+        if (loginOutcome != null) {
+            Assert.assertEquals("Login ended on an unexpected screen", expected, loginOutcome);
+        }
+    }
+}
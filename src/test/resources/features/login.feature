@@ -10,7 +10,14 @@ Feature: SauceLabs Sample App Login
     And I enter password "secret_sauce"
     And I tap on the login button
     Then I should see the products page
+    And I should not see an error message
 
+  @successful
+  Scenario: Logged-in user lands on the products page
+    Given I am logged in as "standard_user"
+    Then I should see the products page
+
+  @shared-session
   Scenario Outline: Unsuccessful login with invalid credentials
     Given I am on the login screen
     When I enter username "<username>"